@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 
 /**
@@ -12,8 +13,11 @@ import java.util.function.Predicate;
  *
  * OOP2 Additions vs OOP1:
  *  - Concurrency:    demonstrateConcurrency()   -> service.AnalyticsService
+ *  - Thread safety:  service.ConcurrentFitnessServiceImpl (stress test: test/service)
+ *  - Load testing:   demonstrateLoadTest()      -> workload.WorkloadGenerator / LoadDriver
  *  - NIO2:           demonstrateNio2()           -> service.WorkoutDataManager
  *  - Localisation:   demonstrateLocalisation()  -> i18n/messages_*.properties
+ *  - Metrics:        demonstrateMetrics()       -> metrics.MetricsRegistry (JMX)
  *  - Java 25 demo:   Java25Demo (separate file, see compile instructions)
  */
 public class FitnessTrackerMain {
@@ -46,13 +50,21 @@ public class FitnessTrackerMain {
             demonstrateConcurrency(service);
             sep();
 
+            demonstrateLoadTest();
+            sep();
+
             demonstrateNio2(service);
             sep();
 
             demonstrateLocalisation();
+            sep();
+
+            demonstrateMetrics(service);
 
         } catch (InvalidWorkoutException | IOException e) {
             System.err.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
         System.out.println("\n" + "=".repeat(80));
@@ -61,7 +73,7 @@ public class FitnessTrackerMain {
     }
 
     // ----------------------------------------------------------------
-    // CONCURRENCY — ExecutorService, Callable, Future, invokeAll
+    // CONCURRENCY — fused fork/join analytics (AnalyticsService/AnalyticsEngine)
     // ----------------------------------------------------------------
     private static void demonstrateConcurrency(FitnessServiceImpl service)
             throws InvalidWorkoutException {
@@ -88,13 +100,18 @@ public class FitnessTrackerMain {
                     WorkoutType.HIIT, List.of(e3), 25, "Rowing intervals"));
         }
 
-        var sessions = u.getWorkoutHistory();
-        var analytics = new AnalyticsService();
+        // Long-lived executor backend — closed by try-with-resources
+        try (var analytics = new AnalyticsService()) {
+            runAnalytics(analytics, u);
+        }
+    }
 
+    private static void runAnalytics(AnalyticsService analytics, User user) {
+        var sessions = user.getWorkoutHistory();
         System.out.println("Running " + 6 + " analytics tasks concurrently...");
         System.out.println();
 
-        // --- Submit all Callable tasks via invokeAll ---
+        // --- One fused pass; large histories are split with fork/join ---
         List<AnalyticsService.AnalyticsResult> results =
                 analytics.runConcurrentAnalytics(sessions);
 
@@ -102,15 +119,114 @@ public class FitnessTrackerMain {
         results.forEach(System.out::println);
         System.out.println();
 
-        // --- Bonus: groupingBy calories per workout type ---
-        System.out.println("  Calories burned by workout type (groupingBy):");
-        analytics.caloriesByType(sessions)
+        // --- Bonus: calories per workout type (per-type index, no scan) ---
+        System.out.println("  Calories burned by workout type (per-type index):");
+        analytics.caloriesByType(user)
                  .forEach((type, cal) ->
-                     System.out.printf("    %-12s : %.0f kcal%n", type, cal));
+                     System.out.printf("    %-12s : %.0f kcal (%d sessions)%n",
+                         type, cal, user.getWorkoutsByType(type).size()));
+
+        // --- Percentiles from the user's quantile sketches (no sort) ---
+        System.out.println("  Duration / calorie percentiles (quantile sketches):");
+        analytics.percentiles(user).forEach(System.out::println);
+    }
+
+    // ----------------------------------------------------------------
+    // LOAD TEST — seeded synthetic population + mixed read/write driver
+    // ----------------------------------------------------------------
+    private static void demonstrateLoadTest() throws InvalidWorkoutException, InterruptedException {
+        System.out.println(">>> DEMONSTRATING LOAD TEST <<<\n");
+
+        var profile = workload.WorkloadProfile.builder()
+            .users(200)
+            .sessionsPerUser(workload.Distribution.logNormal(20, 0.7).clamp(1, 200))
+            .build();
+        var generator = new workload.WorkloadGenerator(2024L, profile);
+        var service = new ConcurrentFitnessServiceImpl();
+        var userIds = generator.populate(service);
+
+        var sample = service.getUser(userIds.get(0));
+        System.out.printf("  Generated %d users (seed 2024); %s has %d sessions, %d goals, plan: %s%n",
+                userIds.size(), sample.getName(), sample.getWorkoutHistory().size(), sample.getGoals().size(),
+                sample.getNutritionPlan() == null ? "none" : sample.getNutritionPlan().getPlanName());
+
+        // Calendar views read the rollup buckets, not the sessions
+        var rollups = sample.getRollups();
+        var lastDay = profile.endDate();
+        System.out.println("  Last 4 ISO weeks (rollups):");
+        rollups.series(model.WorkoutRollups.Granularity.ISO_WEEK, lastDay.minusWeeks(3), lastDay)
+               .forEach(week -> System.out.println("    " + week));
+        var quarter = rollups.totals(lastDay.minusDays(89), lastDay);
+        System.out.printf("  Last 90 days: %d sessions, %.0f kcal cardio of %.0f total%n",
+                quarter.getSessionCount(), quarter.getCalories(WorkoutType.CARDIO), quarter.getCalories());
+        System.out.printf("  Monthly kcal %d: %s%n", lastDay.getYear(),
+                java.util.Arrays.toString(java.util.Arrays.stream(sample.getMonthlyCaloriesBurned(lastDay.getYear()))
+                        .mapToLong(Math::round).toArray()));
+
+        // Active users and distinct exercises — HyperLogLog per day, merged over the window
+        var activity = service.getActivity();
+        System.out.printf("  Activity on %s (HyperLogLog, +/-%.1f%%): DAU %s, WAU %s, MAU %s, distinct exercises %s%n",
+                lastDay, activity.getRelativeError() * 100, activity.dailyActiveUsers(lastDay),
+                activity.weeklyActiveUsers(lastDay), activity.monthlyActiveUsers(lastDay),
+                activity.distinctExercises());
+
+        // Flyweight exercises — sessions added through the service share identical exercises
+        var references = 0;
+        var distinct = Collections.newSetFromMap(new IdentityHashMap<Exercise, Boolean>());
+        for (var u : service.getUsers()) {
+            for (var s : u.getWorkoutHistory()) {
+                references += s.exercises().size();
+                distinct.addAll(s.exercises());
+            }
+        }
+        System.out.printf("  Exercise catalog: %s%n", ExerciseCatalog.global().heapReport());
+        System.out.printf("    %d exercise references backed by %d objects%n", references, distinct.size());
+
+        // Off-heap packed copy of every history — aggregates read the structs in place
+        try (var packed = new OffHeapSessionStore()) {
+            service.getUsers().forEach(packed::appendAll);
+            var exerciseTotals = packed.exerciseTotals();
+            System.out.printf("  Off-heap: %s%n", packed);
+            System.out.printf("    %.0f kcal, %d min; %s: %d sessions; %.1f km cardio, %.0f kg lifted%n",
+                    packed.totalCalories(), packed.totalDuration(), sample.getUserId(),
+                    packed.totalsFor(sample.getUserId()).sessions(),
+                    exerciseTotals.distance(), exerciseTotals.volume());
+            System.out.println("    row 0 -> " + packed.session(0).getSummary());
+        }
+
+        // Population report — users partitioned across fork/join, no history copied
+        try (var analytics = new AnalyticsService()) {
+            var fleet = analytics.analyseFleet(service);
+            System.out.println("  Fleet: " + fleet.getPopulation());
+            System.out.println("    duration " + fleet.getDurationSketch());
+            System.out.println("    calories " + fleet.getCalorieSketch());
+            for (var type : WorkoutType.values()) {
+                System.out.printf("    %-12s %5.1f%% of sessions, %d users%n", type.name(),
+                        fleet.getPopulation().getShare(type) * 100, fleet.getPopulation().getUsers(type));
+            }
+            for (var band : FleetAnalytics.AgeBand.values()) {
+                var group = fleet.getAgeBand(band);
+                if (group.getUsers() > 0) System.out.printf("    age %-8s %s%n", band.label(), group);
+            }
+            for (var band : FleetAnalytics.BmiBand.values()) {
+                var group = fleet.getBmiBand(band);
+                if (group.getUsers() > 0) System.out.printf("    BMI %-9s %s%n", band.label(), group);
+            }
+        }
+
+        var config = workload.LoadDriver.Config.defaults()
+            .withThreads(2)
+            .withTiming(java.time.Duration.ofMillis(200), java.time.Duration.ofSeconds(1));
+        var report = new workload.LoadDriver(service, userIds, generator, config).run();
+        System.out.println();
+        report.format().lines().forEach(line -> System.out.println("  " + line));
+        if (report.totalErrors() > 0) {
+            throw new IllegalStateException("Load test reported " + report.totalErrors() + " failed operations");
+        }
     }
 
     // ----------------------------------------------------------------
-    // NIO2 — Path, Files, walkFileTree, BasicFileAttributes
+    // NIO2 — Path, Files, FileChannel, BasicFileAttributes
     // ----------------------------------------------------------------
     private static void demonstrateNio2(FitnessServiceImpl service) throws IOException {
         System.out.println(">>> DEMONSTRATING NIO2 <<<\n");
@@ -124,23 +240,65 @@ public class FitnessTrackerMain {
         // 1 — Save workout history to CSV using NIO2 Files.newBufferedWriter
         System.out.println("  1. Saving workout history to CSV...");
         manager.saveWorkoutHistory(user.getUserId(), sessions);
+        manager.saveDistributions(user);
+        manager.loadDistributions(user.getUserId()).ifPresent(saved ->
+                System.out.println("     Reloaded duration sketch: " + saved.duration()));
 
         // 2 — Read it back using NIO2 Files.newBufferedReader
         System.out.println("\n  2. Reading back from CSV...");
         var rows = manager.loadWorkoutHistory();
         rows.forEach(row -> System.out.println("     Row: " + Arrays.toString(row)));
 
-        // 3 — Backup using NIO2 Files.copy + Path
-        System.out.println("\n  3. Creating backup...");
+        var from = sessions.get(0).date();
+        long matched = manager.forEachWorkoutInRange(user.getUserId(), from, from.plusDays(7),
+                row -> System.out.println("     In range: " + row.sessionId() + " " + row.date()));
+        System.out.println("     " + matched + " session(s) in [" + from + ", " + from.plusDays(7) + "] via the block index");
+
+        // 3 — Incremental backup: the second run finds every chunk already stored
+        System.out.println("\n  3. Creating backups (deduplicated)...");
+        manager.backupHistory();
         manager.backupHistory();
 
-        // 4 — Walk backup directory with walkFileTree (NIO2)
-        System.out.println("\n  4. Listing backup files via walkFileTree...");
+        // 4 — Retention (background) then list from the backup catalog
+        System.out.println("\n  4. Applying retention and listing the backup catalog...");
+        try {
+            manager.enforceRetentionAsync().get(); // queued behind the passes the backups started
+            var policy = manager.getRetentionPolicy();
+            System.out.printf("     Retention: keep %d daily / %d weekly / %d monthly%n",
+                    policy.daily(), policy.weekly(), policy.monthly());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("     Retention failed: " + e.getCause().getMessage());
+        }
         manager.listBackups();
 
         // 5 — File metadata via BasicFileAttributes (NIO2)
         System.out.println("\n  5. File attributes (BasicFileAttributes)...");
         manager.printFileInfo();
+
+        // 6 — Append-only journal: append with group commit, then replay
+        System.out.println("\n  6. Appending to the workout journal (group commit)...");
+        try (var journal = manager.openJournal()) {
+            for (var session : sessions) {
+                journal.appendDurably(user.getUserId(), session);
+            }
+            System.out.printf("     Appended %d sessions in %d commit(s)%n",
+                    journal.getAppendCount(), journal.getCommitCount());
+
+            var restored = new FitnessServiceImpl();
+            long replayed = journal.restoreInto(restored);
+            System.out.println("     Replayed " + replayed + " journaled sessions into a fresh service");
+        }
+
+        // 7 — Compact binary copy, read back through a memory-mapped FileChannel
+        System.out.println("\n  7. Saving and mapping the binary history...");
+        manager.saveBinaryHistory(user.getUserId(), sessions);
+        try (var binary = manager.openBinaryHistory(user.getUserId())) {
+            System.out.printf("     Mapped %d sessions, %.0f calories, %d minutes (CSV total: %.0f)%n",
+                    binary.sessionCount(), binary.totalCalories(), binary.totalDuration(),
+                    user.getTotalCaloriesBurned());
+        }
     }
 
     // ----------------------------------------------------------------
@@ -184,6 +342,39 @@ public class FitnessTrackerMain {
         }
     }
 
+    // ----------------------------------------------------------------
+    // METRICS — latency histograms and counters, exported as MBeans
+    // ----------------------------------------------------------------
+    private static void demonstrateMetrics(FitnessServiceImpl service) throws InvalidWorkoutException {
+        System.out.println(">>> DEMONSTRATING METRICS <<<\n");
+
+        var registry = metrics.MetricsRegistry.global();
+        System.out.println("  Everything above was timed. Non-empty metrics so far:\n");
+        registry.report().lines().forEach(line -> System.out.println("  " + line));
+
+        // The same numbers over JMX, as jconsole or a monitoring agent sees them
+        try {
+            var server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            var name = metrics.MetricsRegistry.objectName("Timer", "service.addWorkoutToUser");
+            System.out.printf("%n  JMX %s Count = %s%n", name, server.getAttribute(name, "Count"));
+        } catch (javax.management.JMException e) {
+            System.out.println("\n  JMX not available: " + e.getMessage());
+        }
+
+        // Disabled: the timers stop recording, instrumented calls cost one flag read
+        var timer = registry.timer("service.addWorkoutToUser");
+        long before = timer.getCount();
+        registry.setEnabled(false);
+        try {
+            service.addWorkoutToUser("U001", new WorkoutSession("WS-M1", LocalDate.now(), WorkoutType.YOGA,
+                List.of(new StrengthExercise("Sun Salutation", 15)), 15, "metrics off"));
+        } finally {
+            registry.setEnabled(true);
+        }
+        System.out.printf("  With metrics disabled, addWorkoutToUser left the count at %d (was %d)%n",
+                timer.getCount(), before);
+    }
+
     // ----------------------------------------------------------------
     //  Existing methods below — unchanged from OOP1
     // ----------------------------------------------------------------
@@ -330,6 +521,26 @@ public class FitnessTrackerMain {
                 .sum();
         System.out.println("Total calories burned: " + String.format("%.0f", totalCalories));
         System.out.println();
+
+        System.out.println("--- STRUCTURED QUERY (pushed down to the history store) ---");
+        var query = WorkoutQuery.builder()
+                .between(LocalDate.now().minusDays(30), LocalDate.now())
+                .minCalories(100)
+                .order(WorkoutQuery.Order.NEWEST_FIRST)
+                .limit(2)
+                .build();
+        System.out.println(query);
+        WorkoutPage.Cursor cursor = null;
+        int pageNo = 1;
+        do {
+            var page = service.queryWorkouts(userId, query, cursor);
+            for (var s : page.sessions()) {
+                System.out.println("  page " + pageNo + ": " + s.getSummary());
+            }
+            cursor = page.next();
+            pageNo++;
+        } while (cursor != null);
+        System.out.println();
     }
 
     private static void demonstrateSwitchAndPatternMatching(FitnessServiceImpl service) {
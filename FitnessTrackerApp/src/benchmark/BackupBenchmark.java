@@ -0,0 +1,115 @@
+package benchmark;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.StrengthExercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+import service.ChunkedBackupStore;
+import service.PartitionedHistoryStore;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bytes written per backup: the old full dated copy versus the
+ * deduplicating ChunkedBackupStore, over a history that grows a little
+ * every day (the normal case — most of the file is unchanged).
+ *
+ * Usage: java benchmark.BackupBenchmark [initialSessions] [days] [sessionsPerDay]
+ */
+public final class BackupBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int initial = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int perDay = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        Path work = Files.createTempDirectory("backup-bench");
+        try {
+            var partitions = new PartitionedHistoryStore(work.resolve("users"));
+            var backups = new ChunkedBackupStore(work.resolve("backups"));
+            var random = new Random(42);
+            var history = new ArrayList<WorkoutSession>();
+            var day = LocalDate.of(2020, 1, 1);
+            for (int i = 0; i < initial; i++) {
+                history.add(session(random, i, day.plusDays(i / 5)));
+            }
+            day = day.plusDays(initial / 5 + 1);
+
+            System.out.printf("%-5s %12s %14s %14s %8s%n", "day", "history", "full copy", "incremental", "ratio");
+            long fullTotal = 0;
+            long incrementalTotal = 0;
+            for (int d = 0; d <= days; d++) {
+                if (d > 0) {
+                    for (int i = 0; i < perDay; i++) {
+                        history.add(session(random, history.size(), day));
+                    }
+                    day = day.plusDays(1);
+                }
+                Path file = partitions.save("U001", history);
+
+                Files.copy(file, work.resolve("full-" + d + ".csv"), StandardCopyOption.REPLACE_EXISTING);
+                long full = Files.size(file);
+                var result = backups.backup(work, List.of(file));
+                fullTotal += full;
+                incrementalTotal += result.bytesWritten();
+                System.out.printf("%-5d %12d %14d %14d %7.1f%%%n", d, Files.size(file), full,
+                        result.bytesWritten(), 100.0 * result.bytesWritten() / full);
+            }
+            System.out.printf("%-5s %12s %14d %14d %7.1f%%%n", "total", "", fullTotal, incrementalTotal,
+                    100.0 * incrementalTotal / fullTotal);
+            System.out.printf("Backup store on disk: %d bytes for %d backups%n",
+                    directorySize(backups.getRoot()), days + 1);
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    private static WorkoutSession session(Random random, int n, LocalDate date) {
+        Exercise exercise = random.nextBoolean()
+                ? new CardioExercise("Run", 20 + random.nextInt(40), 2 + random.nextInt(10), 120 + random.nextInt(60))
+                : new StrengthExercise("Squat", 15 + random.nextInt(30), 3 + random.nextInt(3),
+                        5 + random.nextInt(10), 20 + random.nextInt(100));
+        var type = WorkoutType.values()[random.nextInt(WorkoutType.values().length)];
+        return new WorkoutSession("WS" + n, date, type, List.of(exercise), 30 + random.nextInt(60),
+                random.nextInt(4) == 0 ? "felt strong, " + random.nextInt(100) : "");
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        long[] total = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                total[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total[0];
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonic striped counter (bytes moved, items processed, ...). */
+public final class Counter implements CounterMXBean {
+
+    private final String name;
+    private final MetricsRegistry registry;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name, MetricsRegistry registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        if (registry.isEnabled()) value.increment();
+    }
+
+    public void add(long amount) {
+        if (registry.isEnabled()) value.add(amount);
+    }
+
+    @Override
+    public long getValue() {
+        return value.sum();
+    }
+
+    @Override
+    public void reset() {
+        value.reset();
+    }
+}
@@ -0,0 +1,204 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Named timers and counters, optionally exported as MBeans.
+ *
+ * Instrumented code holds its Timer/Counter in a static final field and
+ * calls it unconditionally; the registry's enabled flag makes every call a
+ * no-op when metrics are off. The process-wide {@link #global()} registry
+ * is enabled unless {@code -Dfitness.metrics=false}, and registers itself
+ * and each metric with the platform MBeanServer unless
+ * {@code -Dfitness.metrics.jmx=false}:
+ * <pre>
+ *   fitnesstracker:type=Metrics
+ *   fitnesstracker:type=Timer,name=service.addWorkoutToUser
+ *   fitnesstracker:type=Counter,name=io.saveWorkoutHistory.bytes
+ * </pre>
+ */
+public final class MetricsRegistry implements MetricsRegistryMXBean {
+
+    public static final String JMX_DOMAIN = "fitnesstracker";
+
+    private static final class Global {
+        static final MetricsRegistry INSTANCE = createGlobal();
+    }
+
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Object> creationLocks = new ConcurrentHashMap<>();
+    private final Set<ObjectName> exported = ConcurrentHashMap.newKeySet();
+    private volatile boolean enabled;
+    private volatile MBeanServer server;
+
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** The process-wide registry used by the service and persistence layers. */
+    public static MetricsRegistry global() {
+        return Global.INSTANCE;
+    }
+
+    private static MetricsRegistry createGlobal() {
+        var registry = new MetricsRegistry(!"false".equalsIgnoreCase(System.getProperty("fitness.metrics")));
+        if (!"false".equalsIgnoreCase(System.getProperty("fitness.metrics.jmx"))) {
+            try {
+                registry.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+            } catch (JMException | SecurityException e) {
+                System.err.println("Metrics not exported over JMX: " + e.getMessage());
+            }
+        }
+        return registry;
+    }
+
+    // ------------------------------------------------------------------
+    // Metric lookup — get-or-create, cheap enough for static initialisers
+    // ------------------------------------------------------------------
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer != null) return timer;
+        synchronized (creationLocks.computeIfAbsent(name, n -> new Object())) {
+            timer = timers.get(name);
+            if (timer == null) {
+                timer = new Timer(name, this);
+                export("Timer", name, timer);
+                timers.put(name, timer);
+            }
+            return timer;
+        }
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) return counter;
+        synchronized (creationLocks.computeIfAbsent(name, n -> new Object())) {
+            counter = counters.get(name);
+            if (counter == null) {
+                counter = new Counter(name, this);
+                export("Counter", name, counter);
+                counters.put(name, counter);
+            }
+            return counter;
+        }
+    }
+
+    public Map<String, Timer> timers() {
+        return Map.copyOf(timers);
+    }
+
+    public Map<String, Counter> counters() {
+        return Map.copyOf(counters);
+    }
+
+    // ------------------------------------------------------------------
+    // JMX
+    // ------------------------------------------------------------------
+
+    /** Registers this registry and every current and future metric with {@code server}. */
+    public synchronized void registerMBeans(MBeanServer server) throws JMException {
+        register(server, new ObjectName(JMX_DOMAIN, "type", "Metrics"), this);
+        this.server = server;
+        timers.forEach((name, timer) -> export("Timer", name, timer));
+        counters.forEach((name, counter) -> export("Counter", name, counter));
+    }
+
+    public synchronized void unregisterMBeans() throws JMException {
+        MBeanServer current = server;
+        if (current == null) return;
+        server = null;
+        for (ObjectName name : exported) {
+            try {
+                current.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // already gone
+            }
+        }
+        exported.clear();
+    }
+
+    public static ObjectName objectName(String type, String metric) throws JMException {
+        return ObjectName.getInstance(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(metric));
+    }
+
+    private void export(String type, String metric, Object bean) {
+        MBeanServer current = server;
+        if (current == null) return;
+        try {
+            register(current, objectName(type, metric), bean);
+        } catch (JMException e) {
+            System.err.println("Could not export metric " + metric + ": " + e.getMessage());
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+            exported.add(name);
+        } catch (InstanceAlreadyExistsException e) {
+            // a registry from another class loader got there first — keep it
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // MetricsRegistryMXBean
+    // ------------------------------------------------------------------
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public List<String> getTimerNames() {
+        return List.copyOf(timers.keySet());
+    }
+
+    @Override
+    public List<String> getCounterNames() {
+        return List.copyOf(counters.keySet());
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    @Override
+    public void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    /** Timers that have recorded something, then non-zero counters; latencies in microseconds. */
+    public String report() {
+        var sb = new StringBuilder();
+        sb.append(String.format("%-40s %9s %6s %10s %10s %10s %10s%n",
+                "timer", "count", "errors", "mean us", "p50 us", "p99 us", "max us"));
+        for (Timer t : timers.values()) {
+            if (t.getCount() == 0) continue;
+            sb.append(String.format("%-40s %9d %6d %10.1f %10.1f %10.1f %10.1f%n", t.getName(), t.getCount(),
+                    t.getErrorCount(), t.getMeanMicros(), t.getP50Micros(), t.getP99Micros(), t.getMaxMicros()));
+        }
+        for (Counter c : counters.values()) {
+            if (c.getValue() == 0) continue;
+            sb.append(String.format("%-40s %9d%n", c.getName(), c.getValue()));
+        }
+        return sb.toString();
+    }
+}
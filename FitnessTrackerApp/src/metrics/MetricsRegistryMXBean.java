@@ -0,0 +1,20 @@
+package metrics;
+
+import java.util.List;
+
+/** JMX control surface for a {@link MetricsRegistry}. */
+public interface MetricsRegistryMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    List<String> getTimerNames();
+
+    List<String> getCounterNames();
+
+    /** Plain-text table of every metric, as {@link MetricsRegistry#report()}. */
+    String getReport();
+
+    void reset();
+}
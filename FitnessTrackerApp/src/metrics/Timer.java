@@ -0,0 +1,113 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram plus error count for one operation.
+ *
+ * Usage, allocation-free:
+ * <pre>
+ *   long start = timer.start();
+ *   boolean ok = false;
+ *   try {
+ *       ...
+ *       ok = true;
+ *   } finally {
+ *       timer.stop(start, ok);
+ *   }
+ * </pre>
+ * While the owning registry is disabled, {@link #start()} is a single
+ * volatile read and {@link #stop} a compare — no clock read, no write.
+ */
+public final class Timer implements TimerMXBean {
+
+    /** Returned by start() while metrics are off; stop() ignores it. */
+    static final long DISABLED = Long.MIN_VALUE;
+
+    private final String name;
+    private final MetricsRegistry registry;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    Timer(String name, MetricsRegistry registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long start() {
+        return registry.isEnabled() ? System.nanoTime() : DISABLED;
+    }
+
+    public void stop(long start) {
+        if (start != DISABLED) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /** Records the latency and, unless {@code succeeded}, an error. */
+    public void stop(long start, boolean succeeded) {
+        if (start != DISABLED) {
+            histogram.record(System.nanoTime() - start);
+            if (!succeeded) errors.increment();
+        }
+    }
+
+    /** Records an externally measured latency. */
+    public void record(long nanos) {
+        if (registry.isEnabled()) {
+            histogram.record(nanos);
+        }
+    }
+
+    public LatencyHistogram histogram() {
+        return histogram;
+    }
+
+    // ------------------------------------------------------------------
+    // TimerMXBean
+    // ------------------------------------------------------------------
+    @Override
+    public long getCount() {
+        return histogram.count();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.mean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return histogram.percentile(0.50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return histogram.percentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return histogram.percentile(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.max() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        errors.reset();
+    }
+}
@@ -0,0 +1,241 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Flyweight catalog of exercises.
+ *
+ * Exercise names are interned to dense int ids (one canonical String per
+ * name), and identical immutable exercises — same kind, name and
+ * parameters — are canonicalised to one shared instance. A history in
+ * which "Morning Run, 30 min, 5 km" appears ten thousand times then holds
+ * ten thousand references to a single object instead of ten thousand
+ * objects and name Strings.
+ *
+ * Both tables are concurrent: lookups never lock and racing inserts of
+ * the same exercise agree on one winner. Exercises are only cached while
+ * the catalog holds fewer than its entry limit; past it, new shapes still
+ * get the canonical name but are not retained, so high-cardinality input
+ * (e.g. free-form distances) cannot grow the cache without bound.
+ *
+ * The name table is not bounded: name ids are permanent, because
+ * OffHeapSessionStore stores them in place of the strings. It grows with
+ * the number of distinct exercise names, which is small next to the
+ * number of sessions; free-form names would grow it without limit.
+ * Exercises without a name are passed through uncached, and their name
+ * id is {@link #NO_NAME}.
+ *
+ * FitnessServiceImpl and the history decoders route exercises through
+ * {@link #global()}.
+ */
+public final class ExerciseCatalog {
+
+    /** Name id of a null name. */
+    public static final int NO_NAME = -1;
+
+    /** Default cap on cached exercise instances. */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 17;
+
+    private static final ExerciseCatalog GLOBAL = new ExerciseCatalog(DEFAULT_MAX_ENTRIES);
+
+    // Shallow sizes with compressed oops, used for the savings estimate
+    private static final int CARDIO_BYTES = 32;
+    private static final int STRENGTH_BYTES = 40;
+    private static final int STRING_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /** Identity of an exercise for canonicalisation; doubles compared by bits. */
+    private record Key(char kind, int nameId, int duration, long real, int a, int b) { }
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Integer> nameIds = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];     // id -> canonical name, grown under this
+    private final ConcurrentHashMap<Key, Exercise> exercises = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    public ExerciseCatalog() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ExerciseCatalog(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Entry limit cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public static ExerciseCatalog global() {
+        return GLOBAL;
+    }
+
+    // ----------------------------------------------------------------
+    // Names — interned to dense ids
+    // ----------------------------------------------------------------
+
+    /** Id of {@code name}, assigning the next free id on first sight; {@link #NO_NAME} for null. */
+    public int nameId(String name) {
+        if (name == null) return NO_NAME;
+        Integer id = nameIds.get(name);
+        if (id != null) return id;
+        synchronized (this) {
+            id = nameIds.get(name);
+            if (id != null) return id;
+            int next = nameIds.size();
+            if (next == names.length) {
+                names = Arrays.copyOf(names, next * 2);
+            }
+            names[next] = name;
+            nameIds.put(name, next); // published after the array slot is written
+            return next;
+        }
+    }
+
+    /** The canonical name for an id from {@link #nameId}. */
+    public String name(int id) {
+        if (id == NO_NAME) return null;
+        if (id < 0 || id >= nameIds.size()) {
+            throw new IllegalArgumentException("Unknown exercise name id " + id);
+        }
+        return names[id];
+    }
+
+    // ----------------------------------------------------------------
+    // Exercises — canonical shared instances
+    // ----------------------------------------------------------------
+    public CardioExercise cardio(String name, int duration, double distance, int heartRate) {
+        return cardio(null, name, duration, distance, heartRate);
+    }
+
+    public StrengthExercise strength(String name, int duration, int sets, int reps, double weight) {
+        return strength(null, name, duration, sets, reps, weight);
+    }
+
+    /** The shared instance equal to {@code exercise} (possibly {@code exercise} itself). */
+    public Exercise canonical(Exercise exercise) {
+        if (exercise instanceof CardioExercise c) {
+            return cardio(c, c.getName(), c.getDuration(), c.getDistance(), c.getHeartRate());
+        }
+        var s = (StrengthExercise) exercise;
+        return strength(s, s.getName(), s.getDuration(), s.getSets(), s.getReps(), s.getWeight());
+    }
+
+    /**
+     * {@code session} with every exercise replaced by its shared instance;
+     * the same session object when they already are.
+     */
+    public WorkoutSession canonical(WorkoutSession session) {
+        List<Exercise> original = session.exercises();
+        Exercise[] shared = null;
+        for (int i = 0; i < original.size(); i++) {
+            Exercise canonical = canonical(original.get(i));
+            if (canonical != original.get(i) && shared == null) {
+                shared = original.toArray(new Exercise[0]);
+            }
+            if (shared != null) shared[i] = canonical;
+        }
+        if (shared == null) return session;
+        return new WorkoutSession(session.sessionId(), session.date(), session.type(),
+                List.of(shared), session.totalDuration(), session.notes());
+    }
+
+    // original: the caller's instance when canonicalising one, null from the factories
+    private CardioExercise cardio(CardioExercise original, String name, int duration, double distance, int heartRate) {
+        if (name == null) {
+            requests.increment();
+            return original != null ? original : new CardioExercise(null, duration, distance, heartRate);
+        }
+        int id = nameId(name);
+        var key = new Key('C', id, duration, Double.doubleToLongBits(distance), heartRate, 0);
+        return (CardioExercise) lookup(key, original, name, id, CARDIO_BYTES,
+                () -> new CardioExercise(names[id], duration, distance, heartRate));
+    }
+
+    private StrengthExercise strength(StrengthExercise original, String name, int duration,
+                                      int sets, int reps, double weight) {
+        if (name == null) {
+            requests.increment();
+            return original != null ? original : new StrengthExercise(null, duration, sets, reps, weight);
+        }
+        int id = nameId(name);
+        var key = new Key('S', id, duration, Double.doubleToLongBits(weight), sets, reps);
+        return (StrengthExercise) lookup(key, original, name, id, STRENGTH_BYTES,
+                () -> new StrengthExercise(names[id], duration, sets, reps, weight));
+    }
+
+    private Exercise lookup(Key key, Exercise original, String name, int id, int objectBytes,
+                            Supplier<Exercise> create) {
+        requests.increment();
+        Exercise result = exercises.get(key);
+        boolean reused = result != null;
+        if (!reused) {
+            // Keep the caller's instance when it already carries the canonical name
+            Exercise fresh = original != null && original.getName() == names[id] ? original : create.get();
+            result = insert(key, fresh);
+            reused = result != fresh;
+        }
+        // Savings against storing what the caller passed: the object when an
+        // existing one is shared instead, the name String when it was a copy
+        long saved = 0;
+        if (reused && result != original) {
+            hits.increment();
+            saved += objectBytes;
+        }
+        if (name != names[id]) {
+            saved += stringBytes(name);
+        }
+        if (saved > 0) savedBytes.add(saved);
+        return result;
+    }
+
+    private Exercise insert(Key key, Exercise fresh) {
+        if (exercises.size() >= maxEntries) {
+            return fresh; // over the limit: canonical name, but not retained
+        }
+        var winner = exercises.putIfAbsent(key, fresh);
+        return winner == null ? fresh : winner;
+    }
+
+    private static long stringBytes(String s) {
+        // String object plus its Latin-1 byte[] (8-byte aligned)
+        return STRING_BYTES + ((ARRAY_HEADER_BYTES + s.length() + 7) & ~7);
+    }
+
+    // ----------------------------------------------------------------
+    // Heap report
+    // ----------------------------------------------------------------
+
+    /**
+     * @param names            distinct names interned
+     * @param entries          distinct exercise instances cached
+     * @param requests         exercises looked up
+     * @param hits             lookups answered with an existing instance
+     * @param savedBytes       estimated heap not allocated (or now collectable)
+     *                         thanks to shared instances and names
+     */
+    public record HeapReport(int names, int entries, long requests, long hits, long savedBytes) {
+        public double hitRate() {
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d names, %d shared exercises, %d lookups, %.1f%% reused, ~%.1f KB saved",
+                    names, entries, requests, hitRate() * 100, savedBytes / 1024.0);
+        }
+    }
+
+    public HeapReport heapReport() {
+        return new HeapReport(nameIds.size(), exercises.size(), requests.sum(), hits.sum(),
+                savedBytes.sum());
+    }
+
+    public int size() {
+        return exercises.size();
+    }
+}
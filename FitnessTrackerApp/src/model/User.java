@@ -3,8 +3,9 @@ package model;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Main User class demonstrating:
@@ -14,6 +15,10 @@ import java.util.List;
  * - LVTI (Local Variable Type Inference)
  * - Arrays
  * - Java Core API (String, StringBuilder, List/ArrayList, Date API)
+ *
+ * History and goal reads are lock-free and safe from any thread. Writers
+ * (addWorkoutSession/addWorkoutSessions) must be serialised per user —
+ * ConcurrentFitnessServiceImpl does this with striped locks.
  */
 public class User {
     // Private fields demonstrating encapsulation
@@ -22,8 +27,11 @@ public class User {
     private int age;
     private double weight; // in kg
     private double height; // in cm
-    private List<WorkoutSession> workoutHistory;
-    private List<FitnessGoal> goals;
+    private final WorkoutHistoryStore workoutHistory; // columnar, see WorkoutHistoryStore
+    private final WorkoutTotals totals;               // maintained on every insert
+    private final WorkoutRollups rollups;             // day/week/month buckets, maintained on every insert
+    private final WorkoutDistributions distributions; // duration/calorie quantile sketches
+    private volatile List<FitnessGoal> goals; // immutable, replaced on write
     private NutritionPlan nutritionPlan;
 
     // Constructor 1 - basic (demonstrating this())
@@ -43,8 +51,11 @@ public class User {
         this.age = age;
         this.weight = weight;
         this.height = height;
-        this.workoutHistory = new ArrayList<>();
-        this.goals = new ArrayList<>();
+        this.workoutHistory = new WorkoutHistoryStore();
+        this.totals = new WorkoutTotals();
+        this.rollups = new WorkoutRollups();
+        this.distributions = new WorkoutDistributions();
+        this.goals = List.of();
     }
 
     // Encapsulation - getters and setters
@@ -89,11 +100,11 @@ public class User {
     }
 
     public List<WorkoutSession> getWorkoutHistory() {
-        return new ArrayList<>(workoutHistory); // Defensive copy
+        return workoutHistory.snapshot(); // O(1) immutable snapshot, stable under appends
     }
 
     public List<FitnessGoal> getGoals() {
-        return new ArrayList<>(goals); // Defensive copy
+        return goals; // already immutable — no copy needed
     }
 
     public NutritionPlan getNutritionPlan() {
@@ -106,14 +117,36 @@ public class User {
 
     // Method overloading - addWorkoutSession
     public void addWorkoutSession(WorkoutSession session) {
-        this.workoutHistory.add(session);
+        append(session);
+        verifyTotals();
+    }
+
+    // Read-only access to the columnar store for aggregate-heavy callers
+    public WorkoutHistoryStore getHistoryStore() {
+        return workoutHistory;
     }
 
     // Overloaded version with varargs
     public void addWorkoutSessions(WorkoutSession... sessions) {
         // Demonstrating varargs and LVTI
-        var sessionList = Arrays.asList(sessions);
-        this.workoutHistory.addAll(sessionList);
+        for (var session : sessions) {
+            append(session);
+        }
+        verifyTotals();
+    }
+
+    private void append(WorkoutSession session) {
+        double calories = session.calculateTotalCalories();
+        this.workoutHistory.add(session, calories);
+        this.totals.record(session, calories);
+        this.rollups.record(session, calories);
+        this.distributions.record(session, calories);
+    }
+
+    private void verifyTotals() {
+        if (WorkoutTotals.VERIFY) {
+            totals.verifyAgainst(workoutHistory);
+        }
     }
 
     // Method demonstrating StringBuilder and String API
@@ -140,50 +173,96 @@ public class User {
         return weight / (heightInMeters * heightInMeters);
     }
 
-    // Method using List/ArrayList
+    // Latest sessions by date (not insertion order), oldest first
     public List<WorkoutSession> getRecentWorkouts(int count) {
-        var size = workoutHistory.size();
-        var startIndex = Math.max(0, size - count);
-        return new ArrayList<>(workoutHistory.subList(startIndex, size));
+        return workoutHistory.mostRecent(count);
     }
 
-    // Method demonstrating Date API
+    // Method demonstrating Date API — served from the date index, ordered by date
     public List<WorkoutSession> getWorkoutsInDateRange(LocalDate startDate, LocalDate endDate) {
-        var result = new ArrayList<WorkoutSession>();
-        for (var session : workoutHistory) {
-            if (!session.date().isBefore(startDate) && !session.date().isAfter(endDate)) {
-                result.add(session);
-            }
+        return workoutHistory.inDayRange(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    // Structured query — lazily streamed, pruned by totals, date index and columns
+    public Stream<WorkoutSession> queryWorkouts(WorkoutQuery query) {
+        return excludedByTotals(query) ? Stream.empty() : workoutHistory.query(query);
+    }
+
+    // Paged form of queryWorkouts; pass page.next() back in for the following page
+    public WorkoutPage queryWorkouts(WorkoutQuery query, WorkoutPage.Cursor after) {
+        return excludedByTotals(query) ? new WorkoutPage(List.of(), null) : workoutHistory.page(query, after);
+    }
+
+    // No session of any requested type exists — nothing to scan
+    private boolean excludedByTotals(WorkoutQuery query) {
+        if (query.getTypes().isEmpty()) return false;
+        for (WorkoutType type : query.getTypes()) {
+            if (totals.getSessionCount(type) > 0) return false;
         }
-        return result;
+        return true;
     }
 
-    // Method using arrays
+    // Method using arrays — calories for the current calendar year, 12 months, 0-indexed
     public double[] getMonthlyCaloriesBurned() {
-        var monthlyCalories = new double[12]; // Array for 12 months
-        
-        for (var session : workoutHistory) {
-            int month = session.date().getMonthValue() - 1; // 0-indexed
-            monthlyCalories[month] += session.calculateTotalCalories();
-        }
-        
-        return monthlyCalories;
+        return getMonthlyCaloriesBurned(LocalDate.now().getYear());
+    }
+
+    public double[] getMonthlyCaloriesBurned(int year) {
+        return rollups.monthlyCalories(year); // 12 bucket reads, no history scan
     }
 
-    public void addGoal(FitnessGoal goal) {
-        this.goals.add(goal);
+    // Day, ISO-week and month buckets for calendar charts and trend queries
+    public WorkoutRollups getRollups() {
+        return rollups;
+    }
+
+    // Copy-on-write: goals are few and rarely added, but read on every profile view
+    public synchronized void addGoal(FitnessGoal goal) {
+        var updated = new ArrayList<>(goals);
+        updated.add(goal);
+        this.goals = List.copyOf(updated);
     }
 
     public long getTotalWorkoutDuration() {
-        return workoutHistory.stream()
-            .mapToLong(WorkoutSession::totalDuration)
-            .sum();
+        return totals.getTotalDuration(); // O(1) running total
     }
 
     public double getTotalCaloriesBurned() {
-        return workoutHistory.stream()
-            .mapToDouble(WorkoutSession::calculateTotalCalories)
-            .sum();
+        return totals.getTotalCalories(); // O(1) running total
+    }
+
+    public int getSessionCount(WorkoutType type) {
+        return totals.getSessionCount(type);
+    }
+
+    // Served from the per-type index — other types' sessions are never read
+    public List<WorkoutSession> getWorkoutsByType(WorkoutType type) {
+        return workoutHistory.ofType(type);
+    }
+
+    public double getCaloriesBurned(WorkoutType type) {
+        return workoutHistory.caloriesOf(type);
+    }
+
+    public Map<WorkoutType, Double> getCaloriesByType() {
+        return workoutHistory.caloriesByType();
+    }
+
+    public double getTotalStrengthVolume() {
+        return totals.getStrengthVolume();
+    }
+
+    public double getTotalCardioDistance() {
+        return totals.getCardioDistance();
+    }
+
+    public WorkoutTotals getTotals() {
+        return totals;
+    }
+
+    // p50/p90/p99 of duration and calories without sorting the history
+    public WorkoutDistributions getDistributions() {
+        return distributions;
     }
 
     @Override
@@ -0,0 +1,77 @@
+package model;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Date-ordered index over the rows of a WorkoutHistoryStore.
+ *
+ * Keys are (epoch day, sessionId, row) so the order is by session date
+ * regardless of insertion order — backfilled sessions land in the right
+ * place. The row number breaks ties between duplicate session ids.
+ * Range lookups are O(log n + k) and never block on concurrent inserts.
+ */
+final class WorkoutDateIndex {
+
+    record DateKey(int epochDay, String sessionId, int row) implements Comparable<DateKey> {
+        @Override
+        public int compareTo(DateKey other) {
+            int byDay = Integer.compare(epochDay, other.epochDay);
+            if (byDay != 0) return byDay;
+            int byId = sessionId.compareTo(other.sessionId);
+            if (byId != 0) return byId;
+            return Integer.compare(row, other.row);
+        }
+
+        // Sorts before every real key on the given day (session ids are never blank)
+        static DateKey lowerBound(int epochDay) {
+            return new DateKey(epochDay, "", -1);
+        }
+    }
+
+    // Skip list so readers can walk the index while the writer inserts
+    private final NavigableSet<DateKey> keys = new ConcurrentSkipListSet<>();
+
+    void add(int epochDay, String sessionId, int row) {
+        keys.add(new DateKey(epochDay, sessionId, row));
+    }
+
+    /** Keys with epoch day in [fromDay, toDay], ascending by date. */
+    NavigableSet<DateKey> range(long fromDay, long toDay) {
+        return range(fromDay, toDay, null, false);
+    }
+
+    /**
+     * Keys with epoch day in [fromDay, toDay] that come strictly after
+     * {@code after} (when given) in the requested direction — the resume
+     * point for paged queries.
+     */
+    NavigableSet<DateKey> range(long fromDay, long toDay, DateKey after, boolean newestFirst) {
+        // Stored days are int-sized; callers may pass LocalDate.MIN/MAX or open (Long) bounds
+        if (fromDay > toDay || fromDay > Integer.MAX_VALUE || toDay < Integer.MIN_VALUE) {
+            return Collections.emptyNavigableSet();
+        }
+        DateKey lo = DateKey.lowerBound((int) Math.max(Integer.MIN_VALUE, fromDay));
+        DateKey hi = toDay >= Integer.MAX_VALUE ? null : DateKey.lowerBound((int) toDay + 1); // exclusive
+        if (!newestFirst) {
+            boolean loInclusive = true;
+            if (after != null && after.compareTo(lo) >= 0) {
+                lo = after;
+                loInclusive = false;
+            }
+            if (hi != null && lo.compareTo(hi) >= 0) return Collections.emptyNavigableSet();
+            return hi == null ? keys.tailSet(lo, loInclusive) : keys.subSet(lo, loInclusive, hi, false);
+        }
+        if (after != null && (hi == null || after.compareTo(hi) < 0)) {
+            hi = after;
+        }
+        if (hi != null && hi.compareTo(lo) <= 0) return Collections.emptyNavigableSet();
+        return (hi == null ? keys.tailSet(lo, true) : keys.subSet(lo, true, hi, false)).descendingSet();
+    }
+
+    /** All keys, newest date first. */
+    NavigableSet<DateKey> newestFirst() {
+        return keys.descendingSet();
+    }
+}
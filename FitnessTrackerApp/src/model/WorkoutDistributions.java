@@ -0,0 +1,47 @@
+package model;
+
+import sketch.QuantileSketch;
+
+/**
+ * Per-user distributions of session duration and calories, kept as
+ * bounded-memory quantile sketches and updated on every insert.
+ *
+ * Unlike WorkoutTotals these are not lock-free: a sketch reorganises its
+ * buffers as it compacts, so the single writer and readers share this
+ * object's monitor. Reads hand out copies (or merge into the caller's
+ * sketch) and never see a half-compacted state.
+ */
+public final class WorkoutDistributions {
+
+    private final QuantileSketch duration = new QuantileSketch();
+    private final QuantileSketch calories = new QuantileSketch();
+
+    // Called once per session — calories are passed in so they are only computed once
+    synchronized void record(WorkoutSession session, double sessionCalories) {
+        duration.update(session.totalDuration());
+        if (!Double.isNaN(sessionCalories)) { // unordered, so it has no rank; the session itself is still kept
+            calories.update(sessionCalories);
+        }
+    }
+
+    /** Copy of the session-duration sketch (minutes). */
+    public synchronized QuantileSketch getDurationSketch() {
+        return duration.copy();
+    }
+
+    /** Copy of the session-calories sketch (kcal); sessions with NaN calories are not in it. */
+    public synchronized QuantileSketch getCalorieSketch() {
+        return calories.copy();
+    }
+
+    /** Folds this user's sketches into fleet-level ones without copying. */
+    public synchronized void mergeInto(QuantileSketch durationTarget, QuantileSketch caloriesTarget) {
+        durationTarget.merge(duration);
+        caloriesTarget.merge(calories);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WorkoutDistributions[duration=" + duration + ", calories=" + calories + "]";
+    }
+}
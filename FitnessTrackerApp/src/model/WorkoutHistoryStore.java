@@ -0,0 +1,520 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Columnar storage for a single user's workout history.
+ *
+ * Each session is one row spread across parallel primitive arrays
+ * (epoch day, WorkoutType ordinal, duration, precomputed calories), so
+ * aggregate queries run as tight loops over primitives instead of walking
+ * boxed records. The original WorkoutSession is kept in a side column and
+ * is only touched when a caller actually asks for the record.
+ * A WorkoutDateIndex keeps the rows ordered by session date for range and
+ * recency queries, independent of insertion order, and a WorkoutTypeIndex
+ * buckets them by WorkoutType with running per-type sums, so per-type
+ * listing and totals never touch sessions of other types.
+ *
+ * Writes must come from one thread at a time (the owning User/service
+ * serialises them); any number of readers may run concurrently without
+ * locking.
+ */
+public final class WorkoutHistoryStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    /**
+     * Immutable view of the columns: rows below {@code size} never change.
+     * The writer fills the next row beyond {@code size} (or in freshly grown
+     * copies) and then publishes a new Columns through the volatile field,
+     * so readers need no lock and always see a consistent prefix.
+     */
+    private static final class Columns {
+        final int[] epochDays;
+        final byte[] typeOrdinals;
+        final int[] durations;
+        final double[] calories;
+        final WorkoutSession[] sessions;
+        final int size;
+        final WorkoutTypeIndex byType;   // published with the rows it covers
+
+        Columns(int[] epochDays, byte[] typeOrdinals, int[] durations,
+                double[] calories, WorkoutSession[] sessions, int size, WorkoutTypeIndex byType) {
+            this.epochDays = epochDays;
+            this.typeOrdinals = typeOrdinals;
+            this.durations = durations;
+            this.calories = calories;
+            this.sessions = sessions;
+            this.size = size;
+            this.byType = byType;
+        }
+
+        Columns grow(int newCapacity) {
+            return new Columns(
+                Arrays.copyOf(epochDays, newCapacity),
+                Arrays.copyOf(typeOrdinals, newCapacity),
+                Arrays.copyOf(durations, newCapacity),
+                Arrays.copyOf(calories, newCapacity),
+                Arrays.copyOf(sessions, newCapacity),
+                size,
+                byType);
+        }
+
+        Columns withRow(int newSize, WorkoutTypeIndex newByType) {
+            return new Columns(epochDays, typeOrdinals, durations, calories, sessions, newSize, newByType);
+        }
+
+        int checkRow(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+            }
+            return row;
+        }
+    }
+
+    /** Read-only list over a published sessions column; no copying. */
+    private static final class Snapshot extends AbstractList<WorkoutSession> implements RandomAccess {
+        private final WorkoutSession[] sessions;
+        private final int size;
+
+        Snapshot(WorkoutSession[] sessions, int size) {
+            this.sessions = sessions;
+            this.size = size;
+        }
+
+        @Override
+        public WorkoutSession get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return sessions[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.copyOf(sessions, size, Object[].class);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] target) {
+            if (target.length < size) {
+                return (T[]) Arrays.copyOf(sessions, size, target.getClass());
+            }
+            System.arraycopy(sessions, 0, target, 0, size);
+            if (target.length > size) {
+                target[size] = null;
+            }
+            return target;
+        }
+    }
+
+    private volatile Columns columns;
+    private final WorkoutDateIndex dateIndex = new WorkoutDateIndex();
+
+    public WorkoutHistoryStore() {
+        this.columns = new Columns(
+            new int[INITIAL_CAPACITY],
+            new byte[INITIAL_CAPACITY],
+            new int[INITIAL_CAPACITY],
+            new double[INITIAL_CAPACITY],
+            new WorkoutSession[INITIAL_CAPACITY],
+            0,
+            WorkoutTypeIndex.empty());
+    }
+
+    // ----------------------------------------------------------------
+    // Writes — single writer per store; the owner serialises callers
+    // ----------------------------------------------------------------
+    void add(WorkoutSession session, double sessionCalories) {
+        var c = columns;
+        int row = c.size;
+        if (row == c.sessions.length) {
+            c = c.grow(row + (row >> 1) + 1);
+        }
+        int epochDay = Math.toIntExact(session.date().toEpochDay());
+        int type = session.type().ordinal();
+        c.epochDays[row] = epochDay;
+        c.typeOrdinals[row] = (byte) type;
+        c.durations[row] = session.totalDuration();
+        c.calories[row] = sessionCalories; // computed once by the caller, on insert
+        c.sessions[row] = session;
+        var byType = c.byType.with(type, row, sessionCalories, session.totalDuration());
+        columns = c.withRow(row + 1, byType); // publish the new row to readers
+        dateIndex.add(epochDay, session.sessionId(), row);
+    }
+
+    // ----------------------------------------------------------------
+    // Row access — lock-free reads against the published columns
+    // ----------------------------------------------------------------
+    public int size() {
+        return columns.size;
+    }
+
+    public WorkoutSession get(int row) {
+        var c = columns;
+        return c.sessions[c.checkRow(row)];
+    }
+
+    public long epochDayAt(int row) {
+        var c = columns;
+        return c.epochDays[c.checkRow(row)];
+    }
+
+    public WorkoutType typeAt(int row) {
+        var c = columns;
+        return TYPES[c.typeOrdinals[c.checkRow(row)]];
+    }
+
+    public int durationAt(int row) {
+        var c = columns;
+        return c.durations[c.checkRow(row)];
+    }
+
+    public double caloriesAt(int row) {
+        var c = columns;
+        return c.calories[c.checkRow(row)];
+    }
+
+    // ----------------------------------------------------------------
+    // Materialisation — records are only built into lists on request
+    // ----------------------------------------------------------------
+
+    /**
+     * O(1) immutable view of the history as it is right now. Later appends
+     * never show up in (or disturb) an existing snapshot, because rows below
+     * the captured size are never rewritten.
+     */
+    public List<WorkoutSession> snapshot() {
+        var c = columns;
+        return c.size == 0 ? List.of() : new Snapshot(c.sessions, c.size);
+    }
+
+    public List<WorkoutSession> toList() {
+        var c = columns;
+        return new ArrayList<>(Arrays.asList(c.sessions).subList(0, c.size));
+    }
+
+    public List<WorkoutSession> copyRange(int fromRow, int toRow) {
+        var c = columns;
+        if (fromRow < 0 || toRow > c.size || fromRow > toRow) {
+            throw new IndexOutOfBoundsException(
+                "Range [" + fromRow + ", " + toRow + ") out of bounds for size " + c.size);
+        }
+        return new ArrayList<>(Arrays.asList(c.sessions).subList(fromRow, toRow));
+    }
+
+    // ----------------------------------------------------------------
+    // Aggregates — tight loops over primitive columns
+    // ----------------------------------------------------------------
+    public double sumCalories() {
+        var c = columns;
+        double[] calories = c.calories;
+        double total = 0;
+        for (int i = 0; i < c.size; i++) {
+            total += calories[i];
+        }
+        return total;
+    }
+
+    public long sumDuration() {
+        var c = columns;
+        int[] durations = c.durations;
+        long total = 0;
+        for (int i = 0; i < c.size; i++) {
+            total += durations[i];
+        }
+        return total;
+    }
+
+    // Full scan; User reads WorkoutRollups instead and this stays as the reference
+    public double[] caloriesByMonth(int year) {
+        var c = columns;
+        var monthly = new double[12];
+        for (int i = 0; i < c.size; i++) {
+            var date = LocalDate.ofEpochDay(c.epochDays[i]);
+            if (date.getYear() == year) {
+                monthly[date.getMonthValue() - 1] += c.calories[i];
+            }
+        }
+        return monthly;
+    }
+
+    // ----------------------------------------------------------------
+    // Per-type queries — served from the type index; O(1) totals, and
+    // listing cost proportional to that type's sessions only
+    // ----------------------------------------------------------------
+    public int countOf(WorkoutType type) {
+        return columns.byType.count(type.ordinal());
+    }
+
+    public double caloriesOf(WorkoutType type) {
+        return columns.byType.calories(type.ordinal());
+    }
+
+    public long durationOf(WorkoutType type) {
+        return columns.byType.minutes(type.ordinal());
+    }
+
+    /** Calories per type, only for types that occur — no session is read. */
+    public Map<WorkoutType, Double> caloriesByType() {
+        var index = columns.byType;
+        var map = new EnumMap<WorkoutType, Double>(WorkoutType.class);
+        for (var type : TYPES) {
+            if (index.count(type.ordinal()) > 0) {
+                map.put(type, index.calories(type.ordinal()));
+            }
+        }
+        return map;
+    }
+
+    /** Immutable view of this type's sessions, in insertion order. */
+    public List<WorkoutSession> ofType(WorkoutType type) {
+        var c = columns;
+        int n = c.byType.count(type.ordinal());
+        if (n == 0) return List.of();
+        int[] rows = c.byType.bucket(type.ordinal());
+        WorkoutSession[] sessions = c.sessions;
+        return new TypeView(rows, sessions, n);
+    }
+
+    /** Read-only list over one type bucket of a published snapshot. */
+    private static final class TypeView extends AbstractList<WorkoutSession> implements RandomAccess {
+        private final int[] rows;
+        private final WorkoutSession[] sessions;
+        private final int size;
+
+        TypeView(int[] rows, WorkoutSession[] sessions, int size) {
+            this.rows = rows;
+            this.sessions = sessions;
+            this.size = size;
+        }
+
+        @Override
+        public WorkoutSession get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return sessions[rows[index]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // ----------------------------------------------------------------
+    // Date-ordered queries — served from the index, O(log n + k).
+    // Index keys can run ahead of the columns read at the start of a
+    // query; rows beyond that snapshot are skipped so results stay
+    // consistent with a single point in time.
+    // ----------------------------------------------------------------
+
+    /** Sessions whose date lies in [fromEpochDay, toEpochDay], oldest first. */
+    public List<WorkoutSession> inDayRange(long fromEpochDay, long toEpochDay) {
+        var c = columns;
+        var result = new ArrayList<WorkoutSession>();
+        for (var key : dateIndex.range(fromEpochDay, toEpochDay)) {
+            if (key.row() < c.size) {
+                result.add(c.sessions[key.row()]);
+            }
+        }
+        return result;
+    }
+
+    /** The {@code count} latest sessions by date, returned oldest first. */
+    public List<WorkoutSession> mostRecent(int count) {
+        var c = columns;
+        var result = new ArrayList<WorkoutSession>(Math.max(0, Math.min(count, c.size)));
+        var it = dateIndex.newestFirst().iterator();
+        while (result.size() < count && it.hasNext()) {
+            int row = it.next().row();
+            if (row < c.size) {
+                result.add(c.sessions[row]);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // ----------------------------------------------------------------
+    // Structured queries — see WorkoutQuery. Date-ordered queries walk
+    // only the date index's [from, to] slice; insertion-order queries scan
+    // the requested types' buckets (or every row when no type is given).
+    // Either way type/duration/calorie clauses are checked on primitives
+    // first and a record is only touched if they all pass.
+    // ----------------------------------------------------------------
+
+    /** Lazily streams matching sessions in the query's order, up to its limit. */
+    public Stream<WorkoutSession> query(WorkoutQuery query) {
+        return query(query, null);
+    }
+
+    /** As {@link #query(WorkoutQuery)}, resuming after {@code after} (null = from the start). */
+    public Stream<WorkoutSession> query(WorkoutQuery query, WorkoutPage.Cursor after) {
+        var matches = new QueryIterator(columns, query, after);
+        Stream<WorkoutSession> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                matches, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        return query.getLimit() > 0 ? stream.limit(query.getLimit()) : stream;
+    }
+
+    /**
+     * One page of results, sized by the query's limit (or
+     * {@link WorkoutQuery#DEFAULT_PAGE_SIZE}); pass the returned cursor back
+     * in for the next page.
+     */
+    public WorkoutPage page(WorkoutQuery query, WorkoutPage.Cursor after) {
+        int pageSize = query.getLimit() > 0 ? query.getLimit() : WorkoutQuery.DEFAULT_PAGE_SIZE;
+        var matches = new QueryIterator(columns, query, after);
+        var sessions = new ArrayList<WorkoutSession>(Math.min(pageSize, 64));
+        WorkoutPage.Cursor last = null;
+        while (sessions.size() < pageSize && matches.hasNext()) {
+            sessions.add(matches.next());
+            last = matches.cursor();
+        }
+        return new WorkoutPage(sessions, matches.hasNext() ? last : null);
+    }
+
+    private final class QueryIterator implements Iterator<WorkoutSession> {
+        private final Columns c;
+        private final WorkoutQuery query;
+        private final Iterator<WorkoutDateIndex.DateKey> keys; // null = scan rows in insertion order
+        private final int[][] buckets;   // insertion order restricted to types: one bucket per type
+        private final int[] bucketSizes;
+        private final int[] bucketPos;
+        private int nextRow;
+        private WorkoutSession pending;
+        private WorkoutPage.Cursor pendingCursor;
+        private WorkoutPage.Cursor cursor;
+
+        QueryIterator(Columns c, WorkoutQuery query, WorkoutPage.Cursor after) {
+            this.c = c;
+            this.query = query;
+            if (query.getOrder() == WorkoutQuery.Order.INSERTION) {
+                this.keys = null;
+                this.nextRow = after == null ? 0 : after.row() + 1;
+                if (query.getTypes().isEmpty()) {
+                    this.buckets = null;
+                    this.bucketSizes = null;
+                    this.bucketPos = null;
+                } else {
+                    int k = query.getTypes().size();
+                    this.buckets = new int[k][];
+                    this.bucketSizes = new int[k];
+                    this.bucketPos = new int[k];
+                    int b = 0;
+                    for (WorkoutType type : query.getTypes()) {
+                        buckets[b] = c.byType.bucket(type.ordinal());
+                        bucketSizes[b] = c.byType.count(type.ordinal());
+                        // Buckets are in row order, so resuming is a binary search
+                        int pos = Arrays.binarySearch(buckets[b], 0, bucketSizes[b], nextRow);
+                        bucketPos[b] = pos >= 0 ? pos : -pos - 1;
+                        b++;
+                    }
+                }
+            } else {
+                this.buckets = null;
+                this.bucketSizes = null;
+                this.bucketPos = null;
+                var resume = after == null ? null
+                        : new WorkoutDateIndex.DateKey(after.epochDay(), after.sessionId(), after.row());
+                this.keys = dateIndex.range(query.fromDay(), query.toDay(), resume,
+                        query.getOrder() == WorkoutQuery.Order.NEWEST_FIRST).iterator();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (pending == null) advance();
+            return pending != null;
+        }
+
+        @Override
+        public WorkoutSession next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            var session = pending;
+            pending = null;
+            cursor = pendingCursor;
+            return session;
+        }
+
+        /** Cursor of the session last returned by next(). */
+        WorkoutPage.Cursor cursor() {
+            return cursor;
+        }
+
+        private void advance() {
+            if (buckets != null) {
+                int row;
+                while ((row = nextBucketRow()) >= 0) {
+                    if (accept(row)) {
+                        pendingCursor = new WorkoutPage.Cursor(c.epochDays[row], pending.sessionId(), row);
+                        return;
+                    }
+                }
+                return;
+            }
+            if (keys == null) {
+                while (nextRow < c.size) {
+                    int row = nextRow++;
+                    if (accept(row)) {
+                        pendingCursor = new WorkoutPage.Cursor(c.epochDays[row], pending.sessionId(), row);
+                        return;
+                    }
+                }
+                return;
+            }
+            while (keys.hasNext()) {
+                var key = keys.next();
+                // keys can run ahead of the captured columns; skip rows beyond them
+                if (key.row() < c.size && accept(key.row())) {
+                    pendingCursor = new WorkoutPage.Cursor(key.epochDay(), key.sessionId(), key.row());
+                    return;
+                }
+            }
+        }
+
+        // Smallest unread row across the type buckets (a k-way merge, k <= types)
+        private int nextBucketRow() {
+            int best = -1;
+            for (int b = 0; b < buckets.length; b++) {
+                if (bucketPos[b] < bucketSizes[b]
+                        && (best < 0 || buckets[b][bucketPos[b]] < buckets[best][bucketPos[best]])) {
+                    best = b;
+                }
+            }
+            return best < 0 ? -1 : buckets[best][bucketPos[best]++];
+        }
+
+        private boolean accept(int row) {
+            if (!query.matchesColumns(c.epochDays[row], c.typeOrdinals[row], c.durations[row], c.calories[row])) {
+                return false;
+            }
+            var session = c.sessions[row];
+            if (!query.matchesRecord(session)) return false;
+            pending = session;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package model;
+
+import java.util.List;
+
+/**
+ * One page of WorkoutQuery results plus the cursor for the next page
+ * (null on the last page).
+ *
+ * Cursors point at the last session returned rather than at an offset, so
+ * sessions added between page requests never shift or repeat results.
+ */
+public record WorkoutPage(List<WorkoutSession> sessions, Cursor next) {
+
+    /** Position after a returned session: its date key, and its row for insertion order. */
+    public record Cursor(int epochDay, String sessionId, int row) { }
+
+    public WorkoutPage {
+        sessions = List.copyOf(sessions);
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
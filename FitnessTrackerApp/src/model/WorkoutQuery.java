@@ -0,0 +1,328 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Structured workout query: date range, workout types, calorie and
+ * duration bounds, exercise name, ordering, page size and an optional
+ * residual predicate.
+ *
+ * Unlike an opaque lambda, every clause except the residual is visible to
+ * the history store, which prunes with it before touching a record: the
+ * date range goes to the date index, type/calorie/duration bounds are
+ * checked against the primitive columns, and per-type totals rule out
+ * whole histories. Only surviving rows are materialised and handed to the
+ * exercise-name check and residual predicate.
+ *
+ * It is also a Predicate, so it can be passed anywhere a
+ * {@code Predicate<WorkoutSession>} is expected. As a predicate it only
+ * filters: {@link #test} ignores order and limit. Those take effect only
+ * when the query object itself reaches the history store — through
+ * queryWorkouts, or filterWorkouts, which recognises a WorkoutQuery and
+ * pushes it down. A composed or wrapped predicate ({@code query.and(p)},
+ * {@code query::test}) is an opaque lambda again: it filters the same
+ * way but comes back unlimited, in insertion order.
+ *
+ * A calorie bound that is not set does not check calories at all, so
+ * {@link #all()} also keeps sessions whose calories are negative or NaN.
+ *
+ * <pre>
+ *   var query = WorkoutQuery.builder()
+ *       .between(today.minusDays(6), today)
+ *       .types(WorkoutType.CARDIO)
+ *       .order(WorkoutQuery.Order.NEWEST_FIRST)
+ *       .limit(20)
+ *       .build();
+ * </pre>
+ */
+public final class WorkoutQuery implements Predicate<WorkoutSession> {
+
+    public enum Order {
+        /** By session date, oldest first (ties by session id). */
+        OLDEST_FIRST,
+        /** By session date, newest first. */
+        NEWEST_FIRST,
+        /** The order sessions were added in. */
+        INSERTION
+    }
+
+    /** Page size used when no limit is set and a page is requested. */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final WorkoutQuery ALL = builder().build();
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Set<WorkoutType> types;     // empty = every type
+    private final double minCalories;
+    private final double maxCalories;
+    private final boolean caloriesBounded;   // false = neither bound set
+    private final int minDuration;
+    private final int maxDuration;
+    private final String exerciseName;        // null = any
+    private final Predicate<? super WorkoutSession> residual; // null = none
+    private final Order order;
+    private final int limit;                  // 0 = unlimited
+    private final int typeMask;               // bit per WorkoutType ordinal
+
+    private WorkoutQuery(Builder b) {
+        this.from = b.from;
+        this.to = b.to;
+        this.types = b.types.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(b.types));
+        this.minCalories = b.minCalories;
+        this.maxCalories = b.maxCalories;
+        this.caloriesBounded = minCalories != Double.NEGATIVE_INFINITY || maxCalories != Double.POSITIVE_INFINITY;
+        this.minDuration = b.minDuration;
+        this.maxDuration = b.maxDuration;
+        this.exerciseName = b.exerciseName;
+        this.residual = b.residual;
+        this.order = b.order;
+        this.limit = b.limit;
+        int mask = 0;
+        for (WorkoutType type : types) {
+            mask |= 1 << type.ordinal();
+        }
+        this.typeMask = types.isEmpty() ? -1 : mask;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Every session, oldest first, unlimited. */
+    public static WorkoutQuery all() {
+        return ALL;
+    }
+
+    // ----------------------------------------------------------------
+    // Accessors
+    // ----------------------------------------------------------------
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public Set<WorkoutType> getTypes() {
+        return types;
+    }
+
+    /** Lower calorie bound; negative infinity when unset. */
+    public double getMinCalories() {
+        return minCalories;
+    }
+
+    /** Upper calorie bound; positive infinity when unset. */
+    public double getMaxCalories() {
+        return maxCalories;
+    }
+
+    public int getMinDuration() {
+        return minDuration;
+    }
+
+    public int getMaxDuration() {
+        return maxDuration;
+    }
+
+    public String getExerciseName() {
+        return exerciseName;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /** Maximum results (and page size); 0 means unlimited. */
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasDateRange() {
+        return from != null || to != null;
+    }
+
+    /** First epoch day in range (Long.MIN_VALUE when open). */
+    long fromDay() {
+        return from == null ? Long.MIN_VALUE : from.toEpochDay();
+    }
+
+    /** Last epoch day in range (Long.MAX_VALUE when open). */
+    long toDay() {
+        return to == null ? Long.MAX_VALUE : to.toEpochDay();
+    }
+
+    boolean includesType(int ordinal) {
+        return (typeMask & (1 << ordinal)) != 0;
+    }
+
+    // ----------------------------------------------------------------
+    // Matching — split so the store can test columns before records
+    // ----------------------------------------------------------------
+
+    /** Clauses answerable from the primitive columns alone. */
+    boolean matchesColumns(long epochDay, int typeOrdinal, int duration, double calories) {
+        return epochDay >= fromDay() && epochDay <= toDay()
+                && includesType(typeOrdinal)
+                && duration >= minDuration && duration <= maxDuration
+                && (!caloriesBounded || calories >= minCalories && calories <= maxCalories);
+    }
+
+    /** Clauses that need the full record: exercise name and the residual predicate. */
+    boolean matchesRecord(WorkoutSession session) {
+        if (exerciseName != null) {
+            boolean found = false;
+            for (Exercise exercise : session.exercises()) {
+                if (exerciseName.equalsIgnoreCase(exercise.getName())) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return residual == null || residual.test(session);
+    }
+
+    /**
+     * Full filter check against a standalone session (computes its
+     * calories). Order and limit are not part of it; see the class doc.
+     */
+    @Override
+    public boolean test(WorkoutSession session) {
+        return matchesColumns(session.date().toEpochDay(), session.type().ordinal(),
+                session.totalDuration(), session.calculateTotalCalories())
+                && matchesRecord(session);
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("WorkoutQuery[");
+        if (hasDateRange()) sb.append("dates=").append(from).append("..").append(to).append(", ");
+        if (!types.isEmpty()) sb.append("types=").append(types).append(", ");
+        if (minCalories > Double.NEGATIVE_INFINITY) sb.append("calories>=").append(minCalories).append(", ");
+        if (maxCalories < Double.POSITIVE_INFINITY) sb.append("calories<=").append(maxCalories).append(", ");
+        if (minDuration > 0) sb.append("minutes>=").append(minDuration).append(", ");
+        if (maxDuration < Integer.MAX_VALUE) sb.append("minutes<=").append(maxDuration).append(", ");
+        if (exerciseName != null) sb.append("exercise=").append(exerciseName).append(", ");
+        if (residual != null) sb.append("residual, ");
+        sb.append("order=").append(order);
+        if (limit > 0) sb.append(", limit=").append(limit);
+        return sb.append(']').toString();
+    }
+
+    // ----------------------------------------------------------------
+    // Builder
+    // ----------------------------------------------------------------
+    public static final class Builder {
+        private LocalDate from;
+        private LocalDate to;
+        private final Set<WorkoutType> types = EnumSet.noneOf(WorkoutType.class);
+        private double minCalories = Double.NEGATIVE_INFINITY; // unset: calories not checked
+        private double maxCalories = Double.POSITIVE_INFINITY;
+        private int minDuration = 0;
+        private int maxDuration = Integer.MAX_VALUE;
+        private String exerciseName;
+        private Predicate<? super WorkoutSession> residual;
+        private Order order = Order.OLDEST_FIRST;
+        private int limit;
+
+        private Builder() { }
+
+        /** Sessions dated in [from, to], both inclusive. */
+        public Builder between(LocalDate from, LocalDate to) {
+            return onOrAfter(from).onOrBefore(to);
+        }
+
+        public Builder onOrAfter(LocalDate from) {
+            this.from = Objects.requireNonNull(from, "from");
+            return this;
+        }
+
+        public Builder onOrBefore(LocalDate to) {
+            this.to = Objects.requireNonNull(to, "to");
+            return this;
+        }
+
+        /** Restricts to these types; may be called repeatedly to add more. */
+        public Builder types(WorkoutType... types) {
+            Collections.addAll(this.types, types);
+            return this;
+        }
+
+        public Builder minCalories(double calories) {
+            this.minCalories = requireNumber(calories);
+            return this;
+        }
+
+        public Builder maxCalories(double calories) {
+            this.maxCalories = requireNumber(calories);
+            return this;
+        }
+
+        private static double requireNumber(double bound) {
+            if (Double.isNaN(bound)) {
+                throw new IllegalArgumentException("Calorie bound cannot be NaN");
+            }
+            return bound;
+        }
+
+        public Builder minDuration(int minutes) {
+            this.minDuration = minutes;
+            return this;
+        }
+
+        public Builder maxDuration(int minutes) {
+            this.maxDuration = minutes;
+            return this;
+        }
+
+        /** Sessions containing an exercise with this name (case-insensitive). */
+        public Builder exerciseName(String name) {
+            this.exerciseName = name;
+            return this;
+        }
+
+        /** Extra condition evaluated last, on the surviving records; combined with AND. */
+        public Builder where(Predicate<? super WorkoutSession> predicate) {
+            Objects.requireNonNull(predicate, "predicate");
+            if (residual == null) {
+                residual = predicate;
+            } else {
+                Predicate<? super WorkoutSession> previous = residual;
+                residual = s -> previous.test(s) && predicate.test(s);
+            }
+            return this;
+        }
+
+        public Builder order(Order order) {
+            this.order = Objects.requireNonNull(order, "order");
+            return this;
+        }
+
+        /** Maximum number of results, also the page size; 0 for unlimited. */
+        public Builder limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit cannot be negative");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public WorkoutQuery build() {
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("Date range is reversed: " + from + " > " + to);
+            }
+            if (minCalories > maxCalories || minDuration > maxDuration) {
+                throw new IllegalArgumentException("Minimum exceeds maximum");
+            }
+            return new WorkoutQuery(this);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-user time-bucketed rollups at day, ISO-week and month granularity,
+ * each holding session count, minutes and calories per WorkoutType.
+ *
+ * Buckets are keyed by their start date (the day, the Monday of the ISO
+ * week, the first of the month), so they never merge across years, and
+ * are updated once per inserted session. Calendar charts and trend
+ * queries read the few buckets in their window instead of the sessions.
+ *
+ * Like WorkoutTotals: one writer per user (the owner serialises inserts),
+ * lock-free readers on any thread. A reader may see a session counted in
+ * one granularity a moment before another.
+ */
+public final class WorkoutRollups {
+
+    public enum Granularity {
+        DAY, ISO_WEEK, MONTH;
+
+        /** First day of the bucket containing {@code date}. */
+        public LocalDate startOf(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case ISO_WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+
+        /** First day of the bucket after the one starting at {@code start}. */
+        LocalDate next(LocalDate start) {
+            return switch (this) {
+                case DAY -> start.plusDays(1);
+                case ISO_WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+    }
+
+    private static final int T = WorkoutType.values().length;
+
+    // Layout of a cell: [0, T) sessions, [T, 2T) minutes, [2T, 3T) calorie bits
+    private static final int MINUTES = T;
+    private static final int CALORIES = 2 * T;
+
+    private final NavigableMap<Long, AtomicLongArray> days = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Long, AtomicLongArray> weeks = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Long, AtomicLongArray> months = new ConcurrentSkipListMap<>();
+
+    // ----------------------------------------------------------------
+    // Writes — once per session, single writer
+    // ----------------------------------------------------------------
+    void record(WorkoutSession session, double calories) {
+        LocalDate date = session.date();
+        int type = session.type().ordinal();
+        int minutes = session.totalDuration();
+        for (var g : Granularity.values()) {
+            var cell = buckets(g).computeIfAbsent(g.startOf(date).toEpochDay(), k -> new AtomicLongArray(3 * T));
+            // Single writer, so get-then-set is safe; readers see each slot atomically
+            cell.lazySet(type, cell.get(type) + 1);
+            cell.lazySet(MINUTES + type, cell.get(MINUTES + type) + minutes);
+            cell.lazySet(CALORIES + type, Double.doubleToRawLongBits(
+                    Double.longBitsToDouble(cell.get(CALORIES + type)) + calories));
+        }
+    }
+
+    private NavigableMap<Long, AtomicLongArray> buckets(Granularity g) {
+        return switch (g) {
+            case DAY -> days;
+            case ISO_WEEK -> weeks;
+            case MONTH -> months;
+        };
+    }
+
+    // ----------------------------------------------------------------
+    // Reads
+    // ----------------------------------------------------------------
+
+    /**
+     * Contiguous series of buckets covering [from, to], one per day, week or
+     * month, including empty ones — ready to plot. The first and last
+     * buckets are whole buckets even if the window cuts through them.
+     */
+    public List<Bucket> series(Granularity g, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Window is reversed: " + from + " > " + to);
+        }
+        var map = buckets(g);
+        var result = new ArrayList<Bucket>();
+        for (LocalDate start = g.startOf(from); !start.isAfter(to); start = g.next(start)) {
+            var cell = map.get(start.toEpochDay());
+            result.add(cell == null ? Bucket.empty(start, g) : Bucket.of(start, g, cell));
+        }
+        return result;
+    }
+
+    /** Only the buckets with at least one session in [from, to], oldest first. */
+    public List<Bucket> nonEmpty(Granularity g, LocalDate from, LocalDate to) {
+        var result = new ArrayList<Bucket>();
+        var window = buckets(g).subMap(g.startOf(from).toEpochDay(), true, to.toEpochDay(), true);
+        window.forEach((day, cell) -> result.add(Bucket.of(LocalDate.ofEpochDay(day), g, cell)));
+        return result;
+    }
+
+    /**
+     * Exact totals over [from, to] for any window: whole months inside the
+     * window come from month buckets, the ragged edges from day buckets —
+     * at most ~60 day buckets plus one per month are read.
+     */
+    public Bucket totals(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Window is reversed: " + from + " > " + to);
+        }
+        var acc = new long[3 * T];
+        LocalDate firstWholeMonth = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate afterLastWholeMonth = to.plusDays(1).withDayOfMonth(1);
+        if (to.equals(YearMonth.from(to).atEndOfMonth())) {
+            afterLastWholeMonth = to.plusDays(1);
+        }
+        if (firstWholeMonth.isBefore(afterLastWholeMonth)) {
+            addRange(acc, days, from, firstWholeMonth.minusDays(1));
+            addRange(acc, months, firstWholeMonth, afterLastWholeMonth.minusDays(1));
+            addRange(acc, days, afterLastWholeMonth, to);
+        } else {
+            addRange(acc, days, from, to);
+        }
+        return new Bucket(from, to, acc);
+    }
+
+    private static void addRange(long[] acc, NavigableMap<Long, AtomicLongArray> map, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) return;
+        for (AtomicLongArray cell : map.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+            for (int t = 0; t < T; t++) {
+                acc[t] += cell.get(t);
+                acc[MINUTES + t] += cell.get(MINUTES + t);
+                acc[CALORIES + t] = Double.doubleToRawLongBits(Double.longBitsToDouble(acc[CALORIES + t])
+                        + Double.longBitsToDouble(cell.get(CALORIES + t)));
+            }
+        }
+    }
+
+    /** Calories per month of {@code year}, January first — 12 bucket reads. */
+    public double[] monthlyCalories(int year) {
+        var monthly = new double[12];
+        for (int m = 0; m < 12; m++) {
+            var cell = months.get(LocalDate.of(year, m + 1, 1).toEpochDay());
+            if (cell == null) continue;
+            for (int t = 0; t < T; t++) {
+                monthly[m] += Double.longBitsToDouble(cell.get(CALORIES + t));
+            }
+        }
+        return monthly;
+    }
+
+    // ----------------------------------------------------------------
+    // Bucket — immutable copy of one bucket (or a window's totals)
+    // ----------------------------------------------------------------
+    public static final class Bucket {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final long[] values; // same layout as a cell
+
+        private Bucket(LocalDate start, LocalDate end, long[] values) {
+            this.start = start;
+            this.end = end;
+            this.values = values;
+        }
+
+        static Bucket of(LocalDate start, Granularity g, AtomicLongArray cell) {
+            var values = new long[3 * T];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = cell.get(i);
+            }
+            return new Bucket(start, g.next(start).minusDays(1), values);
+        }
+
+        static Bucket empty(LocalDate start, Granularity g) {
+            return new Bucket(start, g.next(start).minusDays(1), new long[3 * T]);
+        }
+
+        public LocalDate getStart() {
+            return start;
+        }
+
+        /** Last day covered, inclusive. */
+        public LocalDate getEnd() {
+            return end;
+        }
+
+        public int getSessionCount() {
+            long n = 0;
+            for (int t = 0; t < T; t++) n += values[t];
+            return (int) n;
+        }
+
+        public int getSessionCount(WorkoutType type) {
+            return (int) values[type.ordinal()];
+        }
+
+        public long getDuration() {
+            long n = 0;
+            for (int t = 0; t < T; t++) n += values[MINUTES + t];
+            return n;
+        }
+
+        public long getDuration(WorkoutType type) {
+            return values[MINUTES + type.ordinal()];
+        }
+
+        public double getCalories() {
+            double sum = 0;
+            for (int t = 0; t < T; t++) sum += Double.longBitsToDouble(values[CALORIES + t]);
+            return sum;
+        }
+
+        public double getCalories(WorkoutType type) {
+            return Double.longBitsToDouble(values[CALORIES + type.ordinal()]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s..%s: %d sessions, %d min, %.0f kcal",
+                    start, end, getSessionCount(), getDuration(), getCalories());
+        }
+    }
+}
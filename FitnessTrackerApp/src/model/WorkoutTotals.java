@@ -0,0 +1,104 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Running per-user totals, updated once per inserted session so that
+ * progress/dashboard reads are O(1) instead of re-streaming the history.
+ *
+ * Updated by a single writer per user; fields are volatile/atomic so
+ * readers on other threads always see published values without locking.
+ *
+ * Debug mode (-Dfitness.debug.verifyTotals=true) re-derives every total
+ * from the raw records after each insert and fails fast on drift.
+ */
+public final class WorkoutTotals {
+
+    static final boolean VERIFY = Boolean.getBoolean("fitness.debug.verifyTotals");
+    private static final double TOLERANCE = 1e-6;
+
+    private volatile double totalCalories;
+    private volatile long totalDuration;
+    private final AtomicIntegerArray sessionsByType = new AtomicIntegerArray(WorkoutType.values().length);
+    private volatile double strengthVolume;  // sets * reps * kg
+    private volatile double cardioDistance;  // km
+
+    // Called once per session — calories are passed in so they are only computed once
+    void record(WorkoutSession session, double calories) {
+        double volume = 0;
+        double distance = 0;
+        for (var exercise : session.exercises()) {
+            if (exercise instanceof StrengthExercise strength) {
+                volume += strength.calculateVolume();
+            } else if (exercise instanceof CardioExercise cardio) {
+                distance += cardio.getDistance();
+            }
+        }
+        // Single writer, so read-modify-write of the volatiles is safe
+        totalCalories += calories;
+        totalDuration += session.totalDuration();
+        sessionsByType.incrementAndGet(session.type().ordinal());
+        strengthVolume += volume;
+        cardioDistance += distance;
+    }
+
+    public double getTotalCalories() {
+        return totalCalories;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public int getSessionCount() {
+        int count = 0;
+        for (int i = 0; i < sessionsByType.length(); i++) count += sessionsByType.get(i);
+        return count;
+    }
+
+    public int getSessionCount(WorkoutType type) {
+        return sessionsByType.get(type.ordinal());
+    }
+
+    public double getStrengthVolume() {
+        return strengthVolume;
+    }
+
+    public double getCardioDistance() {
+        return cardioDistance;
+    }
+
+    // ----------------------------------------------------------------
+    // Debug verification — full recomputation from the stored records
+    // ----------------------------------------------------------------
+    static WorkoutTotals recompute(WorkoutHistoryStore store) {
+        var fresh = new WorkoutTotals();
+        for (int i = 0; i < store.size(); i++) {
+            var session = store.get(i);
+            fresh.record(session, session.calculateTotalCalories());
+        }
+        return fresh;
+    }
+
+    void verifyAgainst(WorkoutHistoryStore store) {
+        var expected = recompute(store);
+        if (!close(totalCalories, expected.totalCalories)
+                || totalDuration != expected.totalDuration
+                || !sessionsByType.toString().equals(expected.sessionsByType.toString())
+                || !close(strengthVolume, expected.strengthVolume)
+                || !close(cardioDistance, expected.cardioDistance)) {
+            throw new IllegalStateException(
+                "Running totals drifted from history: " + this + " vs recomputed " + expected);
+        }
+    }
+
+    private static boolean close(double a, double b) {
+        return Math.abs(a - b) <= TOLERANCE * Math.max(1.0, Math.abs(b));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Totals[calories=%.2f, duration=%d, byType=%s, volume=%.2f, distance=%.2f]",
+            totalCalories, totalDuration, sessionsByType, strengthVolume, cardioDistance);
+    }
+}
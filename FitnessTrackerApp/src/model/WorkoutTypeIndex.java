@@ -0,0 +1,85 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Secondary index over the rows of a WorkoutHistoryStore, bucketed by
+ * WorkoutType ordinal.
+ *
+ * Each bucket holds the rows of that type in insertion order plus running
+ * (prefix) sums of their calories and minutes, so per-type listing is
+ * proportional to that type's sessions only, and per-type counts and
+ * totals are O(1). Instances are immutable as far as readers can tell:
+ * {@link #with} writes past the current counts (or into grown copies) and
+ * returns a new index that the store publishes together with its columns.
+ */
+final class WorkoutTypeIndex {
+
+    private static final int TYPE_COUNT = WorkoutType.values().length;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int[][] rows;          // [type][i] -> store row
+    private final double[][] calories;   // [type][i] -> calories of rows[type][0..i]
+    private final long[][] minutes;      // [type][i] -> minutes of rows[type][0..i]
+    private final int[] counts;
+
+    private WorkoutTypeIndex(int[][] rows, double[][] calories, long[][] minutes, int[] counts) {
+        this.rows = rows;
+        this.calories = calories;
+        this.minutes = minutes;
+        this.counts = counts;
+    }
+
+    static WorkoutTypeIndex empty() {
+        return new WorkoutTypeIndex(new int[TYPE_COUNT][0], new double[TYPE_COUNT][0],
+                new long[TYPE_COUNT][0], new int[TYPE_COUNT]);
+    }
+
+    /** Index with {@code row} appended to its type's bucket. Single writer only. */
+    WorkoutTypeIndex with(int typeOrdinal, int row, double sessionCalories, int sessionMinutes) {
+        int n = counts[typeOrdinal];
+        int[][] r = rows;
+        double[][] cal = calories;
+        long[][] min = minutes;
+        if (n == r[typeOrdinal].length) {
+            // Fresh outer arrays, so older snapshots keep pointing at the buckets they saw
+            int capacity = Math.max(INITIAL_CAPACITY, n + (n >> 1) + 1);
+            r = r.clone();
+            cal = cal.clone();
+            min = min.clone();
+            r[typeOrdinal] = Arrays.copyOf(r[typeOrdinal], capacity);
+            cal[typeOrdinal] = Arrays.copyOf(cal[typeOrdinal], capacity);
+            min[typeOrdinal] = Arrays.copyOf(min[typeOrdinal], capacity);
+        }
+        r[typeOrdinal][n] = row;
+        cal[typeOrdinal][n] = (n == 0 ? 0 : cal[typeOrdinal][n - 1]) + sessionCalories;
+        min[typeOrdinal][n] = (n == 0 ? 0 : min[typeOrdinal][n - 1]) + sessionMinutes;
+        int[] newCounts = counts.clone();
+        newCounts[typeOrdinal] = n + 1;
+        return new WorkoutTypeIndex(r, cal, min, newCounts);
+    }
+
+    int count(int typeOrdinal) {
+        return counts[typeOrdinal];
+    }
+
+    double calories(int typeOrdinal) {
+        int n = counts[typeOrdinal];
+        return n == 0 ? 0 : calories[typeOrdinal][n - 1];
+    }
+
+    long minutes(int typeOrdinal) {
+        int n = counts[typeOrdinal];
+        return n == 0 ? 0 : minutes[typeOrdinal][n - 1];
+    }
+
+    /** Store row of the {@code i}-th session of the type, in insertion order. */
+    int row(int typeOrdinal, int i) {
+        return rows[typeOrdinal][i];
+    }
+
+    /** The bucket array itself; only the first count(type) entries are valid. */
+    int[] bucket(int typeOrdinal) {
+        return rows[typeOrdinal];
+    }
+}
@@ -0,0 +1,198 @@
+package service;
+
+import model.Exercise;
+import model.WorkoutSession;
+import sketch.HyperLogLog;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate active-user and distinct-exercise counts, keyed by session
+ * date.
+ *
+ * Each day that has sessions gets two HyperLogLog sketches: one of the
+ * user ids that trained that day and one of the exercise names performed.
+ * Counts over a window merge the days in it, so DAU, WAU, MAU or any
+ * other range cost one register-wise max per day, and a user active on
+ * several days is still counted once. Memory is 2 x 2^p bytes per active
+ * day, independent of the number of users but growing with the number of
+ * days kept: with the defaults (p = 12, 8 KB a day) the retention window
+ * of {@link #DEFAULT_RETENTION_DAYS} days caps it at about 3.2 MB.
+ *
+ * Days older than the retention window, counted back from the newest
+ * session date seen, are dropped as the window moves; sessions dated
+ * before it are not recorded. {@link #prune} drops days explicitly.
+ *
+ * FitnessServiceImpl records every session that goes through
+ * addWorkoutToUser. Recording is safe from any number of threads; the
+ * sketches raise their registers with compare-and-set.
+ */
+public final class ActivityTracker {
+
+    /** Relative standard error used when none is given: ~1.6% with p = 12. */
+    public static final double DEFAULT_ERROR = 0.02;
+
+    /** Days kept when no retention is given: a year of MAU windows. */
+    public static final int DEFAULT_RETENTION_DAYS = 400;
+
+    /** An estimate with its relative standard error; low/high span about 95%. */
+    public record Estimate(long count, double relativeError) {
+        public long low() {
+            return Math.max(0, Math.round(count * (1 - 2 * relativeError)));
+        }
+
+        public long high() {
+            return Math.round(count * (1 + 2 * relativeError));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("~%d (%d..%d)", count, low(), high());
+        }
+    }
+
+    private record Day(HyperLogLog users, HyperLogLog exercises) { }
+
+    private final int precision;
+    private final int retentionDays;
+    private final ConcurrentSkipListMap<Long, Day> days = new ConcurrentSkipListMap<>();
+    private final AtomicLong newestDay = new AtomicLong(Long.MIN_VALUE);
+
+    public ActivityTracker() {
+        this(DEFAULT_ERROR);
+    }
+
+    /** @param relativeError target relative standard error of every count, e.g. 0.01 */
+    public ActivityTracker(double relativeError) {
+        this(relativeError, DEFAULT_RETENTION_DAYS);
+    }
+
+    /**
+     * @param relativeError target relative standard error of every count
+     * @param retentionDays days kept, counting back from the newest session date
+     */
+    public ActivityTracker(double relativeError, int retentionDays) {
+        if (retentionDays <= 0) {
+            throw new IllegalArgumentException("Retention must be at least one day");
+        }
+        this.precision = HyperLogLog.precisionFor(relativeError);
+        this.retentionDays = retentionDays;
+    }
+
+    public double getRelativeError() {
+        return HyperLogLog.errorFor(precision);
+    }
+
+    // ----------------------------------------------------------------
+    // Recording
+    // ----------------------------------------------------------------
+    public void record(String userId, WorkoutSession session) {
+        long epochDay = session.date().toEpochDay();
+        long cutoff = newestDay.accumulateAndGet(epochDay, Math::max) - retentionDays + 1;
+        if (epochDay < cutoff) return; // already outside the retention window
+        var day = days.get(epochDay);
+        if (day == null) {
+            day = days.computeIfAbsent(epochDay, k -> new Day(new HyperLogLog(precision), new HyperLogLog(precision)));
+            dropBefore(cutoff); // a new day may have moved the window forward
+        }
+        day.users().add(userId);
+        for (Exercise exercise : session.exercises()) {
+            if (exercise.getName() != null) {
+                day.exercises().add(exercise.getName());
+            }
+        }
+    }
+
+    /** Drops every day before {@code before}; returns how many were dropped. */
+    public int prune(LocalDate before) {
+        return dropBefore(before.toEpochDay());
+    }
+
+    private int dropBefore(long epochDay) {
+        int dropped = 0;
+        for (var it = days.headMap(epochDay).keySet().iterator(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    // ----------------------------------------------------------------
+    // Queries
+    // ----------------------------------------------------------------
+
+    /** Distinct users with a session on {@code date}. */
+    public Estimate dailyActiveUsers(LocalDate date) {
+        return activeUsers(date, date);
+    }
+
+    /** Distinct users with a session in the 7 days ending on {@code date}. */
+    public Estimate weeklyActiveUsers(LocalDate date) {
+        return activeUsers(date.minusDays(6), date);
+    }
+
+    /** Distinct users with a session in the 30 days ending on {@code date}. */
+    public Estimate monthlyActiveUsers(LocalDate date) {
+        return activeUsers(date.minusDays(29), date);
+    }
+
+    /** Distinct users with a session in [from, to]. */
+    public Estimate activeUsers(LocalDate from, LocalDate to) {
+        return estimate(usersSketch(from, to));
+    }
+
+    /** Distinct exercise names performed in [from, to]. */
+    public Estimate distinctExercises(LocalDate from, LocalDate to) {
+        return estimate(exercisesSketch(from, to));
+    }
+
+    /** Distinct exercise names over every day still kept. */
+    public Estimate distinctExercises() {
+        var merged = new HyperLogLog(precision);
+        days.values().forEach(day -> merged.merge(day.exercises()));
+        return estimate(merged);
+    }
+
+    /** Merged user-id sketch for [from, to] — merge it further across trackers or nodes. */
+    public HyperLogLog usersSketch(LocalDate from, LocalDate to) {
+        var merged = new HyperLogLog(precision);
+        window(from, to).values().forEach(day -> merged.merge(day.users()));
+        return merged;
+    }
+
+    /** Merged exercise-name sketch for [from, to]. */
+    public HyperLogLog exercisesSketch(LocalDate from, LocalDate to) {
+        var merged = new HyperLogLog(precision);
+        window(from, to).values().forEach(day -> merged.merge(day.exercises()));
+        return merged;
+    }
+
+    private ConcurrentNavigableMap<Long, Day> window(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Window is reversed: " + from + " > " + to);
+        }
+        return days.subMap(from.toEpochDay(), true, to.toEpochDay(), true);
+    }
+
+    private Estimate estimate(HyperLogLog sketch) {
+        return new Estimate(sketch.estimate(), sketch.getRelativeError());
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    /** Days kept with at least one recorded session. */
+    public int getTrackedDays() {
+        return days.size();
+    }
+
+    /** Approximate heap held by the register arrays. */
+    public long getMemoryBytes() {
+        return (long) days.size() * 2 * (1 << precision);
+    }
+}
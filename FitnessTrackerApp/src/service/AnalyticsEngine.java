@@ -0,0 +1,217 @@
+package service;
+
+import model.WorkoutSession;
+import model.WorkoutType;
+import service.AnalyticsService.AnalyticsResult;
+import sketch.QuantileSketch;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.EnumMap;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Single-pass analytics over a workout history.
+ *
+ * Every metric AnalyticsService reports is folded into one mergeable
+ * Accumulator while walking the sessions once — calories are computed a
+ * single time per session. Large inputs are split with fork/join and the
+ * partial accumulators merged; small inputs are folded on the calling
+ * thread, since dispatch would cost more than it saves.
+ *
+ * Duration and calorie percentiles are opt-in ({@code withPercentiles}):
+ * each slice then also fills two quantile sketches, merged with the rest
+ * of its accumulator. Passes that only need sums and counts skip the
+ * sketch updates entirely.
+ */
+public class AnalyticsEngine {
+
+    /** Below this many sessions a slice is folded sequentially. */
+    static final int SPLIT_THRESHOLD = 8_192;
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    private final ForkJoinPool pool;
+
+    public AnalyticsEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public AnalyticsEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public Accumulator analyse(List<WorkoutSession> sessions) {
+        return analyse(sessions, false);
+    }
+
+    /** @param withPercentiles also fill the duration and calorie sketches */
+    public Accumulator analyse(List<WorkoutSession> sessions, boolean withPercentiles) {
+        WorkoutSession[] rows = sessions.toArray(new WorkoutSession[0]);
+        if (rows.length <= SPLIT_THRESHOLD) {
+            return Accumulator.fold(rows, 0, rows.length, withPercentiles);
+        }
+        return pool.invoke(new FoldTask(rows, 0, rows.length, withPercentiles));
+    }
+
+    // ----------------------------------------------------------------
+    // Fork/join task — split until the slice is small, then fold
+    // ----------------------------------------------------------------
+    @SuppressWarnings("serial")
+    private static final class FoldTask extends RecursiveTask<Accumulator> {
+        private final WorkoutSession[] rows;
+        private final int from;
+        private final int to;
+        private final boolean withPercentiles;
+
+        FoldTask(WorkoutSession[] rows, int from, int to, boolean withPercentiles) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.withPercentiles = withPercentiles;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                return Accumulator.fold(rows, from, to, withPercentiles);
+            }
+            int mid = (from + to) >>> 1;
+            var left = new FoldTask(rows, from, mid, withPercentiles);
+            left.fork();
+            var right = new FoldTask(rows, mid, to, withPercentiles).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // ----------------------------------------------------------------
+    // Accumulator — one per slice, merged pairwise
+    // ----------------------------------------------------------------
+    public static final class Accumulator {
+        private final DoubleSummaryStatistics calories = new DoubleSummaryStatistics();
+        private final IntSummaryStatistics duration = new IntSummaryStatistics();
+        private final DoubleSummaryStatistics efficiency = new DoubleSummaryStatistics();
+        private final DoubleSummaryStatistics[] caloriesByType = new DoubleSummaryStatistics[TYPES.length];
+        private final QuantileSketch durationSketch;   // null unless created with percentiles
+        private final QuantileSketch calorieSketch;
+
+        public Accumulator() {
+            this(false);
+        }
+
+        public Accumulator(boolean withPercentiles) {
+            for (int i = 0; i < caloriesByType.length; i++) {
+                caloriesByType[i] = new DoubleSummaryStatistics();
+            }
+            this.durationSketch = withPercentiles ? new QuantileSketch() : null;
+            this.calorieSketch = withPercentiles ? new QuantileSketch() : null;
+        }
+
+        static Accumulator fold(WorkoutSession[] rows, int from, int to, boolean withPercentiles) {
+            var acc = new Accumulator(withPercentiles);
+            for (int i = from; i < to; i++) {
+                acc.accept(rows[i]);
+            }
+            return acc;
+        }
+
+        public void accept(WorkoutSession session) {
+            double sessionCalories = session.calculateTotalCalories(); // once per session
+            int minutes = session.totalDuration();
+            calories.accept(sessionCalories);
+            duration.accept(minutes);
+            efficiency.accept(sessionCalories / Math.max(1, minutes));
+            caloriesByType[session.type().ordinal()].accept(sessionCalories);
+            if (durationSketch != null) {
+                durationSketch.update(minutes);
+                calorieSketch.update(sessionCalories);
+            }
+        }
+
+        public Accumulator merge(Accumulator other) {
+            calories.combine(other.calories);
+            duration.combine(other.duration);
+            efficiency.combine(other.efficiency);
+            for (int i = 0; i < caloriesByType.length; i++) {
+                caloriesByType[i].combine(other.caloriesByType[i]);
+            }
+            if (durationSketch != null && other.durationSketch != null) {
+                durationSketch.merge(other.durationSketch);
+                calorieSketch.merge(other.calorieSketch);
+            }
+            return this;
+        }
+
+        public long getSessionCount() {
+            return calories.getCount();
+        }
+
+        public double getTotalCalories() {
+            return calories.getSum();
+        }
+
+        public double getAverageDuration() {
+            return duration.getAverage();
+        }
+
+        public double getMaxCalories() {
+            return calories.getCount() == 0 ? 0.0 : calories.getMax();
+        }
+
+        public long getSessionCount(WorkoutType type) {
+            return caloriesByType[type.ordinal()].getCount();
+        }
+
+        public double getAverageEfficiency() {
+            return efficiency.getAverage();
+        }
+
+        public boolean hasPercentiles() {
+            return durationSketch != null;
+        }
+
+        /** Session durations (minutes); query with quantile(0.5), quantile(0.99), ... */
+        public QuantileSketch getDurationSketch() {
+            return requirePercentiles(durationSketch);
+        }
+
+        /** Session calories (kcal). */
+        public QuantileSketch getCalorieSketch() {
+            return requirePercentiles(calorieSketch);
+        }
+
+        private static QuantileSketch requirePercentiles(QuantileSketch sketch) {
+            if (sketch == null) {
+                throw new IllegalStateException("Accumulator was created without percentiles");
+            }
+            return sketch;
+        }
+
+        /** Calories per type, only for types that occur — same shape as a groupingBy. */
+        public Map<WorkoutType, Double> caloriesByType() {
+            var map = new EnumMap<WorkoutType, Double>(WorkoutType.class);
+            for (var type : TYPES) {
+                var stats = caloriesByType[type.ordinal()];
+                if (stats.getCount() > 0) {
+                    map.put(type, stats.getSum());
+                }
+            }
+            return map;
+        }
+
+        /** The six report lines, in the order AnalyticsService has always produced them. */
+        public List<AnalyticsResult> toResults() {
+            return List.of(
+                new AnalyticsResult("Total Calories Burned", getTotalCalories(), "kcal"),
+                new AnalyticsResult("Avg Session Duration", getAverageDuration(), "min"),
+                new AnalyticsResult("Best Session (Calories)", getMaxCalories(), "kcal"),
+                new AnalyticsResult("Cardio Sessions", getSessionCount(WorkoutType.CARDIO), "sessions"),
+                new AnalyticsResult("Strength Sessions", getSessionCount(WorkoutType.STRENGTH), "sessions"),
+                new AnalyticsResult("Avg Efficiency", getAverageEfficiency(), "kcal/min")
+            );
+        }
+    }
+}
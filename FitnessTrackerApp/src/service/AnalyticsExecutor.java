@@ -0,0 +1,167 @@
+package service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived execution backend for AnalyticsService.
+ *
+ * Created once and reused for every report, instead of building and tearing
+ * down a thread pool per call. Three modes are available:
+ *  - BOUNDED_POOL:    fixed platform threads with a bounded queue; when the
+ *                     queue is full the submitting thread runs the task
+ *                     itself (back-pressure instead of unbounded growth)
+ *  - VIRTUAL_THREADS: one virtual thread per task (Java 21+)
+ *  - CALLER_RUNS:     no threads at all — tasks run on the submitting thread
+ *
+ * Queue depth and active-task counts are exposed for monitoring.
+ */
+public final class AnalyticsExecutor implements AutoCloseable {
+
+    public enum Mode { BOUNDED_POOL, VIRTUAL_THREADS, CALLER_RUNS }
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Mode mode;
+    private final ExecutorService delegate;        // null in CALLER_RUNS mode
+    private final ThreadPoolExecutor pool;         // non-null only in BOUNDED_POOL mode
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private volatile boolean closed;
+
+    private AnalyticsExecutor(Mode mode, ExecutorService delegate) {
+        this.mode = mode;
+        this.delegate = delegate;
+        this.pool = delegate instanceof ThreadPoolExecutor tpe ? tpe : null;
+    }
+
+    // ----------------------------------------------------------------
+    // Factories
+    // ----------------------------------------------------------------
+    public static AnalyticsExecutor boundedPool(int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        var pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                daemonThreads("analytics-"),
+                AnalyticsExecutor::runOnCaller);
+        return new AnalyticsExecutor(Mode.BOUNDED_POOL, pool);
+    }
+
+    /** One platform thread per logical CPU core, queue of 64 reports per thread. */
+    public static AnalyticsExecutor defaultPool() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return boundedPool(cores, cores * 64);
+    }
+
+    public static AnalyticsExecutor virtualThreads() {
+        return new AnalyticsExecutor(Mode.VIRTUAL_THREADS, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public static AnalyticsExecutor callerRuns() {
+        return new AnalyticsExecutor(Mode.CALLER_RUNS, null);
+    }
+
+    /**
+     * Queue full: run the task on the submitting thread. Unlike
+     * CallerRunsPolicy, a pool that was shut down between the closed check
+     * in submit and the hand-off rejects loudly (submit reports it as
+     * closed) instead of silently dropping the task, which would leave its
+     * Future pending forever.
+     */
+    private static void runOnCaller(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("AnalyticsExecutor is closed");
+        }
+        task.run();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // ----------------------------------------------------------------
+    // Submission
+    // ----------------------------------------------------------------
+    /** @throws IllegalStateException if the executor is closed, including by a concurrent close() */
+    public <T> Future<T> submit(Callable<T> task) {
+        if (closed) {
+            throw new IllegalStateException("AnalyticsExecutor is closed");
+        }
+        Callable<T> tracked = () -> {
+            activeTasks.incrementAndGet();
+            try {
+                return task.call();
+            } finally {
+                activeTasks.decrementAndGet();
+            }
+        };
+        if (mode == Mode.CALLER_RUNS) {
+            try {
+                return CompletableFuture.completedFuture(tracked.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        try {
+            return delegate.submit(tracked);
+        } catch (RejectedExecutionException e) {
+            // close() shut the delegate down after the check above: same contract as a closed executor
+            throw new IllegalStateException("AnalyticsExecutor is closed", e);
+        }
+    }
+
+    // ----------------------------------------------------------------
+    // Monitoring
+    // ----------------------------------------------------------------
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** Tasks accepted but not yet started; always 0 for modes without a queue. */
+    public int getQueueDepth() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    /** Tasks currently running, in any mode. */
+    public int getActiveTaskCount() {
+        return activeTasks.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // ----------------------------------------------------------------
+    // Lifecycle
+    // ----------------------------------------------------------------
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (delegate == null) return;
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
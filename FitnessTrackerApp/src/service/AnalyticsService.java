@@ -1,24 +1,48 @@
 package service;
 
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import model.User;
 import model.WorkoutSession;
 import model.WorkoutType;
+import sketch.QuantileSketch;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * OOP2 - CONCURRENCY DEMO
- * Demonstrates: ExecutorService, Callable, Future, invokeAll
+ * Demonstrates: fork/join (RecursiveTask), mergeable accumulators
  *
- * Uses a thread pool to compute multiple fitness analytics tasks
- * in parallel, simulating a real reporting workload.
+ * Computes the fitness analytics report in a single fused pass via
+ * AnalyticsEngine, splitting large histories across cores. Reports run on
+ * a long-lived AnalyticsExecutor, so close the service when done with it.
+ *
+ * Timers: analytics.runConcurrentAnalytics (caller's end-to-end wait),
+ * analytics.queueWait (submit until a worker picks the report up),
+ * analytics.report (the engine pass itself), analytics.caloriesByType and
+ * analytics.fleet (population report over every user, see FleetAnalytics)
+ * and analytics.percentiles.
  */
-public class AnalyticsService {
+public class AnalyticsService implements AutoCloseable {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final Timer RUN = METRICS.timer("analytics.runConcurrentAnalytics");
+    private static final Timer QUEUE_WAIT = METRICS.timer("analytics.queueWait");
+    private static final Timer REPORT = METRICS.timer("analytics.report");
+    private static final Timer CALORIES_BY_TYPE = METRICS.timer("analytics.caloriesByType");
+    private static final Timer FLEET = METRICS.timer("analytics.fleet");
+    private static final Timer PERCENTILES = METRICS.timer("analytics.percentiles");
+
+    /** Percentiles reported for duration and calories. */
+    private static final double[] REPORTED_QUANTILES = {0.5, 0.9, 0.99};
 
     // ----------------------------------------------------------------
-    // Result record — immutable data carrier from each Callable task
+    // Result record — immutable data carrier for each report metric
     // ----------------------------------------------------------------
     public record AnalyticsResult(String metricName, double value, String unit) {
         @Override
@@ -27,103 +51,166 @@ public class AnalyticsService {
         }
     }
 
+    private final AnalyticsEngine engine;
+    private final FleetAnalytics fleet = new FleetAnalytics();
+    private final AnalyticsExecutor executor;
+    private final boolean ownsExecutor;
+
+    // Default backend — created here, so closed here
+    public AnalyticsService() {
+        this(AnalyticsExecutor.defaultPool(), new AnalyticsEngine(), true);
+    }
+
+    // Injected backend — the caller keeps ownership and closes it
+    public AnalyticsService(AnalyticsExecutor executor) {
+        this(executor, new AnalyticsEngine(), false);
+    }
+
+    public AnalyticsService(AnalyticsExecutor executor, AnalyticsEngine engine) {
+        this(executor, engine, false);
+    }
+
+    private AnalyticsService(AnalyticsExecutor executor, AnalyticsEngine engine, boolean ownsExecutor) {
+        this.executor = executor;
+        this.engine = engine;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public AnalyticsExecutor getExecutor() {
+        return executor;
+    }
+
     /**
-     * Runs several analytics tasks concurrently and collects results.
+     * Computes all report metrics in one fused pass over the sessions.
+     * Large histories are split across cores by the engine's fork/join
+     * pool and the partial accumulators merged.
      *
      * @param sessions the full workout history to analyse
      * @return list of completed AnalyticsResult objects
      */
     public List<AnalyticsResult> runConcurrentAnalytics(List<WorkoutSession> sessions) {
-
-        // Fixed thread pool — one thread per logical CPU core
-        ExecutorService executor = Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors());
-
-        // Define independent tasks as Callable lambdas
-        List<Callable<AnalyticsResult>> tasks = List.of(
-
-            // Task 1 — total calories across all sessions
-            () -> {
-                double total = sessions.stream()
-                        .mapToDouble(WorkoutSession::calculateTotalCalories)
-                        .sum();
-                return new AnalyticsResult("Total Calories Burned", total, "kcal");
-            },
-
-            // Task 2 — average session duration in minutes
-            () -> {
-                double avg = sessions.stream()
-                        .mapToInt(WorkoutSession::totalDuration)   // fixed: was durationMinutes()
-                        .average()
-                        .orElse(0.0);
-                return new AnalyticsResult("Avg Session Duration", avg, "min");
-            },
-
-            // Task 3 — longest single session (calories)
-            () -> {
-                double max = sessions.stream()
-                        .mapToDouble(WorkoutSession::calculateTotalCalories)
-                        .max()
-                        .orElse(0.0);
-                return new AnalyticsResult("Best Session (Calories)", max, "kcal");
-            },
-
-            // Task 4 — cardio session count
-            () -> {
-                long cardioCount = sessions.stream()
-                        .filter(s -> s.type() == WorkoutType.CARDIO)
-                        .count();
-                return new AnalyticsResult("Cardio Sessions", cardioCount, "sessions");
-            },
-
-            // Task 5 — strength session count
-            () -> {
-                long strengthCount = sessions.stream()
-                        .filter(s -> s.type() == WorkoutType.STRENGTH)
-                        .count();
-                return new AnalyticsResult("Strength Sessions", strengthCount, "sessions");
-            },
-
-            // Task 6 — calories-per-minute efficiency
-            () -> {
-                double efficiency = sessions.stream()
-                        .mapToDouble(s -> s.calculateTotalCalories() /
-                                Math.max(1, s.totalDuration()))     // fixed: was durationMinutes()
-                        .average()
-                        .orElse(0.0);
-                return new AnalyticsResult("Avg Efficiency", efficiency, "kcal/min");
-            }
-        );
-
-        List<AnalyticsResult> results = new java.util.ArrayList<>();
+        List<AnalyticsResult> results = new ArrayList<>();
+        long start = RUN.start();
+        boolean ok = false;
         try {
-            // invokeAll blocks until ALL tasks finish (or timeout)
-            List<Future<AnalyticsResult>> futures = executor.invokeAll(tasks);
-
-            for (Future<AnalyticsResult> future : futures) {
-                results.add(future.get());   // get() retrieves result; throws on task failure
-            }
+            results.addAll(submitAnalytics(sessions).get());
+            ok = true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.err.println("Analytics interrupted: " + e.getMessage());
         } catch (ExecutionException e) {
             System.err.println("Analytics task failed: " + e.getCause().getMessage());
         } finally {
-            executor.shutdown();  // Always release the thread pool
+            RUN.stop(start, ok);
         }
-
         return results;
     }
 
+    /** Queues a report on the executor backend without waiting for it. */
+    public Future<List<AnalyticsResult>> submitAnalytics(List<WorkoutSession> sessions) {
+        long queued = QUEUE_WAIT.start();
+        return executor.submit(() -> {
+            QUEUE_WAIT.stop(queued);
+            long start = REPORT.start();
+            boolean ok = false;
+            try {
+                var results = engine.analyse(sessions).toResults();
+                ok = true;
+                return results;
+            } finally {
+                REPORT.stop(start, ok);
+            }
+        });
+    }
+
     /**
-     * Groups sessions by WorkoutType and returns a summary map.
-     * Uses Collectors.groupingBy + summingDouble — stream terminal op.
+     * Sums calories per WorkoutType — same values as a groupingBy +
+     * summingDouble, but computed in the engine's single pass.
      */
     public Map<WorkoutType, Double> caloriesByType(List<WorkoutSession> sessions) {
-        return sessions.stream()
-                .collect(Collectors.groupingBy(
-                        WorkoutSession::type,
-                        Collectors.summingDouble(WorkoutSession::calculateTotalCalories)
-                ));
+        long start = CALORIES_BY_TYPE.start();
+        try {
+            return engine.analyse(sessions).caloriesByType();
+        } finally {
+            CALORIES_BY_TYPE.stop(start);
+        }
+    }
+
+    /**
+     * Calories per WorkoutType for one user, read from the history store's
+     * per-type running sums — no sessions are scanned.
+     */
+    public Map<WorkoutType, Double> caloriesByType(User user) {
+        long start = CALORIES_BY_TYPE.start();
+        try {
+            return user.getCaloriesByType();
+        } finally {
+            CALORIES_BY_TYPE.stop(start);
+        }
+    }
+
+    /**
+     * p50/p90/p99 of session duration and calories, from quantile sketches
+     * filled per fork/join slice and merged — nothing is sorted.
+     */
+    public List<AnalyticsResult> percentiles(List<WorkoutSession> sessions) {
+        long start = PERCENTILES.start();
+        try {
+            var acc = engine.analyse(sessions, true);
+            return percentileResults(acc.getDurationSketch(), acc.getCalorieSketch());
+        } finally {
+            PERCENTILES.stop(start);
+        }
+    }
+
+    /** Same as above for one user, read from the sketches User keeps up to date — no scan. */
+    public List<AnalyticsResult> percentiles(User user) {
+        long start = PERCENTILES.start();
+        try {
+            var distributions = user.getDistributions();
+            return percentileResults(distributions.getDurationSketch(), distributions.getCalorieSketch());
+        } finally {
+            PERCENTILES.stop(start);
+        }
+    }
+
+    static List<AnalyticsResult> percentileResults(QuantileSketch duration, QuantileSketch calories) {
+        var results = new ArrayList<AnalyticsResult>();
+        double[] minutes = duration.quantiles(REPORTED_QUANTILES);
+        double[] kcal = calories.quantiles(REPORTED_QUANTILES);
+        for (int i = 0; i < REPORTED_QUANTILES.length; i++) {
+            String label = "p" + Math.round(REPORTED_QUANTILES[i] * 100);
+            results.add(new AnalyticsResult("Session Duration " + label, minutes[i], "min"));
+        }
+        for (int i = 0; i < REPORTED_QUANTILES.length; i++) {
+            String label = "p" + Math.round(REPORTED_QUANTILES[i] * 100);
+            results.add(new AnalyticsResult("Session Calories " + label, kcal[i], "kcal"));
+        }
+        return results;
+    }
+
+    /**
+     * Population totals, per-type distribution and age-band / BMI-band
+     * breakdowns over every user the service holds. Users are partitioned
+     * across the fork/join pool; histories are neither copied nor scanned.
+     */
+    public FleetAnalytics.FleetReport analyseFleet(FitnessServiceImpl service) {
+        return analyseFleet(service.getUsers());
+    }
+
+    public FleetAnalytics.FleetReport analyseFleet(Collection<User> users) {
+        long start = FLEET.start();
+        try {
+            return fleet.analyse(users);
+        } finally {
+            FLEET.stop(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.close();
+        }
     }
 }
@@ -0,0 +1,170 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.DateTimeException;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * On-disk index of backups ({@code catalog.idx}), so listing and lookup
+ * never walk the backup directory.
+ *
+ * The file is append-only text, one record per line:
+ * <pre>
+ *   A &lt;id&gt; &lt;createdEpochMillis&gt; &lt;files&gt; &lt;logicalBytes&gt; &lt;storedBytes&gt; &lt;manifestCrc32c&gt;
+ *   D &lt;id&gt;
+ * </pre>
+ * "A" adds a backup, "D" removes it. The whole catalog is also held in a
+ * sorted map, loaded once at open. A torn last line (crash mid-append) is
+ * truncated on load; once removals outnumber live entries the file is
+ * rewritten.
+ */
+public final class BackupCatalog {
+
+    /** One backup point. Ids sort chronologically. */
+    public record Entry(String id, Instant created, int files, long logicalBytes, long storedBytes,
+                        String manifestChecksum) { }
+
+    private final Path file;
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    private int removals;
+
+    private BackupCatalog(Path file) {
+        this.file = file;
+    }
+
+    /** Loads the catalog; returns null when the file does not exist yet. */
+    static BackupCatalog load(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        var catalog = new BackupCatalog(file);
+        byte[] content = Files.readAllBytes(file);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') end--;
+        if (end < content.length) {
+            // Torn append: drop the partial line so the next append starts cleanly
+            try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+        }
+        for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) catalog.apply(line);
+        }
+        return catalog;
+    }
+
+    /** Starts a catalog from known entries (used when rebuilding from manifests). */
+    static BackupCatalog create(Path file, List<Entry> known) throws IOException {
+        var catalog = new BackupCatalog(file);
+        known.forEach(entry -> catalog.entries.put(entry.id(), entry));
+        catalog.rewrite();
+        return catalog;
+    }
+
+    private void apply(String line) {
+        String[] parts = line.split(" ");
+        try {
+            if (parts.length == 7 && parts[0].equals("A")) {
+                entries.put(parts[1], new Entry(parts[1], Instant.ofEpochMilli(Long.parseLong(parts[2])),
+                        Integer.parseInt(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[5]), parts[6]));
+            } else if (parts.length == 2 && parts[0].equals("D")) {
+                entries.remove(parts[1]);
+                removals++;
+            }
+            // anything else is a foreign or damaged line — skip it
+        } catch (NumberFormatException | DateTimeException e) {
+            // damaged line — skip it
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Updates — one appended line each, forced before returning
+    // ------------------------------------------------------------------
+    synchronized void add(Entry entry) throws IOException {
+        append(line(entry));
+        entries.put(entry.id(), entry);
+    }
+
+    synchronized void remove(String id) throws IOException {
+        if (!entries.containsKey(id)) return;
+        append("D " + id);
+        entries.remove(id); // only once the removal is on disk, as in add
+        if (++removals > Math.max(16, entries.size())) {
+            rewrite();
+        }
+    }
+
+    private static String line(Entry entry) {
+        return "A " + entry.id() + " " + entry.created().toEpochMilli() + " " + entry.files() + " "
+                + entry.logicalBytes() + " " + entry.storedBytes() + " " + entry.manifestChecksum();
+    }
+
+    private void append(String line) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            var bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+
+    // Compaction: live entries only, temp file + atomic move
+    private void rewrite() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (Entry entry : entries.values()) {
+                writer.write(line(entry));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        removals = 0;
+    }
+
+    // ------------------------------------------------------------------
+    // Queries — served from memory
+    // ------------------------------------------------------------------
+
+    /** Every backup, oldest first. */
+    public synchronized List<Entry> entries() {
+        return List.copyOf(entries.values());
+    }
+
+    public synchronized Optional<Entry> find(String id) {
+        return Optional.ofNullable(entries.get(id));
+    }
+
+    public synchronized Optional<Entry> latest() {
+        var last = entries.lastEntry();
+        return last == null ? Optional.empty() : Optional.of(last.getValue());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalStoredBytes() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += entry.storedBytes();
+        }
+        return total;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
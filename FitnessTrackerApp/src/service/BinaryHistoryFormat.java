@@ -0,0 +1,362 @@
+package service;
+
+import model.CardioExercise;
+import model.StrengthExercise;
+import model.WorkoutSession;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary workout history ("FTHB"), read back through a memory-mapped
+ * FileChannel by BinaryHistoryReader.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   header     64 bytes  magic, version, counts, section offsets, CRC32C of the body
+ *   sessions   40 bytes  each — fixed width, see SESSION_* offsets
+ *   exercises  32 bytes  each — fixed width, see EXERCISE_* offsets
+ *   dictionary           int[count] offsets, then UTF-8 strings back to back
+ * </pre>
+ * User ids, session ids, notes and exercise names are dictionary-encoded:
+ * records store an int reference, and repeated strings are stored once.
+ *
+ * CSV stays the import/export path: {@link #csvToBinary} and
+ * {@link #binaryToCsv} convert in both directions. The history CSV has no
+ * exercise detail, so sessions imported from CSV carry their calories
+ * column but no exercises.
+ */
+public final class BinaryHistoryFormat {
+
+    static final int MAGIC = 0x42485446;     // "FTHB" read as little-endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SESSION_SIZE = 40;
+    static final int EXERCISE_SIZE = 32;
+    static final int NO_STRING = -1;
+
+    // Header fields
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_SESSION_COUNT = 8;
+    static final int H_EXERCISE_COUNT = 12;
+    static final int H_DICTIONARY_COUNT = 16;
+    static final int H_CHECKSUM = 20;
+    static final int H_SESSIONS_OFFSET = 24;
+    static final int H_EXERCISES_OFFSET = 32;
+    static final int H_DICTIONARY_OFFSET = 40;
+    static final int H_FILE_SIZE = 48;
+
+    // Session record fields
+    static final int S_USER = 0;
+    static final int S_SESSION_ID = 4;
+    static final int S_EPOCH_DAY = 8;
+    static final int S_DURATION = 12;
+    static final int S_CALORIES = 16;
+    static final int S_NOTES = 24;
+    static final int S_FIRST_EXERCISE = 28;
+    static final int S_EXERCISE_COUNT = 32;
+    static final int S_TYPE = 36;
+
+    // Exercise record fields
+    static final int E_KIND = 0;             // 'C' cardio, 'S' strength
+    static final int E_NAME = 4;
+    static final int E_DURATION = 8;
+    static final int E_INT_A = 12;           // heart rate | sets
+    static final int E_INT_B = 16;           // 0          | reps
+    static final int E_DOUBLE = 24;          // distance   | weight
+
+    private BinaryHistoryFormat() {
+    }
+
+    // ------------------------------------------------------------------
+    // Writing
+    // ------------------------------------------------------------------
+
+    /** Row to be written: full sessions keep their exercises. */
+    public record Row(String userId, WorkoutSession session, double calories) {
+        public Row(String userId, WorkoutSession session) {
+            this(userId, session, session.calculateTotalCalories());
+        }
+    }
+
+    public static void write(Path target, String userId, List<WorkoutSession> sessions) throws IOException {
+        try (var writer = new SectionWriter(target)) {
+            for (var session : sessions) {
+                writer.add(new Row(userId, session));
+            }
+            writer.finish();
+        }
+    }
+
+    /** Writes the rows atomically (temp file + move). */
+    public static void write(Path target, List<Row> rows) throws IOException {
+        try (var writer = new SectionWriter(target)) {
+            for (var row : rows) {
+                writer.add(row);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Streams rows into the file without holding them: session records go
+     * straight to the temp file after the header, exercise records to a
+     * side file that is appended once the sessions are done, and the header
+     * is written last. Only the dictionary (distinct strings) and two
+     * fixed-size buffers stay in memory.
+     */
+    private static final class SectionWriter implements AutoCloseable {
+        private static final int BUFFER_BYTES = 64 * 1024;
+
+        private final Path target;
+        private final Path temp;
+        private final Path exercisesTemp;
+        private final FileChannel out;
+        private final FileChannel exercisesOut;
+        private final ByteBuffer sessions = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer exercises = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final Dictionary dictionary = new Dictionary();
+        private final CRC32C crc = new CRC32C();
+        private int sessionCount;
+        private int exerciseCount;
+
+        SectionWriter(Path target) throws IOException {
+            this.target = target;
+            Path parent = target.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            this.temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+            this.exercisesTemp = Files.createTempFile(parent, target.getFileName().toString(), ".ex.tmp");
+            this.out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.exercisesOut = FileChannel.open(exercisesTemp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            out.position(HEADER_SIZE);
+        }
+
+        void add(Row row) throws IOException {
+            var session = row.session();
+            if (sessions.remaining() < SESSION_SIZE) {
+                flushSessions();
+            }
+            int base = sessions.position();
+            clear(sessions, base, SESSION_SIZE);
+            sessions.putInt(base + S_USER, dictionary.ref(row.userId()))
+                    .putInt(base + S_SESSION_ID, dictionary.ref(session.sessionId()))
+                    .putInt(base + S_EPOCH_DAY, Math.toIntExact(session.date().toEpochDay()))
+                    .putInt(base + S_DURATION, session.totalDuration())
+                    .putDouble(base + S_CALORIES, row.calories())
+                    .putInt(base + S_NOTES, dictionary.ref(session.notes()))
+                    .putInt(base + S_FIRST_EXERCISE, exerciseCount)
+                    .putInt(base + S_EXERCISE_COUNT, session.exercises().size())
+                    .put(base + S_TYPE, (byte) session.type().ordinal());
+            sessions.position(base + SESSION_SIZE);
+            sessionCount = Math.addExact(sessionCount, 1);
+
+            for (var exercise : session.exercises()) {
+                if (exercises.remaining() < EXERCISE_SIZE) {
+                    flushExercises();
+                }
+                int e = exercises.position();
+                clear(exercises, e, EXERCISE_SIZE);
+                exercises.putInt(e + E_NAME, dictionary.ref(exercise.getName()))
+                         .putInt(e + E_DURATION, exercise.getDuration());
+                if (exercise instanceof CardioExercise cardio) {
+                    exercises.put(e + E_KIND, (byte) 'C')
+                             .putInt(e + E_INT_A, cardio.getHeartRate())
+                             .putDouble(e + E_DOUBLE, cardio.getDistance());
+                } else if (exercise instanceof StrengthExercise strength) {
+                    exercises.put(e + E_KIND, (byte) 'S')
+                             .putInt(e + E_INT_A, strength.getSets())
+                             .putInt(e + E_INT_B, strength.getReps())
+                             .putDouble(e + E_DOUBLE, strength.getWeight());
+                }
+                exercises.position(e + EXERCISE_SIZE);
+                exerciseCount = Math.addExact(exerciseCount, 1);
+            }
+        }
+
+        // Session bytes go out in file order, so the checksum can run over them as written
+        private void flushSessions() throws IOException {
+            sessions.flip();
+            crc.update(sessions.duplicate());
+            writeFully(out, sessions);
+            sessions.clear();
+        }
+
+        private void flushExercises() throws IOException {
+            exercises.flip();
+            writeFully(exercisesOut, exercises);
+            exercises.clear();
+        }
+
+        /** Appends the exercise and dictionary sections, then the header, and moves the file into place. */
+        void finish() throws IOException {
+            flushSessions();
+            flushExercises();
+            long exercisesOffset = out.position();
+
+            var chunk = ByteBuffer.allocate(BUFFER_BYTES);
+            long position = 0;
+            while (true) {
+                chunk.clear();
+                int n = exercisesOut.read(chunk, position);
+                if (n <= 0) break;
+                position += n;
+                chunk.flip();
+                crc.update(chunk.duplicate());
+                writeFully(out, chunk);
+            }
+
+            long dictionaryOffset = out.position();
+            ByteBuffer dict = dictionary.encode();
+            crc.update(dict.duplicate());
+            writeFully(out, dict);
+            long fileSize = out.position();
+
+            var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(H_MAGIC, MAGIC)
+                    .putInt(H_VERSION, VERSION)
+                    .putInt(H_SESSION_COUNT, sessionCount)
+                    .putInt(H_EXERCISE_COUNT, exerciseCount)
+                    .putInt(H_DICTIONARY_COUNT, dictionary.size())
+                    .putInt(H_CHECKSUM, (int) crc.getValue())
+                    .putLong(H_SESSIONS_OFFSET, HEADER_SIZE)
+                    .putLong(H_EXERCISES_OFFSET, exercisesOffset)
+                    .putLong(H_DICTIONARY_OFFSET, dictionaryOffset)
+                    .putLong(H_FILE_SIZE, fileSize);
+            out.position(0);
+            writeFully(out, header);
+            out.force(true);
+            out.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // The buffers are reused, so padding and unused fields must not keep an earlier record's bytes
+        private static void clear(ByteBuffer buffer, int at, int size) {
+            Arrays.fill(buffer.array(), at, at + size, (byte) 0);
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out; exercisesOut) {
+                Files.deleteIfExists(temp);
+            } finally {
+                Files.deleteIfExists(exercisesTemp);
+            }
+        }
+    }
+
+    /** Interns strings to dense int ids in first-seen order. */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private long totalBytes;
+
+        int ref(String value) {
+            if (value == null) return NO_STRING;
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = encoded.size();
+                ids.put(value, id);
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                totalBytes += bytes.length;
+            }
+            return id;
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        // int[size + 1] end-exclusive offsets (relative to the blob), then the blob
+        ByteBuffer encode() {
+            long length = 4L * (encoded.size() + 1) + totalBytes;
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Dictionary too large: " + length + " bytes");
+            }
+            var buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+            int offset = 0;
+            buffer.putInt(0);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                buffer.putInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                buffer.put(bytes);
+            }
+            return buffer.flip();
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // CSV converters — CSV remains the import/export format
+    // ------------------------------------------------------------------
+
+    /** Imports a history CSV (as written by WorkoutDataManager) into the binary format, one row at a time. */
+    public static long csvToBinary(Path csv, Path binary) throws IOException {
+        long[] count = {0};
+        try (var reader = new WorkoutCsvReader(Files.newBufferedReader(csv));
+             var writer = new SectionWriter(binary)) {
+            reader.forEach(r -> {
+                try {
+                    writer.add(new Row(r.userId(), new WorkoutSession(r.sessionId(), r.date(), r.type(),
+                            List.of(), r.durationMinutes(), r.notes()), r.calories()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    /** Exports a binary history back to the history CSV layout. */
+    public static long binaryToCsv(Path binary, Path csv) throws IOException {
+        try (var reader = BinaryHistoryReader.open(binary);
+             BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writeCsv(reader, writer);
+            return reader.sessionCount();
+        }
+    }
+
+    static void writeCsv(BinaryHistoryReader reader, BufferedWriter writer) throws IOException {
+        writer.write(WorkoutCsvReader.HEADER);
+        writer.newLine();
+        for (int i = 0; i < reader.sessionCount(); i++) {
+            writer.write(String.join(",",
+                    CsvTokenizer.escape(reader.userId(i)),
+                    CsvTokenizer.escape(reader.sessionId(i)),
+                    reader.date(i).toString(),
+                    reader.type(i).name(),
+                    String.valueOf(reader.duration(i)),
+                    String.format("%.0f", reader.calories(i)),
+                    CsvTokenizer.escape(reader.notes(i))));
+            writer.newLine();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package service;
+
+import model.Exercise;
+import model.ExerciseCatalog;
+import model.WorkoutSession;
+import model.WorkoutType;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+import static service.BinaryHistoryFormat.*;
+
+/**
+ * Read side of {@link BinaryHistoryFormat}. The file is memory-mapped once;
+ * every accessor reads straight from the mapping by row index, so scanning
+ * sessions (via {@link #forEachSession} or the primitive getters) does not
+ * allocate per row. Strings are decoded only when asked for and cached per
+ * dictionary entry; {@link #toSession} builds a full WorkoutSession.
+ *
+ * Files are limited to 2 GB (a single mapping).
+ *
+ * {@link #close()} closes the channel but cannot unmap the file: the JDK
+ * releases a mapping only when the buffer is garbage collected. Until
+ * then the file stays mapped, and on Windows a mapped file cannot be
+ * replaced or deleted, so WorkoutDataManager.saveBinaryHistory's
+ * REPLACE_EXISTING move fails while any reader of that file is still
+ * reachable. Drop readers before rewriting their file.
+ */
+public final class BinaryHistoryReader implements AutoCloseable {
+
+    /** Primitive per-session callback, so a scan creates no objects. */
+    @FunctionalInterface
+    public interface SessionVisitor {
+        void visit(int row, long epochDay, WorkoutType type, int durationMinutes, double calories);
+    }
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+    private static final ExerciseCatalog CATALOG = ExerciseCatalog.global(); // decoded exercises are shared
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int sessionCount;
+    private final int exerciseCount;
+    private final int dictionaryCount;
+    private final int sessionsOffset;
+    private final int exercisesOffset;
+    private final int dictionaryOffset;
+    private final int blobOffset;
+    private final String[] strings;
+
+    private BinaryHistoryReader(FileChannel channel, MappedByteBuffer map) throws IOException {
+        this.channel = channel;
+        this.map = map;
+        if (map.capacity() < HEADER_SIZE || map.getInt(H_MAGIC) != MAGIC) {
+            throw new IOException("Not a binary workout history file");
+        }
+        int version = map.getInt(H_VERSION);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary history version " + version);
+        }
+        if (map.getLong(H_FILE_SIZE) != map.capacity()) {
+            throw new IOException("Binary history truncated: expected " + map.getLong(H_FILE_SIZE)
+                    + " bytes, found " + map.capacity());
+        }
+        sessionCount = map.getInt(H_SESSION_COUNT);
+        exerciseCount = map.getInt(H_EXERCISE_COUNT);
+        dictionaryCount = map.getInt(H_DICTIONARY_COUNT);
+        sessionsOffset = (int) map.getLong(H_SESSIONS_OFFSET);
+        exercisesOffset = (int) map.getLong(H_EXERCISES_OFFSET);
+        dictionaryOffset = (int) map.getLong(H_DICTIONARY_OFFSET);
+        blobOffset = dictionaryOffset + 4 * (dictionaryCount + 1);
+        strings = new String[dictionaryCount];
+    }
+
+    /** Maps the file and verifies its header and checksum. */
+    public static BinaryHistoryReader open(Path file) throws IOException {
+        return open(file, true);
+    }
+
+    public static BinaryHistoryReader open(Path file, boolean verifyChecksum) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Binary history too large to map: " + size + " bytes");
+            }
+            var map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            var reader = new BinaryHistoryReader(channel, map);
+            if (verifyChecksum) {
+                reader.verifyChecksum();
+            }
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void verifyChecksum() throws IOException {
+        var crc = new CRC32C();
+        crc.update(map.slice(HEADER_SIZE, map.capacity() - HEADER_SIZE));
+        if ((int) crc.getValue() != map.getInt(H_CHECKSUM)) {
+            throw new IOException("Binary history checksum mismatch");
+        }
+    }
+
+    public int sessionCount() {
+        return sessionCount;
+    }
+
+    public int exerciseCount() {
+        return exerciseCount;
+    }
+
+    // ------------------------------------------------------------------
+    // Session columns — read in place, no allocation
+    // ------------------------------------------------------------------
+    private int session(int row) {
+        return sessionsOffset + Objects.checkIndex(row, sessionCount) * SESSION_SIZE;
+    }
+
+    public long epochDay(int row) {
+        return map.getInt(session(row) + S_EPOCH_DAY);
+    }
+
+    public WorkoutType type(int row) {
+        return TYPES[map.get(session(row) + S_TYPE)];
+    }
+
+    public int duration(int row) {
+        return map.getInt(session(row) + S_DURATION);
+    }
+
+    public double calories(int row) {
+        return map.getDouble(session(row) + S_CALORIES);
+    }
+
+    public int userRef(int row) {
+        return map.getInt(session(row) + S_USER);
+    }
+
+    public int notesRef(int row) {
+        return map.getInt(session(row) + S_NOTES);
+    }
+
+    public int exerciseCount(int row) {
+        return map.getInt(session(row) + S_EXERCISE_COUNT);
+    }
+
+    public void forEachSession(SessionVisitor visitor) {
+        for (int row = 0, pos = sessionsOffset; row < sessionCount; row++, pos += SESSION_SIZE) {
+            visitor.visit(row, map.getInt(pos + S_EPOCH_DAY), TYPES[map.get(pos + S_TYPE)],
+                    map.getInt(pos + S_DURATION), map.getDouble(pos + S_CALORIES));
+        }
+    }
+
+    public double totalCalories() {
+        double total = 0;
+        for (int row = 0, pos = sessionsOffset; row < sessionCount; row++, pos += SESSION_SIZE) {
+            total += map.getDouble(pos + S_CALORIES);
+        }
+        return total;
+    }
+
+    public long totalDuration() {
+        long total = 0;
+        for (int row = 0, pos = sessionsOffset; row < sessionCount; row++, pos += SESSION_SIZE) {
+            total += map.getInt(pos + S_DURATION);
+        }
+        return total;
+    }
+
+    // ------------------------------------------------------------------
+    // Dictionary — decoded lazily, once per distinct string
+    // ------------------------------------------------------------------
+    public String string(int ref) {
+        if (ref == NO_STRING) return null;
+        String value = strings[Objects.checkIndex(ref, dictionaryCount)];
+        if (value == null) {
+            int start = map.getInt(dictionaryOffset + 4 * ref);
+            int end = map.getInt(dictionaryOffset + 4 * (ref + 1));
+            var bytes = new byte[end - start];
+            map.get(blobOffset + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[ref] = value;
+        }
+        return value;
+    }
+
+    /** Dictionary id of {@code value}, or -1 if the file never mentions it. */
+    public int findString(String value) {
+        for (int ref = 0; ref < dictionaryCount; ref++) {
+            if (string(ref).equals(value)) return ref;
+        }
+        return NO_STRING;
+    }
+
+    public String userId(int row) {
+        return string(userRef(row));
+    }
+
+    public String sessionId(int row) {
+        return string(map.getInt(session(row) + S_SESSION_ID));
+    }
+
+    public String notes(int row) {
+        return string(notesRef(row));
+    }
+
+    public LocalDate date(int row) {
+        return LocalDate.ofEpochDay(epochDay(row));
+    }
+
+    // ------------------------------------------------------------------
+    // Materialise — full WorkoutSession, exercises included
+    // ------------------------------------------------------------------
+    public WorkoutSession toSession(int row) {
+        int pos = session(row);
+        int first = map.getInt(pos + S_FIRST_EXERCISE);
+        int count = map.getInt(pos + S_EXERCISE_COUNT);
+        var exercises = new ArrayList<Exercise>(count);
+        for (int e = exercisesOffset + first * EXERCISE_SIZE, end = e + count * EXERCISE_SIZE;
+                e < end; e += EXERCISE_SIZE) {
+            exercises.add(toExercise(e));
+        }
+        return new WorkoutSession(sessionId(row), date(row), type(row), exercises, duration(row), notes(row));
+    }
+
+    private Exercise toExercise(int pos) {
+        String name = string(map.getInt(pos + E_NAME));
+        int duration = map.getInt(pos + E_DURATION);
+        return switch (map.get(pos + E_KIND)) {
+            case 'C' -> CATALOG.cardio(name, duration, map.getDouble(pos + E_DOUBLE), map.getInt(pos + E_INT_A));
+            case 'S' -> CATALOG.strength(name, duration, map.getInt(pos + E_INT_A),
+                    map.getInt(pos + E_INT_B), map.getDouble(pos + E_DOUBLE));
+            default -> throw new IllegalStateException("Unknown exercise kind at offset " + pos);
+        };
+    }
+
+    /** Closes the channel; the mapping itself lives until the reader is collected (see class doc). */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,540 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Deduplicating, incremental backups.
+ *
+ * Each file is split into content-defined chunks with a gear rolling hash:
+ * a chunk ends where the hash of the last few bytes matches a bit mask, so
+ * boundaries depend on content rather than offsets and an edit only changes
+ * the chunks around it. Every chunk is stored once, deflated, under its
+ * SHA-256 ({@code chunks/ab/abcd….z}); a backup is just a small manifest
+ * ({@code manifests/<timestamp>.manifest}) listing each file's chunks, so
+ * an unchanged history costs a manifest and nothing else.
+ *
+ * Manifest (UTF-8 text):
+ * <pre>
+ *   fitness-backup 1
+ *   created 2024-03-01T10:15:30.123Z
+ *   file &lt;size&gt; &lt;relative/path&gt;
+ *   chunk &lt;sha256&gt; &lt;length&gt;      (one per chunk, in file order)
+ * </pre>
+ * Restores stream chunk by chunk, so memory use is bounded by the maximum
+ * chunk size whatever the history size.
+ *
+ * Every backup is also recorded in a {@link BackupCatalog}, which serves
+ * listing and lookup. {@link #applyRetention} deletes the backups a
+ * {@link RetentionPolicy} no longer keeps and then sweeps chunks nothing
+ * references. Backups share a read lock and the sweep takes the write lock,
+ * so a chunk is never swept while a running backup counts on it.
+ */
+public final class ChunkedBackupStore {
+
+    static final int MIN_CHUNK = 2 * 1024;
+    static final int MAX_CHUNK = 64 * 1024;
+    private static final long BOUNDARY_MASK = (1L << 13) - 1; // ~8 KB average chunk
+    private static final long[] GEAR = new long[256];
+    static {
+        var random = new SplittableRandom(0x46495431L); // fixed: boundaries must be stable across runs
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private static final String MANIFEST_HEADER = "fitness-backup 1";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    private static final String CATALOG_FILE = "catalog.idx";
+    private static final DateTimeFormatter ID_FMT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    /** Outcome of one backup run. */
+    public record BackupResult(String backupId, int files, long bytesRead, int chunks, int newChunks,
+                               long bytesWritten) { }
+
+    /** Outcome of one retention pass. */
+    public record RetentionResult(int backupsRemoved, int chunksRemoved, long bytesFreed) { }
+
+    private final Path root;
+    private final Path chunkDir;
+    private final Path manifestDir;
+    private final ReadWriteLock sweepLock = new ReentrantReadWriteLock();
+    private BackupCatalog catalog; // opened lazily, guarded by this
+
+    public ChunkedBackupStore(Path root) {
+        this.root = root;
+        this.chunkDir = root.resolve("chunks");
+        this.manifestDir = root.resolve("manifests");
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // ------------------------------------------------------------------
+    // Backup — chunk, store the chunks we haven't seen, write a manifest
+    // ------------------------------------------------------------------
+
+    /**
+     * Backs up {@code files}, recording them relative to {@code baseDir}.
+     * Only chunks not already in the store are written.
+     */
+    public BackupResult backup(Path baseDir, List<Path> files) throws IOException {
+        sweepLock.readLock().lock();
+        try {
+            return backupLocked(baseDir, files);
+        } finally {
+            sweepLock.readLock().unlock();
+        }
+    }
+
+    private BackupResult backupLocked(Path baseDir, List<Path> files) throws IOException {
+        var catalog = catalog();
+        Files.createDirectories(chunkDir);
+        Files.createDirectories(manifestDir);
+        Instant created = Instant.now();
+        String id = reserveId(created);
+        Path partial = manifestDir.resolve(id + PARTIAL_SUFFIX);
+
+        long[] totals = new long[4]; // bytesRead, chunks, newChunks, bytesWritten
+        var checksum = new CRC32C();
+        try {
+            // Streamed to disk: the manifest grows with the history, so it is never held in memory
+            try (var manifest = new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(Files.newOutputStream(partial), checksum), StandardCharsets.UTF_8))) {
+                manifest.write(MANIFEST_HEADER + "\n");
+                manifest.write("created " + created + "\n");
+                for (Path file : files) {
+                    String relative = baseDir.relativize(file).toString().replace('\\', '/');
+                    manifest.write("file " + Files.size(file) + " " + relative + "\n");
+                    try (InputStream in = Files.newInputStream(file)) {
+                        chunk(in, (data, length) -> {
+                            String hash = sha256(data, length);
+                            manifest.write("chunk " + hash + " " + length + "\n");
+                            totals[0] += length;
+                            totals[1]++;
+                            long written = storeChunk(hash, data, length);
+                            if (written > 0) {
+                                totals[2]++;
+                                totals[3] += written;
+                            }
+                        });
+                    }
+                }
+            }
+            totals[3] += Files.size(partial);
+            Files.move(partial, manifestPath(id), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        catalog.add(new BackupCatalog.Entry(id, created, files.size(), totals[0], totals[3],
+                Long.toHexString(checksum.getValue())));
+        return new BackupResult(id, files.size(), totals[0], (int) totals[1], (int) totals[2], totals[3]);
+    }
+
+    @FunctionalInterface
+    interface ChunkSink {
+        void accept(byte[] data, int length) throws IOException;
+    }
+
+    /** Splits the stream into content-defined chunks; the buffer is reused between calls. */
+    static void chunk(InputStream in, ChunkSink sink) throws IOException {
+        byte[] chunk = new byte[MAX_CHUNK];
+        byte[] buffer = new byte[64 * 1024];
+        int length = 0;
+        long hash = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                chunk[length++] = b;
+                hash = (hash << 1) + GEAR[b & 0xFF];
+                if ((length >= MIN_CHUNK && (hash & BOUNDARY_MASK) == 0) || length == MAX_CHUNK) {
+                    sink.accept(chunk, length);
+                    length = 0;
+                    hash = 0;
+                }
+            }
+        }
+        if (length > 0) {
+            sink.accept(chunk, length);
+        }
+    }
+
+    // Returns the compressed bytes written, or 0 if the chunk was already stored
+    private long storeChunk(String hash, byte[] data, int length) throws IOException {
+        Path target = chunkPath(hash);
+        if (Files.exists(target)) return 0;
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp))) {
+                out.write(data, 0, length);
+            }
+            long size = Files.size(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } catch (FileAlreadyExistsException e) {
+            return 0; // stored concurrently by another backup
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Backup id is the UTC timestamp; a same-millisecond clash gets a suffix.
+    // Creating the .partial file claims the id.
+    private String reserveId(Instant created) throws IOException {
+        String base = ID_FMT.format(created);
+        for (int attempt = 0; ; attempt++) {
+            String id = attempt == 0 ? base : base + "-" + attempt;
+            if (Files.exists(manifestPath(id))) continue;
+            try {
+                Files.createFile(manifestDir.resolve(id + PARTIAL_SUFFIX));
+                return id;
+            } catch (FileAlreadyExistsException e) {
+                // claimed by a concurrent backup — try the next suffix
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Restore — stream any backup point back out, chunk by chunk
+    // ------------------------------------------------------------------
+
+    /** Moves a completely restored temp file over its target. */
+    @FunctionalInterface
+    public interface Installer {
+        void install(Path restored, Path target) throws IOException;
+    }
+
+    /**
+     * Rebuilds every file of the backup under {@code targetDir}; returns
+     * bytes restored. Each file is written to a temp file next to its
+     * target and atomically moved into place once complete, so a failed
+     * restore never leaves a half-written file behind.
+     */
+    public long restore(String backupId, Path targetDir) throws IOException {
+        return restore(backupId, targetDir, ChunkedBackupStore::replaceAtomically);
+    }
+
+    /** As {@link #restore(String, Path)}, with {@code installer} moving each file into place. */
+    public long restore(String backupId, Path targetDir, Installer installer) throws IOException {
+        var visitor = new RestoreVisitor(targetDir, installer);
+        try {
+            readManifest(backupId, visitor);
+            visitor.finishFile();
+        } finally {
+            visitor.abandon();
+        }
+        return visitor.restored;
+    }
+
+    static void replaceAtomically(Path restored, Path target) throws IOException {
+        Files.move(restored, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private final class RestoreVisitor implements ManifestVisitor {
+        private final Path targetDir;
+        private final Installer installer;
+        private long restored;
+        private Path target;
+        private Path temp;
+        private OutputStream out;
+        private long expected;
+        private long written;
+
+        RestoreVisitor(Path targetDir, Installer installer) {
+            this.targetDir = targetDir;
+            this.installer = installer;
+        }
+
+        @Override
+        public void file(String relative, long size) throws IOException {
+            finishFile();
+            Path next = targetDir.resolve(relative).normalize();
+            if (!next.startsWith(targetDir.normalize())) {
+                throw new IOException("Manifest path escapes the restore directory: " + relative);
+            }
+            Files.createDirectories(next.getParent());
+            target = next;
+            expected = size;
+            written = 0;
+            temp = Files.createTempFile(next.getParent(), next.getFileName().toString(), ".restore");
+            out = Files.newOutputStream(temp);
+        }
+
+        @Override
+        public void chunk(String hash, int length) throws IOException {
+            written += copyChunk(hash, length, out);
+        }
+
+        // The previous file is complete: check it and move it into place
+        void finishFile() throws IOException {
+            if (out == null) return;
+            out.close();
+            out = null;
+            if (written != expected) {
+                throw new IOException("Backup lists " + expected + " bytes for " + target + " but holds " + written);
+            }
+            installer.install(temp, target);
+            temp = null;
+            restored += written;
+        }
+
+        void abandon() throws IOException {
+            try {
+                closeIfOpen(out);
+            } finally {
+                if (temp != null) Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /** Streams one file of the backup to {@code out}; returns bytes written. */
+    public long restoreFile(String backupId, String relativePath, OutputStream out) throws IOException {
+        long[] restored = {0};
+        boolean[] inFile = {false, false};
+        readManifest(backupId, new ManifestVisitor() {
+            @Override
+            public void file(String relative, long size) {
+                inFile[0] = relative.equals(relativePath);
+                inFile[1] |= inFile[0];
+            }
+
+            @Override
+            public void chunk(String hash, int length) throws IOException {
+                if (inFile[0]) restored[0] += copyChunk(hash, length, out);
+            }
+        });
+        if (!inFile[1]) {
+            throw new IOException("Backup " + backupId + " has no file " + relativePath);
+        }
+        return restored[0];
+    }
+
+    private long copyChunk(String hash, int length, OutputStream out) throws IOException {
+        if (out == null) throw new IOException("Chunk listed before any file in manifest");
+        Path file = chunkPath(hash);
+        byte[] data;
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+            data = in.readNBytes(MAX_CHUNK + 1);
+        }
+        if (data.length != length || !sha256(data, data.length).equals(hash)) {
+            throw new IOException("Backup chunk " + hash + " is damaged");
+        }
+        out.write(data);
+        return length;
+    }
+
+    private interface ManifestVisitor {
+        void file(String relativePath, long size) throws IOException;
+        void chunk(String hash, int length) throws IOException;
+    }
+
+    private void readManifest(String backupId, ManifestVisitor visitor) throws IOException {
+        Path manifest = manifestDir.resolve(backupId + MANIFEST_SUFFIX);
+        try (BufferedReader reader = Files.newBufferedReader(manifest)) {
+            if (!MANIFEST_HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a backup manifest: " + manifest);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("chunk ")) {
+                    int space = line.indexOf(' ', 6);
+                    visitor.chunk(line.substring(6, space), Integer.parseInt(line.substring(space + 1)));
+                } else if (line.startsWith("file ")) {
+                    int space = line.indexOf(' ', 5);
+                    visitor.file(line.substring(space + 1), Long.parseLong(line.substring(5, space)));
+                }
+                // "created" and unknown lines are informational
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed backup manifest " + manifest + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Catalog — listing and lookup without touching the directories
+    // ------------------------------------------------------------------
+
+    /** The backup catalog, rebuilt from the manifests the first time if missing. */
+    public synchronized BackupCatalog catalog() throws IOException {
+        if (catalog == null) {
+            Files.createDirectories(root);
+            Path file = root.resolve(CATALOG_FILE);
+            catalog = BackupCatalog.load(file);
+            if (catalog == null) {
+                catalog = BackupCatalog.create(file, scanManifests());
+            }
+        }
+        return catalog;
+    }
+
+    /** Backup ids, oldest first (ids sort chronologically). */
+    public List<String> listBackups() throws IOException {
+        var ids = new ArrayList<String>();
+        catalog().entries().forEach(entry -> ids.add(entry.id()));
+        return ids;
+    }
+
+    public Path manifestPath(String backupId) {
+        return manifestDir.resolve(backupId + MANIFEST_SUFFIX);
+    }
+
+    /** True if the backup's manifest still matches the checksum in the catalog. */
+    public boolean verify(String backupId) throws IOException {
+        var entry = catalog().find(backupId);
+        if (entry.isEmpty() || !Files.exists(manifestPath(backupId))) return false;
+        return entry.get().manifestChecksum().equals(manifestChecksum(manifestPath(backupId)));
+    }
+
+    // One-off migration for stores created before the catalog existed
+    private List<BackupCatalog.Entry> scanManifests() throws IOException {
+        var entries = new ArrayList<BackupCatalog.Entry>();
+        if (!Files.isDirectory(manifestDir)) return entries;
+        try (var files = Files.newDirectoryStream(manifestDir, "*" + MANIFEST_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(0, name.length() - MANIFEST_SUFFIX.length());
+                Instant[] created = {Files.getLastModifiedTime(file).toInstant()};
+                long[] counts = new long[2]; // files, logical bytes
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    reader.lines().forEach(line -> {
+                        if (line.startsWith("created ")) created[0] = Instant.parse(line.substring(8));
+                        else if (line.startsWith("file ")) counts[0]++;
+                        else if (line.startsWith("chunk ")) counts[1] += Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+                    });
+                } catch (RuntimeException e) {
+                    System.err.println("  [BACKUP] Skipping unreadable manifest " + name + ": " + e.getMessage());
+                    continue;
+                }
+                entries.add(new BackupCatalog.Entry(id, created[0], (int) counts[0], counts[1], 0,
+                        manifestChecksum(file)));
+            }
+        }
+        return entries;
+    }
+
+    private static String manifestChecksum(Path manifest) throws IOException {
+        var checksum = new CRC32C();
+        try (var in = new CheckedInputStream(Files.newInputStream(manifest), checksum)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return Long.toHexString(checksum.getValue());
+    }
+
+    // ------------------------------------------------------------------
+    // Retention — drop backups the policy doesn't keep, then sweep chunks
+    // ------------------------------------------------------------------
+
+    /**
+     * Deletes every backup {@code policy} does not keep, then every chunk
+     * no remaining manifest references. Backups wait while this runs;
+     * history saves are unaffected.
+     */
+    public RetentionResult applyRetention(RetentionPolicy policy) throws IOException {
+        sweepLock.writeLock().lock();
+        try {
+            var catalog = catalog();
+            var backups = catalog.entries();
+            var keep = policy.select(backups);
+            int removed = 0;
+            for (var entry : backups) {
+                if (keep.contains(entry.id())) continue;
+                catalog.remove(entry.id()); // catalog first: a crash leaves an orphan manifest, never a dangling entry
+                Files.deleteIfExists(manifestPath(entry.id()));
+                removed++;
+            }
+            if (removed == 0) return new RetentionResult(0, 0, 0);
+
+            var live = new HashSet<String>();
+            for (String id : keep) {
+                readManifest(id, new ManifestVisitor() {
+                    @Override
+                    public void file(String relativePath, long size) {
+                    }
+
+                    @Override
+                    public void chunk(String hash, int length) {
+                        live.add(hash);
+                    }
+                });
+            }
+            return sweep(live, removed);
+        } finally {
+            sweepLock.writeLock().unlock();
+        }
+    }
+
+    private RetentionResult sweep(Set<String> live, int backupsRemoved) throws IOException {
+        int chunks = 0;
+        long bytes = 0;
+        if (!Files.isDirectory(chunkDir)) return new RetentionResult(backupsRemoved, 0, 0);
+        try (var buckets = Files.newDirectoryStream(chunkDir, Files::isDirectory)) {
+            for (Path bucket : buckets) {
+                try (var files = Files.newDirectoryStream(bucket, "*.z")) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        if (live.contains(name.substring(0, name.length() - 2))) continue;
+                        long size = Files.size(file);
+                        if (Files.deleteIfExists(file)) {
+                            chunks++;
+                            bytes += size;
+                        }
+                    }
+                }
+            }
+        }
+        return new RetentionResult(backupsRemoved, chunks, bytes);
+    }
+
+    // ------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------
+    private Path chunkPath(String hash) {
+        return chunkDir.resolve(hash.substring(0, 2)).resolve(hash + ".z");
+    }
+
+    private static String sha256(byte[] data, int length) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every JVM", e);
+        }
+    }
+
+    private static void closeIfOpen(OutputStream out) throws IOException {
+        if (out != null) out.close();
+    }
+}
@@ -0,0 +1,112 @@
+package service;
+
+import model.User;
+import model.WorkoutPage;
+import model.WorkoutQuery;
+import model.WorkoutSession;
+import exception.InvalidWorkoutException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe FitnessService for concurrent traffic.
+ *
+ * - Users live in a ConcurrentHashMap, so lookups never lock.
+ * - History reads (filterWorkouts, calculateUserProgress, ...) go straight
+ *   to User's lock-free columnar store.
+ * - Writes to a user's history are serialised by a striped lock chosen from
+ *   the user id, so each User sees a single writer while writes to users on
+ *   different stripes proceed in parallel.
+ *
+ * Callers that mutate a User directly (user.addWorkoutSession) bypass the
+ * stripes and must provide their own serialisation.
+ *
+ * ConcurrentHashMap has no null keys, so null user ids are answered here
+ * the way the HashMap-backed service answers unknown ids; addUser rejects
+ * a user without an id.
+ */
+public class ConcurrentFitnessServiceImpl extends FitnessServiceImpl {
+
+    private final Object[] stripes;
+    private final int mask;
+
+    public ConcurrentFitnessServiceImpl() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ConcurrentFitnessServiceImpl(int minStripes) {
+        this(minStripes, new ActivityTracker());
+    }
+
+    public ConcurrentFitnessServiceImpl(int minStripes, ActivityTracker activity) {
+        super(new ConcurrentHashMap<>(), activity);
+        if (minStripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        // Power of two so the stripe index is a mask rather than a modulo
+        int count = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        this.stripes = new Object[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Object();
+        }
+        this.mask = count - 1;
+    }
+
+    @Override
+    public void addUser(User user) {
+        if (user.getUserId() == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        super.addUser(user);
+    }
+
+    @Override
+    public User getUser(String userId) {
+        return userId == null ? null : super.getUser(userId);
+    }
+
+    @Override
+    public List<WorkoutSession> filterWorkouts(String userId, Predicate<WorkoutSession> criteria) {
+        return userId == null ? Collections.emptyList() : super.filterWorkouts(userId, criteria);
+    }
+
+    @Override
+    public double calculateUserProgress(String userId) {
+        return userId == null ? 0.0 : super.calculateUserProgress(userId);
+    }
+
+    @Override
+    public WorkoutPage queryWorkouts(String userId, WorkoutQuery query, WorkoutPage.Cursor after) {
+        return userId == null ? new WorkoutPage(List.of(), null) : super.queryWorkouts(userId, query, after);
+    }
+
+    // Lock wait counts towards the service.addWorkoutToUser timer
+    @Override
+    protected void addWorkout(String userId, WorkoutSession session) throws InvalidWorkoutException {
+        if (userId == null) {
+            ValidationService.validateWorkoutSession(session); // same error order as the base class
+            throw new InvalidWorkoutException("User not found: null");
+        }
+        synchronized (stripeFor(userId)) {
+            super.addWorkout(userId, session);
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private Object stripeFor(String userId) {
+        int h = userId == null ? 0 : userId.hashCode();
+        h ^= (h >>> 16); // spread high bits, as HashMap does
+        return stripes[h & mask];
+    }
+
+    @Override
+    public String getServiceInfo() {
+        return "Fitness Tracking Service v1.0 (concurrent, " + stripes.length + " write stripes)";
+    }
+}
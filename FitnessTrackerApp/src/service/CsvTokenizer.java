@@ -0,0 +1,272 @@
+package service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 CSV tokenizer.
+ *
+ * Reads through a fixed char buffer and exposes one record at a time;
+ * memory is bounded by the longest record, not the file. Quoted fields
+ * may contain commas, quotes ("" escapes) and line breaks. Numbers and
+ * ISO dates are parsed straight from the record buffer, so only fields
+ * the caller asks for as Strings allocate one.
+ */
+public final class CsvTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+
+    // Current record — unescaped chars plus [start, end) offsets per field
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private boolean firstFieldQuoted;     // "" is an empty value, not a blank line
+    private long recordNumber;
+
+    public CsvTokenizer(Reader in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    // Small buffers suit short in-memory inputs (e.g. one journal record)
+    public CsvTokenizer(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+    }
+
+    // ----------------------------------------------------------------
+    // Record iteration
+    // ----------------------------------------------------------------
+
+    /** Advances to the next record; returns false at end of input. */
+    public boolean nextRecord() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        firstFieldQuoted = false;
+        int c = read();
+        if (c == -1) return false;
+
+        while (true) {
+            int start = recordLength;
+            if (c == '"') {
+                if (fieldCount == 0) firstFieldQuoted = true;
+                while (true) {
+                    c = read();
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') break;      // closing quote; c is the char after it
+                    }
+                    append((char) c);
+                }
+                if (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    throw new IOException("Unexpected character after closing quote in record " + (recordNumber + 1));
+                }
+            } else {
+                while (c != -1 && c != ',' && c != '\n' && c != '\r') {
+                    append((char) c);
+                    c = read();
+                }
+            }
+            endField(start, recordLength);
+            if (c != ',') break;
+            c = read();
+        }
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n' && next != -1) pos--; // not CRLF — give the char back
+        }
+        recordNumber++;
+        return true;
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /** True for an empty line (a single empty, unquoted field). */
+    public boolean isBlank() {
+        return fieldCount == 1 && starts[0] == ends[0] && !firstFieldQuoted;
+    }
+
+    // ----------------------------------------------------------------
+    // Field access — parsed in place from the record buffer
+    // ----------------------------------------------------------------
+    public String getString(int field) {
+        check(field);
+        return new String(record, starts[field], ends[field] - starts[field]);
+    }
+
+    public boolean fieldEquals(int field, String expected) {
+        check(field);
+        int length = ends[field] - starts[field];
+        if (length != expected.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (record[starts[field] + i] != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    public int getInt(int field) {
+        check(field);
+        long value = parseLong(starts[field], ends[field], field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberError(field);
+        }
+        return (int) value;
+    }
+
+    public double getDouble(int field) {
+        check(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && record[i] == '-';
+        if (negative || (i < end && record[i] == '+')) i++;
+
+        // Fast path: plain decimal with <= 15 significant digits is exact as mantissa / 10^k
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char ch = record[i];
+            if (ch >= '0' && ch <= '9') {
+                mantissa = mantissa * 10 + (ch - '0');
+                if (++digits > 15) return slowDouble(field);
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (ch == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return slowDouble(field); // exponent, NaN, etc.
+            }
+        }
+        if (digits == 0) throw numberError(field);
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /** ISO-8601 yyyy-MM-dd, parsed without building a String. */
+    public LocalDate getDate(int field) {
+        check(field);
+        int s = starts[field];
+        if (ends[field] - s != 10 || record[s + 4] != '-' || record[s + 7] != '-') {
+            return LocalDate.parse(getString(field)); // extended years etc.
+        }
+        int year = (int) parseLong(s, s + 4, field);
+        int month = (int) parseLong(s + 5, s + 7, field);
+        int day = (int) parseLong(s + 8, s + 10, field);
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date '" + getString(field)
+                    + "' in record " + recordNumber + ", field " + field, e);
+        }
+    }
+
+    // ----------------------------------------------------------------
+    // Writing side — the inverse of the quoting rules above
+    // ----------------------------------------------------------------
+
+    /** Quotes a value only if it needs it; null becomes an empty field. */
+    public static String escape(String value) {
+        if (value == null) return "";
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char ch = value.charAt(i);
+            needsQuotes = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        return needsQuotes ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ----------------------------------------------------------------
+    // Internals
+    // ----------------------------------------------------------------
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    private void append(char ch) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = ch;
+    }
+
+    private void endField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void check(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IllegalArgumentException("Record " + recordNumber + " has " + fieldCount
+                    + " fields; field " + field + " requested");
+        }
+    }
+
+    private long parseLong(int from, int to, int field) {
+        int i = from;
+        boolean negative = i < to && record[i] == '-';
+        if (negative || (i < to && record[i] == '+')) i++;
+        if (i == to) throw numberError(field);
+        long value = 0;
+        for (; i < to; i++) {
+            char ch = record[i];
+            if (ch < '0' || ch > '9' || value > (Long.MAX_VALUE - 9) / 10) {
+                throw numberError(field);
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private double slowDouble(int field) {
+        try {
+            return Double.parseDouble(getString(field));
+        } catch (NumberFormatException e) {
+            throw numberError(field);
+        }
+    }
+
+    private NumberFormatException numberError(int field) {
+        return new NumberFormatException("Invalid number '" + getString(field)
+                + "' in record " + recordNumber + ", field " + field);
+    }
+}
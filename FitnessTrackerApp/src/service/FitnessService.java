@@ -5,6 +5,7 @@ import exception.InvalidWorkoutException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Service interface demonstrating interface methods
@@ -16,6 +17,22 @@ public interface FitnessService {
     void addWorkoutToUser(String userId, WorkoutSession session) throws InvalidWorkoutException;
     List<WorkoutSession> filterWorkouts(String userId, Predicate<WorkoutSession> criteria);
     double calculateUserProgress(String userId);
+
+    /**
+     * Structured query over one user's history — the query's date range,
+     * types and bounds are pushed down to the history store's indexes and
+     * columns. Results are produced lazily; empty for an unknown user.
+     */
+    default Stream<WorkoutSession> queryWorkouts(String userId, WorkoutQuery query) {
+        User user = getUser(userId);
+        return user == null ? Stream.empty() : user.queryWorkouts(query);
+    }
+
+    /** One page of {@link #queryWorkouts(String, WorkoutQuery)}; {@code after} is null for the first page. */
+    default WorkoutPage queryWorkouts(String userId, WorkoutQuery query, WorkoutPage.Cursor after) {
+        User user = getUser(userId);
+        return user == null ? new WorkoutPage(List.of(), null) : user.queryWorkouts(query, after);
+    }
     
     // Default interface method
     default String getServiceInfo() {
@@ -2,6 +2,8 @@ package service;
 
 import model.*;
 import exception.InvalidWorkoutException;
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.function.Predicate;
@@ -15,52 +17,136 @@ import java.util.stream.Collectors;
  * - Method references
  * - Switch expressions (standard, no preview features required)
  * - Pattern matching via instanceof (Java 16+, standard)
+ *
+ * Every FitnessService operation is timed into the global MetricsRegistry
+ * ("service.*" timers; see metrics.MetricsRegistry). Sessions added through
+ * addWorkoutToUser are also counted into an ActivityTracker for DAU/WAU/MAU
+ * and distinct-exercise estimates.
  */
 public class FitnessServiceImpl implements FitnessService {
 
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final Timer ADD_USER = METRICS.timer("service.addUser");
+    private static final Timer GET_USER = METRICS.timer("service.getUser");
+    private static final Timer ADD_WORKOUT = METRICS.timer("service.addWorkoutToUser");
+    private static final Timer FILTER_WORKOUTS = METRICS.timer("service.filterWorkouts");
+    private static final Timer USER_PROGRESS = METRICS.timer("service.calculateUserProgress");
+    private static final Timer QUERY_PAGE = METRICS.timer("service.queryWorkouts");
+
     private final Map<String, User> users;
+    private final ActivityTracker activity;
 
     public FitnessServiceImpl() {
-        this.users = new HashMap<>();
+        this(new HashMap<>());
+    }
+
+    /** @param activity tracker sized for the wanted error bound, e.g. new ActivityTracker(0.02) */
+    public FitnessServiceImpl(ActivityTracker activity) {
+        this(new HashMap<>(), activity);
+    }
+
+    // Lets subclasses choose the backing map (e.g. a concurrent one)
+    protected FitnessServiceImpl(Map<String, User> users) {
+        this(users, new ActivityTracker());
+    }
+
+    protected FitnessServiceImpl(Map<String, User> users, ActivityTracker activity) {
+        this.users = users;
+        this.activity = activity;
     }
 
     @Override
     public void addUser(User user) {
+        long start = ADD_USER.start();
         users.put(user.getUserId(), user);
+        ADD_USER.stop(start);
     }
 
     @Override
     public User getUser(String userId) {
-        return users.get(userId);
+        long start = GET_USER.start();
+        User user = users.get(userId);
+        GET_USER.stop(start);
+        return user;
     }
 
     @Override
     public void addWorkoutToUser(String userId, WorkoutSession session) throws InvalidWorkoutException {
+        long start = ADD_WORKOUT.start();
+        boolean ok = false;
+        try {
+            addWorkout(userId, session);
+            activity.record(userId, session);
+            ok = true;
+        } finally {
+            ADD_WORKOUT.stop(start, ok);
+        }
+    }
+
+    // Untimed body of addWorkoutToUser — subclasses wrap it (e.g. in a lock)
+    protected void addWorkout(String userId, WorkoutSession session) throws InvalidWorkoutException {
         ValidationService.validateWorkoutSession(session);
         var user = users.get(userId);
         if (user == null) {
             throw new InvalidWorkoutException("User not found: " + userId);
         }
-        user.addWorkoutSession(session);
+        // Identical exercises across sessions share one instance (see ExerciseCatalog)
+        user.addWorkoutSession(ExerciseCatalog.global().canonical(session));
     }
 
-    // Demonstrating lambdas and Predicate
+    // Demonstrating lambdas and Predicate. A WorkoutQuery is pushed down to
+    // the history store instead of being tested against every session.
     @Override
     public List<WorkoutSession> filterWorkouts(String userId, Predicate<WorkoutSession> criteria) {
-        var user = users.get(userId);
-        if (user == null) {
-            return Collections.emptyList();
+        long start = FILTER_WORKOUTS.start();
+        try {
+            var user = users.get(userId);
+            if (user == null) {
+                return Collections.emptyList();
+            }
+            if (criteria instanceof WorkoutQuery query) {
+                return user.queryWorkouts(query).collect(Collectors.toList());
+            }
+            return user.getWorkoutHistory().stream()
+                .filter(criteria)
+                .collect(Collectors.toList());
+        } finally {
+            FILTER_WORKOUTS.stop(start);
         }
-        return user.getWorkoutHistory().stream()
-            .filter(criteria)
-            .collect(Collectors.toList());
     }
 
     @Override
     public double calculateUserProgress(String userId) {
+        long start = USER_PROGRESS.start();
         var user = users.get(userId);
-        if (user == null) return 0.0;
-        return user.getTotalCaloriesBurned();
+        double progress = user == null ? 0.0 : user.getTotalCaloriesBurned(); // O(1) — running total kept by User
+        USER_PROGRESS.stop(start);
+        return progress;
+    }
+
+    @Override
+    public WorkoutPage queryWorkouts(String userId, WorkoutQuery query, WorkoutPage.Cursor after) {
+        long start = QUERY_PAGE.start();
+        try {
+            var user = users.get(userId);
+            return user == null ? new WorkoutPage(List.of(), null) : user.queryWorkouts(query, after);
+        } finally {
+            QUERY_PAGE.stop(start);
+        }
+    }
+
+    /**
+     * Live, read-only view of every user — nothing is copied. Iterating it
+     * while users are added is only safe with a concurrent backing map
+     * (ConcurrentFitnessServiceImpl).
+     */
+    public Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    /** Approximate DAU/WAU/MAU and distinct exercises over every session added here. */
+    public ActivityTracker getActivity() {
+        return activity;
     }
 
     public List<String> getUserNames() {
@@ -0,0 +1,326 @@
+package service;
+
+import model.User;
+import model.WorkoutType;
+import service.AnalyticsService.AnalyticsResult;
+import sketch.QuantileSketch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Population-level analytics over every User a service holds.
+ *
+ * Work is partitioned by user: the user references are split across a
+ * fork/join pool, each slice folds its users into a FleetReport and the
+ * partial reports are merged pairwise. No history is copied — each user
+ * contributes its per-type counts, calories and minutes straight from its
+ * history store's running sums, so a user costs the same whether it has
+ * ten sessions or ten thousand. Duration and calorie percentiles come
+ * from merging each user's quantile sketches into the slice's.
+ *
+ * Totals are read per user without locking; with concurrent writers a
+ * report reflects each user as of the moment it was folded.
+ */
+public class FleetAnalytics {
+
+    /** Below this many users a slice is folded sequentially. */
+    static final int USERS_PER_TASK = 512;
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    public enum AgeBand {
+        UNKNOWN("unknown"), UNDER_18("<18"), AGE_18_29("18-29"), AGE_30_39("30-39"),
+        AGE_40_49("40-49"), AGE_50_59("50-59"), AGE_60_PLUS("60+");
+
+        private final String label;
+
+        AgeBand(String label) {
+            this.label = label;
+        }
+
+        public static AgeBand of(int age) {
+            if (age <= 0) return UNKNOWN;
+            if (age < 18) return UNDER_18;
+            if (age >= 60) return AGE_60_PLUS;
+            if (age < 30) return AGE_18_29;
+            return values()[age / 10]; // 30-39 -> AGE_30_39, ...
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /** WHO adult BMI categories; UNKNOWN when height or weight is missing. */
+    public enum BmiBand {
+        UNKNOWN("unknown"), UNDERWEIGHT("<18.5"), NORMAL("18.5-24.9"), OVERWEIGHT("25-29.9"), OBESE("30+");
+
+        private final String label;
+
+        BmiBand(String label) {
+            this.label = label;
+        }
+
+        public static BmiBand of(double bmi) {
+            if (!(bmi > 0)) return UNKNOWN;
+            if (bmi < 18.5) return UNDERWEIGHT;
+            if (bmi < 25) return NORMAL;
+            if (bmi < 30) return OVERWEIGHT;
+            return OBESE;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public FleetAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FleetAnalytics(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public FleetReport analyse(Collection<User> users) {
+        // Only the references are copied, to split by index
+        User[] rows = users.toArray(new User[0]);
+        if (rows.length <= USERS_PER_TASK) {
+            return FleetReport.fold(rows, 0, rows.length);
+        }
+        return pool.invoke(new FoldTask(rows, 0, rows.length));
+    }
+
+    // ----------------------------------------------------------------
+    // Fork/join task — split the users until the slice is small, then fold
+    // ----------------------------------------------------------------
+    @SuppressWarnings("serial")
+    private static final class FoldTask extends RecursiveTask<FleetReport> {
+        private final User[] rows;
+        private final int from;
+        private final int to;
+
+        FoldTask(User[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected FleetReport compute() {
+            if (to - from <= USERS_PER_TASK) {
+                return FleetReport.fold(rows, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            var left = new FoldTask(rows, from, mid);
+            left.fork();
+            var right = new FoldTask(rows, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // ----------------------------------------------------------------
+    // Group — users, active users and per-type totals for one slice of
+    // the population (everyone, an age band or a BMI band)
+    // ----------------------------------------------------------------
+    public static final class Group {
+        private long users;
+        private long activeUsers;
+        private final long[] sessions = new long[TYPES.length];
+        private final long[] minutes = new long[TYPES.length];
+        private final double[] calories = new double[TYPES.length];
+        private final long[] usersByType = new long[TYPES.length];
+
+        void add(long[] userSessions, long[] userMinutes, double[] userCalories) {
+            users++;
+            boolean active = false;
+            for (int t = 0; t < TYPES.length; t++) {
+                if (userSessions[t] == 0) continue;
+                active = true;
+                sessions[t] += userSessions[t];
+                minutes[t] += userMinutes[t];
+                calories[t] += userCalories[t];
+                usersByType[t]++;
+            }
+            if (active) activeUsers++;
+        }
+
+        void merge(Group other) {
+            users += other.users;
+            activeUsers += other.activeUsers;
+            for (int t = 0; t < TYPES.length; t++) {
+                sessions[t] += other.sessions[t];
+                minutes[t] += other.minutes[t];
+                calories[t] += other.calories[t];
+                usersByType[t] += other.usersByType[t];
+            }
+        }
+
+        public long getUsers() {
+            return users;
+        }
+
+        /** Users with at least one session. */
+        public long getActiveUsers() {
+            return activeUsers;
+        }
+
+        public long getSessionCount() {
+            long n = 0;
+            for (long s : sessions) n += s;
+            return n;
+        }
+
+        public long getSessionCount(WorkoutType type) {
+            return sessions[type.ordinal()];
+        }
+
+        public long getTotalDuration() {
+            long n = 0;
+            for (long m : minutes) n += m;
+            return n;
+        }
+
+        public long getTotalDuration(WorkoutType type) {
+            return minutes[type.ordinal()];
+        }
+
+        public double getTotalCalories() {
+            double sum = 0;
+            for (double c : calories) sum += c;
+            return sum;
+        }
+
+        public double getTotalCalories(WorkoutType type) {
+            return calories[type.ordinal()];
+        }
+
+        /** Users with at least one session of this type. */
+        public long getUsers(WorkoutType type) {
+            return usersByType[type.ordinal()];
+        }
+
+        /** This type's share of the group's sessions, 0..1. */
+        public double getShare(WorkoutType type) {
+            long total = getSessionCount();
+            return total == 0 ? 0 : (double) sessions[type.ordinal()] / total;
+        }
+
+        public double getAverageSessionsPerActiveUser() {
+            return activeUsers == 0 ? 0 : (double) getSessionCount() / activeUsers;
+        }
+
+        public double getAverageCaloriesPerSession() {
+            long total = getSessionCount();
+            return total == 0 ? 0 : getTotalCalories() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d users (%d active), %d sessions, %d min, %.0f kcal",
+                    users, activeUsers, getSessionCount(), getTotalDuration(), getTotalCalories());
+        }
+    }
+
+    // ----------------------------------------------------------------
+    // FleetReport — one per slice of users, merged pairwise
+    // ----------------------------------------------------------------
+    public static final class FleetReport {
+        private final Group population = new Group();
+        private final Group[] byAge = newGroups(AgeBand.values().length);
+        private final Group[] byBmi = newGroups(BmiBand.values().length);
+        private final QuantileSketch durationSketch = new QuantileSketch();
+        private final QuantileSketch calorieSketch = new QuantileSketch();
+
+        private static Group[] newGroups(int n) {
+            var groups = new Group[n];
+            for (int i = 0; i < n; i++) {
+                groups[i] = new Group();
+            }
+            return groups;
+        }
+
+        static FleetReport fold(User[] rows, int from, int to) {
+            var report = new FleetReport();
+            // Scratch arrays reused across the slice's users
+            var sessions = new long[TYPES.length];
+            var minutes = new long[TYPES.length];
+            var calories = new double[TYPES.length];
+            for (int i = from; i < to; i++) {
+                report.accept(rows[i], sessions, minutes, calories);
+            }
+            return report;
+        }
+
+        private void accept(User user, long[] sessions, long[] minutes, double[] calories) {
+            var store = user.getHistoryStore();
+            for (var type : TYPES) {
+                int t = type.ordinal();
+                sessions[t] = store.countOf(type);
+                minutes[t] = store.durationOf(type);
+                calories[t] = store.caloriesOf(type);
+            }
+            population.add(sessions, minutes, calories);
+            byAge[AgeBand.of(user.getAge()).ordinal()].add(sessions, minutes, calories);
+            byBmi[BmiBand.of(user.calculateBMI()).ordinal()].add(sessions, minutes, calories);
+            user.getDistributions().mergeInto(durationSketch, calorieSketch);
+        }
+
+        public FleetReport merge(FleetReport other) {
+            population.merge(other.population);
+            for (int i = 0; i < byAge.length; i++) {
+                byAge[i].merge(other.byAge[i]);
+            }
+            for (int i = 0; i < byBmi.length; i++) {
+                byBmi[i].merge(other.byBmi[i]);
+            }
+            durationSketch.merge(other.durationSketch);
+            calorieSketch.merge(other.calorieSketch);
+            return this;
+        }
+
+        public Group getPopulation() {
+            return population;
+        }
+
+        public Group getAgeBand(AgeBand band) {
+            return byAge[band.ordinal()];
+        }
+
+        public Group getBmiBand(BmiBand band) {
+            return byBmi[band.ordinal()];
+        }
+
+        /** Session durations (minutes) across the whole population. */
+        public QuantileSketch getDurationSketch() {
+            return durationSketch;
+        }
+
+        /** Session calories (kcal) across the whole population. */
+        public QuantileSketch getCalorieSketch() {
+            return calorieSketch;
+        }
+
+        /** Population totals, then sessions per type — same shape as the per-user report. */
+        public List<AnalyticsResult> toResults() {
+            var results = new ArrayList<AnalyticsResult>();
+            results.add(new AnalyticsResult("Users", population.getUsers(), "users"));
+            results.add(new AnalyticsResult("Active Users", population.getActiveUsers(), "users"));
+            results.add(new AnalyticsResult("Total Sessions", population.getSessionCount(), "sessions"));
+            results.add(new AnalyticsResult("Total Calories Burned", population.getTotalCalories(), "kcal"));
+            results.add(new AnalyticsResult("Avg Sessions per Active User",
+                    population.getAverageSessionsPerActiveUser(), "sessions"));
+            for (var type : TYPES) {
+                results.add(new AnalyticsResult(type.name() + " Share", population.getShare(type) * 100, "%"));
+            }
+            results.addAll(AnalyticsService.percentileResults(durationSketch, calorieSketch));
+            return results;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sparse sidecar index for a history CSV partition ({@code <id>.idx}).
+ *
+ * The writer cuts the CSV into blocks of roughly {@link #DEFAULT_BLOCK_BYTES}
+ * on row boundaries and records, per block, its byte range and the lowest
+ * and highest epoch day it contains. A date-range query reads only the
+ * blocks whose [minDay, maxDay] overlaps the range. Rows keep their saved
+ * order, so blocks are not required to be sorted — with the usual
+ * chronological history the day ranges barely overlap and pruning is tight.
+ *
+ * The header records the size and last-modified time of the CSV it was
+ * built for; if either differs the CSV was replaced or edited behind the
+ * index's back, and readers treat the index as stale.
+ *
+ * Layout (DataOutputStream, big-endian):
+ *   int magic, int version, long csvBytes, long csvModifiedNanos, int blockCount,
+ *   blockCount x { long offset, int length, int rows, int minDay, int maxDay }
+ */
+final class HistoryBlockIndex {
+
+    static final int DEFAULT_BLOCK_BYTES = 16 * 1024;
+    private static final int MAGIC = 0x46544449; // "FTDI"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+    private static final int BLOCK_BYTES = 24;
+
+    /** One contiguous run of whole CSV rows. */
+    record Block(long offset, int length, int rows, int minDay, int maxDay) {
+        boolean overlaps(long fromDay, long toDay) {
+            return maxDay >= fromDay && minDay <= toDay;
+        }
+    }
+
+    private final long csvBytes;
+    private final long csvModifiedNanos;
+    private final List<Block> blocks;
+
+    private HistoryBlockIndex(long csvBytes, long csvModifiedNanos, List<Block> blocks) {
+        this.csvBytes = csvBytes;
+        this.csvModifiedNanos = csvModifiedNanos;
+        this.blocks = blocks;
+    }
+
+    long csvBytes() {
+        return csvBytes;
+    }
+
+    /** Copy of this index stamped with the CSV's last-modified time. */
+    HistoryBlockIndex stampedWith(FileTime csvModified) {
+        return new HistoryBlockIndex(csvBytes, csvModified.to(TimeUnit.NANOSECONDS), blocks);
+    }
+
+    /** Whether this index was built for the CSV as it is now. */
+    boolean describes(long size, FileTime modified) {
+        return csvBytes == size && csvModifiedNanos == modified.to(TimeUnit.NANOSECONDS);
+    }
+
+    List<Block> blocks() {
+        return blocks;
+    }
+
+    /**
+     * Blocks overlapping [from, to], with neighbours merged so each run is
+     * read with a single sequential pass.
+     */
+    List<Block> blocksFor(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        var runs = new ArrayList<Block>();
+        Block run = null;
+        for (Block block : blocks) {
+            if (!block.overlaps(fromDay, toDay)) continue;
+            if (run != null && run.offset() + run.length() == block.offset()
+                    && (long) run.length() + block.length() <= Integer.MAX_VALUE) {
+                run = new Block(run.offset(), run.length() + block.length(), run.rows() + block.rows(),
+                        Math.min(run.minDay(), block.minDay()), Math.max(run.maxDay(), block.maxDay()));
+            } else {
+                if (run != null) runs.add(run);
+                run = block;
+            }
+        }
+        if (run != null) runs.add(run);
+        return runs;
+    }
+
+    // ------------------------------------------------------------------
+    // Read / write the sidecar
+    // ------------------------------------------------------------------
+
+    /** Loads the index, or returns null if there is none or it is unreadable. */
+    static HistoryBlockIndex read(Path file) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long fileBytes = Files.size(file);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            long csvBytes = in.readLong();
+            long csvModifiedNanos = in.readLong();
+            int count = in.readInt();
+            // A corrupt count must not size the list; the file bounds it
+            if (count < 0 || count > (fileBytes - HEADER_BYTES) / BLOCK_BYTES) return null;
+            var blocks = new ArrayList<Block>(count);
+            for (int i = 0; i < count; i++) {
+                var block = new Block(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                if (block.offset() < 0 || block.length() < 0 || block.rows() < 0) return null;
+                blocks.add(block);
+            }
+            return new HistoryBlockIndex(csvBytes, csvModifiedNanos, List.copyOf(blocks));
+        } catch (NoSuchFileException | EOFException e) {
+            return null; // missing or truncated: the caller falls back to a full scan
+        }
+    }
+
+    void write(Path file) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csvBytes);
+            out.writeLong(csvModifiedNanos);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeLong(block.offset());
+                out.writeInt(block.length());
+                out.writeInt(block.rows());
+                out.writeInt(block.minDay());
+                out.writeInt(block.maxDay());
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Builder — fed by the CSV writer, one call per row written
+    // ------------------------------------------------------------------
+    static final class Builder {
+        private final int blockBytes;
+        private final List<Block> blocks = new ArrayList<>();
+        private long position;
+        private long blockStart;
+        private int rows;
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+
+        Builder(int blockBytes) {
+            if (blockBytes <= 0) {
+                throw new IllegalArgumentException("Block size must be positive");
+            }
+            this.blockBytes = blockBytes;
+        }
+
+        /** Bytes written before the first row (the header line). */
+        void skip(long bytes) {
+            position += bytes;
+            blockStart = position;
+        }
+
+        void row(LocalDate date, long bytes) {
+            int day = Math.toIntExact(date.toEpochDay());
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            rows++;
+            position += bytes;
+            if (position - blockStart >= blockBytes) {
+                cut();
+            }
+        }
+
+        private void cut() {
+            if (rows == 0) return;
+            blocks.add(new Block(blockStart, (int) (position - blockStart), rows, minDay, maxDay));
+            blockStart = position;
+            rows = 0;
+            minDay = Integer.MAX_VALUE;
+            maxDay = Integer.MIN_VALUE;
+        }
+
+        /** The index is unstamped until {@link #stampedWith} records the CSV's mtime. */
+        HistoryBlockIndex build() {
+            cut();
+            return new HistoryBlockIndex(position, Long.MIN_VALUE, List.copyOf(blocks));
+        }
+    }
+
+    /** UTF-8 length of a line without encoding it. */
+    static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                bytes += 1;
+            } else if (ch < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
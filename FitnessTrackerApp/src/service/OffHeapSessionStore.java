@@ -0,0 +1,563 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.ExerciseCatalog;
+import model.StrengthExercise;
+import model.User;
+import model.WorkoutSession;
+import model.WorkoutType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Off-heap storage engine for very large session histories.
+ *
+ * Sessions and their exercises are packed into fixed-width little-endian
+ * structs (layouts below) in direct memory, allocated in chunks as the
+ * store grows, so hundreds of millions of rows cost the collector a few
+ * hundred buffer objects rather than a graph of records, Lists and
+ * Strings. Session ids and notes go to an off-heap string region; user
+ * ids and exercise names are interned to ints on the heap (a tenant has
+ * far fewer of those than sessions).
+ *
+ * Aggregations read the structs in place and allocate nothing per row.
+ * WorkoutSession and Exercise objects are only built when a caller asks
+ * for one ({@link #session}, {@link #sessions}), with exercises shared
+ * through the global ExerciseCatalog.
+ *
+ * The layouts are the Java 22 {@code MemoryLayout.structLayout} shapes;
+ * the memory API is still a preview in JDK 21, which this build targets,
+ * so the chunks are direct ByteBuffers. Appends are serialised on the
+ * store; readers run concurrently without locking and see every row
+ * appended before they started. {@link #close} releases the chunks to
+ * the collector; call it once no other thread is using the store.
+ */
+public final class OffHeapSessionStore implements AutoCloseable {
+
+    // Session struct (56 bytes)
+    static final int SESSION_SIZE = 56;
+    static final int S_SESSION_ID = 0;       // long  string ref
+    static final int S_NOTES = 8;            // long  string ref, NO_STRING if none
+    static final int S_FIRST_EXERCISE = 16;  // long  exercise row
+    static final int S_CALORIES = 24;        // double
+    static final int S_EPOCH_DAY = 32;       // int
+    static final int S_DURATION = 36;        // int   minutes
+    static final int S_EXERCISE_COUNT = 40;  // int
+    static final int S_USER = 44;            // int   user id
+    static final int S_TYPE = 48;            // byte  WorkoutType ordinal, 7 bytes padding
+
+    // Exercise struct (32 bytes) — a tagged union over the sealed Exercise
+    static final int EXERCISE_SIZE = 32;
+    static final int E_TAG = 0;              // byte  TAG_CARDIO | TAG_STRENGTH, 3 bytes padding
+    static final int E_DURATION = 4;         // int   minutes
+    static final int E_NAME = 8;             // int   ExerciseCatalog name id, NO_NAME if none
+    static final int E_INT_A = 12;           // int   heart rate | sets
+    static final int E_INT_B = 16;           // int   0 | reps, 4 bytes padding
+    static final int E_DOUBLE = 24;          // double distance | weight
+
+    static final byte TAG_CARDIO = 1;
+    static final byte TAG_STRENGTH = 2;
+    static final long NO_STRING = -1;
+
+    /** Default rows per chunk: 3.5 MB of sessions, 2 MB of exercises. */
+    public static final int DEFAULT_CHUNK_ROWS = 1 << 16;
+    private static final int STRING_CHUNK_BYTES = 1 << 20;
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+    private static final ExerciseCatalog CATALOG = ExerciseCatalog.global();
+
+    /** Primitive per-session callback, so a scan creates no objects. */
+    @FunctionalInterface
+    public interface SessionVisitor {
+        void visit(long row, long epochDay, WorkoutType type, int durationMinutes, double calories);
+    }
+
+    /** Session count, minutes and calories over some set of rows. */
+    public record Totals(long sessions, long minutes, double calories) {
+        static final Totals EMPTY = new Totals(0, 0, 0);
+    }
+
+    /** Exercise-level sums: cardio distance (km) and strength volume (sets x reps x kg). */
+    public record ExerciseTotals(long cardio, long strength, double distance, double volume) { }
+
+    /**
+     * Fixed-width records in equally sized chunks. The writer allocates a
+     * chunk before writing into it and publishes the grown array through the
+     * volatile field before the store's row count moves past it.
+     */
+    private static final class Region {
+        final int recordSize;
+        final int shift;
+        final int mask;
+        volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+        Region(int recordSize, int chunkRows) {
+            this.recordSize = recordSize;
+            this.shift = Integer.numberOfTrailingZeros(chunkRows);
+            this.mask = chunkRows - 1;
+        }
+
+        ByteBuffer chunk(long row) {
+            return chunks[(int) (row >>> shift)];
+        }
+
+        int offset(long row) {
+            return ((int) row & mask) * recordSize;
+        }
+
+        /** Chunk holding {@code row}, allocated if this is its first row. */
+        ByteBuffer forWrite(long row) {
+            int index = (int) (row >>> shift);
+            ByteBuffer[] current = chunks;
+            if (index == current.length) {
+                ByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+                grown[index] = ByteBuffer.allocateDirect((mask + 1) * recordSize).order(ByteOrder.LITTLE_ENDIAN);
+                chunks = grown;
+                current = grown;
+            }
+            return current[index];
+        }
+
+        long bytes() {
+            return (long) chunks.length * (mask + 1) * recordSize;
+        }
+    }
+
+    private final Region sessionRegion;
+    private final Region exerciseRegion;
+    private volatile ByteBuffer[] stringChunks = new ByteBuffer[0];
+    private int stringPosition = STRING_CHUNK_BYTES;    // forces the first chunk
+
+    private final ConcurrentHashMap<String, Integer> userIds = new ConcurrentHashMap<>();
+    private volatile String[] users = new String[16];  // id -> user id, grown under this
+
+    private long exerciseSize;                          // writer only
+    private volatile long size;                         // rows visible to readers
+    private volatile boolean closed;
+
+    public OffHeapSessionStore() {
+        this(DEFAULT_CHUNK_ROWS);
+    }
+
+    /** @param chunkRows rows per allocated chunk; a power of two */
+    public OffHeapSessionStore(int chunkRows) {
+        if (chunkRows <= 0 || Integer.bitCount(chunkRows) != 1) {
+            throw new IllegalArgumentException("Chunk rows must be a positive power of two: " + chunkRows);
+        }
+        if ((long) chunkRows * SESSION_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Chunk too large: " + chunkRows + " rows");
+        }
+        this.sessionRegion = new Region(SESSION_SIZE, chunkRows);
+        this.exerciseRegion = new Region(EXERCISE_SIZE, chunkRows);
+    }
+
+    // ----------------------------------------------------------------
+    // Appends
+    // ----------------------------------------------------------------
+
+    /**
+     * Packs {@code session} for {@code userId}; returns its row. All or
+     * nothing: a session that fails validation, or a write that fails
+     * partway, leaves no strings or exercise rows behind.
+     */
+    public synchronized long append(String userId, WorkoutSession session) {
+        checkOpen();
+        Objects.requireNonNull(userId, "userId");
+        int epochDay = Math.toIntExact(session.date().toEpochDay());
+        long row = size;
+        long firstExercise = exerciseSize;
+        ByteBuffer[] stringMark = stringChunks;
+        int stringPositionMark = stringPosition;
+        boolean published = false;
+        try {
+            var buffer = sessionRegion.forWrite(row);
+            int pos = sessionRegion.offset(row);
+            buffer.putLong(pos + S_SESSION_ID, putString(session.sessionId()));
+            buffer.putLong(pos + S_NOTES, session.notes() == null ? NO_STRING : putString(session.notes()));
+            buffer.putLong(pos + S_FIRST_EXERCISE, firstExercise);
+            buffer.putDouble(pos + S_CALORIES, session.calculateTotalCalories());
+            buffer.putInt(pos + S_EPOCH_DAY, epochDay);
+            buffer.putInt(pos + S_DURATION, session.totalDuration());
+            buffer.putInt(pos + S_EXERCISE_COUNT, session.getExerciseCount());
+            buffer.putInt(pos + S_USER, internUser(userId));
+            buffer.put(pos + S_TYPE, (byte) session.type().ordinal());
+            for (Exercise exercise : session.exercises()) {
+                putExercise(exerciseSize++, exercise);
+            }
+            size = row + 1; // publishes the row, its exercises and strings
+            published = true;
+            return row;
+        } finally {
+            if (!published) {
+                // Unpublished space is simply reused by the next append
+                exerciseSize = firstExercise;
+                stringChunks = stringMark;
+                stringPosition = stringPositionMark;
+            }
+        }
+    }
+
+    /** Packs every session in {@code user}'s history. */
+    public void appendAll(User user) {
+        for (WorkoutSession session : user.getWorkoutHistory()) {
+            append(user.getUserId(), session);
+        }
+    }
+
+    private void putExercise(long row, Exercise exercise) {
+        var buffer = exerciseRegion.forWrite(row);
+        int pos = exerciseRegion.offset(row);
+        buffer.putInt(pos + E_DURATION, exercise.getDuration());
+        buffer.putInt(pos + E_NAME, CATALOG.nameId(exercise.getName()));
+        switch (exercise) {
+            case CardioExercise c -> {
+                buffer.put(pos + E_TAG, TAG_CARDIO);
+                buffer.putInt(pos + E_INT_A, c.getHeartRate());
+                buffer.putInt(pos + E_INT_B, 0);
+                buffer.putDouble(pos + E_DOUBLE, c.getDistance());
+            }
+            case StrengthExercise s -> {
+                buffer.put(pos + E_TAG, TAG_STRENGTH);
+                buffer.putInt(pos + E_INT_A, s.getSets());
+                buffer.putInt(pos + E_INT_B, s.getReps());
+                buffer.putDouble(pos + E_DOUBLE, s.getWeight());
+            }
+        }
+    }
+
+    // Length-prefixed UTF-8; a string never straddles two chunks
+    private long putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int needed = 4 + bytes.length;
+        if (needed > STRING_CHUNK_BYTES) {
+            throw new IllegalArgumentException("String too long for off-heap storage: " + bytes.length + " bytes");
+        }
+        ByteBuffer[] chunks = stringChunks;
+        if (stringPosition + needed > STRING_CHUNK_BYTES) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = ByteBuffer.allocateDirect(STRING_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            stringChunks = chunks;
+            stringPosition = 0;
+        }
+        var chunk = chunks[chunks.length - 1];
+        long ref = (long) (chunks.length - 1) * STRING_CHUNK_BYTES + stringPosition;
+        chunk.putInt(stringPosition, bytes.length);
+        chunk.put(stringPosition + 4, bytes);
+        stringPosition += needed;
+        return ref;
+    }
+
+    private int internUser(String userId) {
+        Integer id = userIds.get(userId);
+        if (id != null) return id;
+        int next = userIds.size();
+        if (next == users.length) {
+            users = Arrays.copyOf(users, next * 2);
+        }
+        users[next] = userId;
+        userIds.put(userId, next); // published after the array slot is written
+        return next;
+    }
+
+    // ----------------------------------------------------------------
+    // Row accessors — read in place, no allocation
+    // ----------------------------------------------------------------
+    public long size() {
+        return size;
+    }
+
+    public long exerciseCount() {
+        long rows = size;
+        return rows == 0 ? 0 : firstExercise(rows - 1) + exerciseCount(rows - 1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int position(long row) {
+        checkOpen();
+        Objects.checkIndex(row, size);
+        return sessionRegion.offset(row);
+    }
+
+    public long epochDay(long row) {
+        int pos = position(row);
+        return sessionRegion.chunk(row).getInt(pos + S_EPOCH_DAY);
+    }
+
+    public WorkoutType type(long row) {
+        int pos = position(row);
+        return TYPES[sessionRegion.chunk(row).get(pos + S_TYPE)];
+    }
+
+    public int duration(long row) {
+        int pos = position(row);
+        return sessionRegion.chunk(row).getInt(pos + S_DURATION);
+    }
+
+    public double calories(long row) {
+        int pos = position(row);
+        return sessionRegion.chunk(row).getDouble(pos + S_CALORIES);
+    }
+
+    public int exerciseCount(long row) {
+        int pos = position(row);
+        return sessionRegion.chunk(row).getInt(pos + S_EXERCISE_COUNT);
+    }
+
+    private long firstExercise(long row) {
+        int pos = position(row);
+        return sessionRegion.chunk(row).getLong(pos + S_FIRST_EXERCISE);
+    }
+
+    public String userId(long row) {
+        int pos = position(row);
+        return users[sessionRegion.chunk(row).getInt(pos + S_USER)];
+    }
+
+    // ----------------------------------------------------------------
+    // Aggregations — straight over the session and exercise structs
+    // ----------------------------------------------------------------
+
+    /** Visits every row in order without materialising anything. */
+    public void forEachSession(SessionVisitor visitor) {
+        checkOpen();
+        long end = size;
+        ByteBuffer[] chunks = sessionRegion.chunks;
+        long row = 0;
+        for (int c = 0; row < end; c++) {
+            ByteBuffer chunk = chunks[c];
+            int limit = rowsIn(c, end) * SESSION_SIZE;
+            for (int pos = 0; pos < limit; pos += SESSION_SIZE, row++) {
+                visitor.visit(row, chunk.getInt(pos + S_EPOCH_DAY), TYPES[chunk.get(pos + S_TYPE)],
+                        chunk.getInt(pos + S_DURATION), chunk.getDouble(pos + S_CALORIES));
+            }
+        }
+    }
+
+    public double totalCalories() {
+        checkOpen();
+        double total = 0;
+        long end = size;
+        ByteBuffer[] chunks = sessionRegion.chunks;
+        for (int c = 0; (long) c << sessionRegion.shift < end; c++) {
+            ByteBuffer chunk = chunks[c];
+            int limit = rowsIn(c, end) * SESSION_SIZE;
+            for (int pos = 0; pos < limit; pos += SESSION_SIZE) {
+                total += chunk.getDouble(pos + S_CALORIES);
+            }
+        }
+        return total;
+    }
+
+    public long totalDuration() {
+        checkOpen();
+        long total = 0;
+        long end = size;
+        ByteBuffer[] chunks = sessionRegion.chunks;
+        for (int c = 0; (long) c << sessionRegion.shift < end; c++) {
+            ByteBuffer chunk = chunks[c];
+            int limit = rowsIn(c, end) * SESSION_SIZE;
+            for (int pos = 0; pos < limit; pos += SESSION_SIZE) {
+                total += chunk.getInt(pos + S_DURATION);
+            }
+        }
+        return total;
+    }
+
+    /** Totals of sessions dated in [from, to]. */
+    public Totals totals(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Range is reversed: " + from + " > " + to);
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        long[] counts = new long[2];
+        double[] calories = new double[1];
+        forEachSession((row, day, type, duration, kcal) -> {
+            if (day >= fromDay && day <= toDay) {
+                counts[0]++;
+                counts[1] += duration;
+                calories[0] += kcal;
+            }
+        });
+        return new Totals(counts[0], counts[1], calories[0]);
+    }
+
+    /** Totals per WorkoutType in one pass; every type is present. */
+    public Map<WorkoutType, Totals> totalsByType() {
+        long[] sessions = new long[TYPES.length];
+        long[] minutes = new long[TYPES.length];
+        double[] calories = new double[TYPES.length];
+        forEachSession((row, day, type, duration, kcal) -> {
+            int t = type.ordinal();
+            sessions[t]++;
+            minutes[t] += duration;
+            calories[t] += kcal;
+        });
+        var result = new EnumMap<WorkoutType, Totals>(WorkoutType.class);
+        for (WorkoutType type : TYPES) {
+            int t = type.ordinal();
+            result.put(type, new Totals(sessions[t], minutes[t], calories[t]));
+        }
+        return result;
+    }
+
+    /** Totals of one user's sessions; compares interned ids, not strings. */
+    public Totals totalsFor(String userId) {
+        checkOpen();
+        Integer id = userIds.get(userId);
+        if (id == null) return Totals.EMPTY;
+        long sessions = 0;
+        long minutes = 0;
+        double calories = 0;
+        long end = size;
+        ByteBuffer[] chunks = sessionRegion.chunks;
+        for (int c = 0; (long) c << sessionRegion.shift < end; c++) {
+            ByteBuffer chunk = chunks[c];
+            int limit = rowsIn(c, end) * SESSION_SIZE;
+            for (int pos = 0; pos < limit; pos += SESSION_SIZE) {
+                if (chunk.getInt(pos + S_USER) == id) {
+                    sessions++;
+                    minutes += chunk.getInt(pos + S_DURATION);
+                    calories += chunk.getDouble(pos + S_CALORIES);
+                }
+            }
+        }
+        return new Totals(sessions, minutes, calories);
+    }
+
+    /** Cardio distance and strength volume over every exercise struct. */
+    public ExerciseTotals exerciseTotals() {
+        checkOpen();
+        long cardio = 0;
+        long strength = 0;
+        double distance = 0;
+        double volume = 0;
+        long end = exerciseCount();
+        ByteBuffer[] chunks = exerciseRegion.chunks;
+        for (int c = 0; (long) c << exerciseRegion.shift < end; c++) {
+            ByteBuffer chunk = chunks[c];
+            int rows = (int) Math.min(end - ((long) c << exerciseRegion.shift), exerciseRegion.mask + 1);
+            for (int pos = 0, limit = rows * EXERCISE_SIZE; pos < limit; pos += EXERCISE_SIZE) {
+                if (chunk.get(pos + E_TAG) == TAG_CARDIO) {
+                    cardio++;
+                    distance += chunk.getDouble(pos + E_DOUBLE);
+                } else {
+                    strength++;
+                    volume += (double) (chunk.getInt(pos + E_INT_A) * chunk.getInt(pos + E_INT_B))
+                            * chunk.getDouble(pos + E_DOUBLE);
+                }
+            }
+        }
+        return new ExerciseTotals(cardio, strength, distance, volume);
+    }
+
+    private int rowsIn(int chunk, long end) {
+        return (int) Math.min(end - ((long) chunk << sessionRegion.shift), sessionRegion.mask + 1);
+    }
+
+    // ----------------------------------------------------------------
+    // Materialisation — objects only on request
+    // ----------------------------------------------------------------
+
+    /** Rebuilds the WorkoutSession stored at {@code row}. */
+    public WorkoutSession session(long row) {
+        int pos = position(row);
+        var buffer = sessionRegion.chunk(row);
+        long first = buffer.getLong(pos + S_FIRST_EXERCISE);
+        int count = buffer.getInt(pos + S_EXERCISE_COUNT);
+        var exercises = new ArrayList<Exercise>(count);
+        for (long e = first; e < first + count; e++) {
+            exercises.add(exercise(e));
+        }
+        return new WorkoutSession(
+                string(buffer.getLong(pos + S_SESSION_ID)),
+                LocalDate.ofEpochDay(buffer.getInt(pos + S_EPOCH_DAY)),
+                TYPES[buffer.get(pos + S_TYPE)],
+                exercises,
+                buffer.getInt(pos + S_DURATION),
+                string(buffer.getLong(pos + S_NOTES)));
+    }
+
+    /** Sessions dated in [from, to], in row order; only matching rows are built. */
+    public List<WorkoutSession> sessions(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        var rows = new ArrayList<Long>();
+        forEachSession((row, day, type, duration, kcal) -> {
+            if (day >= fromDay && day <= toDay) rows.add(row);
+        });
+        var result = new ArrayList<WorkoutSession>(rows.size());
+        for (long row : rows) {
+            result.add(session(row));
+        }
+        return result;
+    }
+
+    private Exercise exercise(long row) {
+        var buffer = exerciseRegion.chunk(row);
+        int pos = exerciseRegion.offset(row);
+        String name = CATALOG.name(buffer.getInt(pos + E_NAME));
+        int duration = buffer.getInt(pos + E_DURATION);
+        return switch (buffer.get(pos + E_TAG)) {
+            case TAG_CARDIO -> CATALOG.cardio(name, duration,
+                    buffer.getDouble(pos + E_DOUBLE), buffer.getInt(pos + E_INT_A));
+            case TAG_STRENGTH -> CATALOG.strength(name, duration,
+                    buffer.getInt(pos + E_INT_A), buffer.getInt(pos + E_INT_B), buffer.getDouble(pos + E_DOUBLE));
+            default -> throw new IllegalStateException("Corrupt exercise tag at row " + row);
+        };
+    }
+
+    private String string(long ref) {
+        if (ref == NO_STRING) return null;
+        var chunk = stringChunks[(int) (ref / STRING_CHUNK_BYTES)];
+        int pos = (int) (ref % STRING_CHUNK_BYTES);
+        var bytes = new byte[chunk.getInt(pos)];
+        chunk.get(pos + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ----------------------------------------------------------------
+    // Lifecycle
+    // ----------------------------------------------------------------
+
+    /** Direct memory held by allocated chunks (including unused tail rows). */
+    public long getOffHeapBytes() {
+        return sessionRegion.bytes() + exerciseRegion.bytes() + (long) stringChunks.length * STRING_CHUNK_BYTES;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Off-heap session store is closed");
+        }
+    }
+
+    /** Drops every chunk; the direct memory is freed once they are collected. */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        size = 0;
+        sessionRegion.chunks = new ByteBuffer[0];
+        exerciseRegion.chunks = new ByteBuffer[0];
+        stringChunks = new ByteBuffer[0];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapSessionStore[%d sessions, %d exercises, %.1f MB off-heap]",
+                size, exerciseCount(), getOffHeapBytes() / (1024.0 * 1024));
+    }
+}
@@ -0,0 +1,356 @@
+package service;
+
+import model.WorkoutSession;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Workout history partitioned by user: one CSV file per user under a
+ * hashed bucket directory, e.g. {@code users/3f/U003.csv}.
+ *
+ * Saving a user rewrites only that user's file (written to a temp file and
+ * atomically moved into place), so saves for different users never touch
+ * each other's data and can run in parallel. Saves to the same user are
+ * serialised by a striped lock. Loading one user reads one file.
+ *
+ * Each partition uses the history CSV layout read by WorkoutCsvReader.
+ * Next to it the writer keeps a sparse block index ({@code <id>.idx}, see
+ * HistoryBlockIndex) so date-range queries read only the blocks that can
+ * match, in constant memory, however large the partition grows. A save
+ * deletes the old index before replacing the CSV and writes the new one
+ * last, so a crash in between leaves no index (a full scan) rather than
+ * an index describing another version of the file.
+ *
+ * File names keep [a-z0-9_-] of the user id and escape everything else,
+ * upper-case letters included, so ids differing only in case ("abc",
+ * "ABC") get distinct files on case-insensitive filesystems too.
+ */
+public final class PartitionedHistoryStore {
+
+    private static final int BUCKETS = 256;
+    private static final int LOCK_STRIPES = 64;
+    private static final String SUFFIX = ".csv";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path root;
+    private final int indexBlockBytes;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public PartitionedHistoryStore(Path root) {
+        this(root, HistoryBlockIndex.DEFAULT_BLOCK_BYTES);
+    }
+
+    /** @param indexBlockBytes target size of one index block; smaller prunes finer */
+    public PartitionedHistoryStore(Path root, int indexBlockBytes) {
+        if (indexBlockBytes <= 0) {
+            throw new IllegalArgumentException("Index block size must be positive");
+        }
+        this.root = root;
+        this.indexBlockBytes = indexBlockBytes;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // ------------------------------------------------------------------
+    // Layout — bucket by hash, file name is a filesystem-safe user id
+    // ------------------------------------------------------------------
+    public Path pathFor(String userId) {
+        return pathFor(userId, SUFFIX);
+    }
+
+    /** Sibling file for the same user in another format, e.g. {@code ".fth"}. */
+    public Path pathFor(String userId, String suffix) {
+        return root.resolve(String.format("%02x", bucketOf(userId))).resolve(encode(userId) + suffix);
+    }
+
+    private static int bucketOf(String userId) {
+        int h = userId.hashCode();
+        h ^= (h >>> 16);
+        return h & (BUCKETS - 1);
+    }
+
+    // Keeps [a-z0-9_-]; everything else (incl. 'A'-'Z', '.', '/', '%') becomes %XX of its UTF-8 bytes
+    static String encode(String userId) {
+        var out = new StringBuilder(userId.length());
+        for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+            char ch = (char) (b & 0xFF);
+            if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9') || ch == '_' || ch == '-') {
+                out.append(ch);
+            } else {
+                out.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return out.toString();
+    }
+
+    // Same stripe as lockFor(Path) derives from the bucket directory name
+    private Object lockFor(String userId) {
+        return locks[bucketOf(userId) % LOCK_STRIPES];
+    }
+
+    // ------------------------------------------------------------------
+    // Save — one user's file only, atomic replace; the block index is
+    // rebuilt from the bytes as they are written
+    // ------------------------------------------------------------------
+    public Path save(String userId, List<WorkoutSession> sessions) throws IOException {
+        Path target = pathFor(userId);
+        Path indexFile = pathFor(userId, INDEX_SUFFIX);
+        int newLine = System.lineSeparator().length();
+        synchronized (lockFor(userId)) {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), encode(userId), ".tmp");
+            Path indexTemp = Files.createTempFile(target.getParent(), encode(userId), ".idx.tmp");
+            try {
+                var index = new HistoryBlockIndex.Builder(indexBlockBytes);
+                try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+                    writer.write(WorkoutCsvReader.HEADER);
+                    writer.newLine();
+                    index.skip(WorkoutCsvReader.HEADER.length() + newLine);
+                    for (WorkoutSession session : sessions) {
+                        String line = toCsvLine(userId, session);
+                        writer.write(line);
+                        writer.newLine();
+                        index.row(session.date(), HistoryBlockIndex.utf8Length(line) + newLine);
+                    }
+                }
+                // No moment where an old index sits next to the new CSV, even after a crash
+                Files.deleteIfExists(indexFile);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                index.build().stampedWith(Files.getLastModifiedTime(target)).write(indexTemp);
+                Files.move(indexTemp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+                Files.deleteIfExists(indexTemp);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Atomically moves {@code replacement} over {@code target}. When the
+     * target is one of this store's partitions this happens under the same
+     * per-user lock as save() and the partition's block index is deleted
+     * first (the next save rebuilds it), so a reader never pairs the new
+     * CSV with the old index. Used by restores into the live data directory.
+     */
+    public void replaceFile(Path replacement, Path target) throws IOException {
+        Object lock = lockFor(target);
+        if (lock == null) {
+            ChunkedBackupStore.replaceAtomically(replacement, target);
+            return;
+        }
+        synchronized (lock) {
+            String name = target.getFileName().toString();
+            if (name.endsWith(SUFFIX)) {
+                String base = name.substring(0, name.length() - SUFFIX.length());
+                Files.deleteIfExists(target.resolveSibling(base + INDEX_SUFFIX));
+            }
+            ChunkedBackupStore.replaceAtomically(replacement, target);
+        }
+    }
+
+    // Lock of the partition file at root/<bucket>/<name>, or null if the path is not one
+    private Object lockFor(Path file) {
+        Path bucket = file.toAbsolutePath().normalize().getParent();
+        if (bucket == null || !root.toAbsolutePath().normalize().equals(bucket.getParent())) return null;
+        try {
+            int index = Integer.parseInt(bucket.getFileName().toString(), 16);
+            return index >= 0 && index < BUCKETS ? locks[index % LOCK_STRIPES] : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String toCsvLine(String userId, WorkoutSession session) {
+        return String.join(",",
+                CsvTokenizer.escape(userId),
+                CsvTokenizer.escape(session.sessionId()),
+                session.date().toString(),
+                session.type().name(),
+                String.valueOf(session.totalDuration()),
+                String.format("%.0f", session.calculateTotalCalories()),
+                CsvTokenizer.escape(session.notes()));
+    }
+
+    // ------------------------------------------------------------------
+    // Load — a single user touches a single file
+    // ------------------------------------------------------------------
+    public List<WorkoutCsvReader.HistoryRow> load(String userId) throws IOException {
+        var rows = new ArrayList<WorkoutCsvReader.HistoryRow>();
+        forEach(userId, rows::add);
+        return rows;
+    }
+
+    public long forEach(String userId, Consumer<? super WorkoutCsvReader.HistoryRow> visitor) throws IOException {
+        Path file = pathFor(userId);
+        if (!Files.exists(file)) return 0;
+        return visitFile(file, visitor);
+    }
+
+    public boolean contains(String userId) {
+        return Files.exists(pathFor(userId));
+    }
+
+    // ------------------------------------------------------------------
+    // Date range — seek to the index blocks that can match
+    // ------------------------------------------------------------------
+
+    /**
+     * Visits the user's rows dated within [from, to] (inclusive), reading
+     * only the blocks the index says may contain them. Falls back to a
+     * filtered full scan when the index is missing or out of date.
+     */
+    public long forEachInRange(String userId, LocalDate from, LocalDate to,
+                               Consumer<? super WorkoutCsvReader.HistoryRow> visitor) throws IOException {
+        try (var rows = streamRange(userId, from, to)) {
+            long[] count = {0};
+            rows.forEach(row -> {
+                visitor.accept(row);
+                count[0]++;
+            });
+            return count[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Lazy form of forEachInRange; close the stream when done. */
+    public Stream<WorkoutCsvReader.HistoryRow> streamRange(String userId, LocalDate from, LocalDate to)
+            throws IOException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Range start " + from + " is after end " + to);
+        }
+        Path file = pathFor(userId);
+        FileChannel channel;
+        HistoryBlockIndex index;
+        synchronized (lockFor(userId)) { // the CSV and its index change together under this lock
+            if (!Files.exists(file)) return Stream.empty();
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                index = HistoryBlockIndex.read(pathFor(userId, INDEX_SUFFIX));
+                if (index != null && !index.describes(channel.size(), Files.getLastModifiedTime(file))) {
+                    index = null; // stale: the CSV changed since the index was written
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        Stream<WorkoutCsvReader.HistoryRow> rows;
+        if (index == null) {
+            rows = new WorkoutCsvReader(new InputStreamReader(Channels.newInputStream(channel),
+                    StandardCharsets.UTF_8)).rows();
+        } else {
+            rows = index.blocksFor(from, to).stream().flatMap(block -> new WorkoutCsvReader(
+                    new InputStreamReader(new RangeInputStream(channel, block.offset(), block.length()),
+                            StandardCharsets.UTF_8), false).rows());
+        }
+        return rows.filter(row -> !row.date().isBefore(from) && !row.date().isAfter(to))
+                   .onClose(() -> {
+                       try {
+                           channel.close();
+                       } catch (IOException e) {
+                           throw new UncheckedIOException(e);
+                       }
+                   });
+    }
+
+    // Positional reads over one byte range of a shared channel
+    private static final class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long offset, int length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == 1 ? one[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) return -1;
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n > 0) position += n;
+            return n;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Whole store — every partition file, bucket by bucket
+    // ------------------------------------------------------------------
+    public List<Path> partitionFiles() throws IOException {
+        var files = new ArrayList<Path>();
+        if (!Files.isDirectory(root)) return files;
+        try (DirectoryStream<Path> buckets = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path bucket : buckets) {
+                try (DirectoryStream<Path> users = Files.newDirectoryStream(bucket, "*" + SUFFIX)) {
+                    users.forEach(files::add);
+                }
+            }
+        }
+        files.sort(null); // stable order across platforms
+        return files;
+    }
+
+    public long forEachAll(Consumer<? super WorkoutCsvReader.HistoryRow> visitor) throws IOException {
+        long count = 0;
+        for (Path file : partitionFiles()) {
+            count += visitFile(file, visitor);
+        }
+        return count;
+    }
+
+    /** Lazily streams every row of every partition; close the stream when done. */
+    public Stream<WorkoutCsvReader.HistoryRow> streamAll() throws IOException {
+        return partitionFiles().stream().flatMap(file -> {
+            try {
+                return new WorkoutCsvReader(Files.newBufferedReader(file)).rows();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static long visitFile(Path file, Consumer<? super WorkoutCsvReader.HistoryRow> visitor)
+            throws IOException {
+        long[] count = {0};
+        try (var reader = new WorkoutCsvReader(Files.newBufferedReader(file))) {
+            reader.forEach(row -> {
+                visitor.accept(row);
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+}
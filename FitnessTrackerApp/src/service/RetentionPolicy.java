@@ -0,0 +1,69 @@
+package service;
+
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which backups to keep: the newest backup of each of the last
+ * {@code daily} days, {@code weekly} ISO weeks and {@code monthly} months
+ * that have one (grandfather-father-son). The newest backup overall is
+ * always kept. Days, weeks and months are taken in {@code zone}.
+ */
+public record RetentionPolicy(int daily, int weekly, int monthly, ZoneId zone) {
+
+    public RetentionPolicy {
+        if (daily < 0 || weekly < 0 || monthly < 0) {
+            throw new IllegalArgumentException("Retention counts must not be negative");
+        }
+        if (zone == null) {
+            throw new IllegalArgumentException("Retention zone is required");
+        }
+    }
+
+    public RetentionPolicy(int daily, int weekly, int monthly) {
+        this(daily, weekly, monthly, ZoneId.systemDefault());
+    }
+
+    /** 7 daily, 4 weekly, 12 monthly. */
+    public static RetentionPolicy defaults() {
+        return new RetentionPolicy(7, 4, 12);
+    }
+
+    /**
+     * Ids of the backups to keep.
+     *
+     * @param backups every backup, oldest first (as listed by the catalog)
+     */
+    public Set<String> select(List<BackupCatalog.Entry> backups) {
+        var keep = new LinkedHashSet<String>();
+        if (backups.isEmpty()) return keep;
+        keep.add(backups.get(backups.size() - 1).id());
+        keepNewestPerPeriod(backups, daily, ChronoUnit.DAYS, keep);
+        keepNewestPerPeriod(backups, weekly, ChronoUnit.WEEKS, keep);
+        keepNewestPerPeriod(backups, monthly, ChronoUnit.MONTHS, keep);
+        return keep;
+    }
+
+    // Walks newest to oldest; the first backup seen in a period is that period's newest
+    private void keepNewestPerPeriod(List<BackupCatalog.Entry> backups, int periods, ChronoUnit unit,
+                                     Set<String> keep) {
+        var seen = new HashSet<Long>();
+        for (int i = backups.size() - 1; i >= 0 && seen.size() < periods; i--) {
+            var entry = backups.get(i);
+            var date = entry.created().atZone(zone).toLocalDate();
+            long period = switch (unit) {
+                case DAYS -> date.toEpochDay();
+                case WEEKS -> date.get(IsoFields.WEEK_BASED_YEAR) * 100L + date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+                default -> date.getYear() * 100L + date.getMonthValue();
+            };
+            if (seen.add(period)) {
+                keep.add(entry.id());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package service;
+
+import model.WorkoutType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Typed, streaming reader for the workout history CSV written by
+ * WorkoutDataManager (userId,sessionId,date,type,durationMinutes,calories,notes).
+ *
+ * Rows are produced lazily — either as a Stream or pushed to a visitor —
+ * so files of any size are read in constant memory. Numbers and dates are
+ * parsed straight from CsvTokenizer's buffer, and quoted notes keep their
+ * commas and quotes intact.
+ */
+public final class WorkoutCsvReader implements Closeable {
+
+    public static final String HEADER = "userId,sessionId,date,type,durationMinutes,calories,notes";
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    /** One typed history row. */
+    public record HistoryRow(
+        String userId,
+        String sessionId,
+        LocalDate date,
+        WorkoutType type,
+        int durationMinutes,
+        double calories,
+        String notes
+    ) { }
+
+    private final CsvTokenizer tokenizer;
+    private boolean headerChecked;
+
+    public WorkoutCsvReader(Reader reader) {
+        this.tokenizer = new CsvTokenizer(reader);
+    }
+
+    /** Reader for a headerless slice of a history file (e.g. one index block). */
+    WorkoutCsvReader(Reader reader, boolean hasHeader) {
+        this(reader);
+        this.headerChecked = !hasHeader;
+    }
+
+    /**
+     * Reads the next row into the visitor.
+     *
+     * @return false once the input is exhausted
+     */
+    public boolean next(Consumer<? super HistoryRow> visitor) throws IOException {
+        while (tokenizer.nextRecord()) {
+            if (tokenizer.isBlank()) continue;
+            if (!headerChecked) {
+                headerChecked = true;
+                if (tokenizer.fieldEquals(0, "userId")) continue; // skip the header line
+            }
+            visitor.accept(parseRow());
+            return true;
+        }
+        return false;
+    }
+
+    /** Pushes every remaining row to the visitor. */
+    public void forEach(Consumer<? super HistoryRow> visitor) throws IOException {
+        while (next(visitor)) {
+            // visitor does the work
+        }
+    }
+
+    /**
+     * Lazily streams the remaining rows. Closing the stream closes this
+     * reader; I/O failures surface as UncheckedIOException.
+     */
+    public Stream<HistoryRow> rows() {
+        var spliterator = new Spliterators.AbstractSpliterator<HistoryRow>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super HistoryRow> action) {
+                try {
+                    return next(action);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private HistoryRow parseRow() throws IOException {
+        if (tokenizer.fieldCount() < 6) {
+            throw new IOException("Record " + tokenizer.getRecordNumber() + " has "
+                    + tokenizer.fieldCount() + " fields, expected 7");
+        }
+        try {
+            return new HistoryRow(
+                tokenizer.getString(0),
+                tokenizer.getString(1),
+                tokenizer.getDate(2),
+                parseType(3),
+                tokenizer.getInt(4),
+                tokenizer.getDouble(5),
+                tokenizer.fieldCount() > 6 ? tokenizer.getString(6) : ""
+            );
+        } catch (IllegalArgumentException | DateTimeException e) { // includes NumberFormatException
+            throw new IOException("Malformed history record " + tokenizer.getRecordNumber()
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Matches the enum constant in place — no String allocated per row
+    private WorkoutType parseType(int field) {
+        for (var type : TYPES) {
+            if (tokenizer.fieldEquals(field, type.name())) return type;
+        }
+        throw new IllegalArgumentException("Unknown workout type '" + tokenizer.getString(field) + "'");
+    }
+
+    @Override
+    public void close() throws IOException {
+        tokenizer.close();
+    }
+}
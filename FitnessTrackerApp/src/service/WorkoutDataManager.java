@@ -1,152 +1,553 @@
 package service;
 
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import model.User;
 import model.WorkoutSession;
 import model.WorkoutType;
+import sketch.QuantileSketch;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * OOP2 - NIO2 DEMO
  * Demonstrates: Path, Files, BufferedReader, BufferedWriter,
- *               Files.walkFileTree, BasicFileAttributes, directory creation
+ *               BasicFileAttributes, directory creation
  *
  * Handles saving and loading workout history to/from CSV files
- * using the modern java.nio.file API.
+ * using the modern java.nio.file API. History is partitioned per user
+ * (see PartitionedHistoryStore), so saves for different users run
+ * concurrently and never overwrite each other.
+ *
+ * Each I/O call is timed into the global MetricsRegistry as "io.<method>",
+ * with the bytes it wrote or read counted in "io.<method>.bytes". Lazy
+ * streams are not timed — their cost lands wherever the caller consumes them.
  */
 public class WorkoutDataManager {
 
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ISO_LOCAL_DATE;
     private static final String DATA_DIR = "fitness_data";
-    private static final String HISTORY_FILE = DATA_DIR + "/workout_history.csv";
-    private static final String BACKUP_DIR = DATA_DIR + "/backups";
+    private static final String BINARY_SUFFIX = ".fth";
+    private static final String SKETCH_SUFFIX = ".ftq";
+
+    /** Latency and bytes moved for one I/O entry point. */
+    private record IoMetric(Timer time, Counter bytes) {
+        static IoMetric of(String method) {
+            var registry = MetricsRegistry.global();
+            return new IoMetric(registry.timer("io." + method), registry.counter("io." + method + ".bytes"));
+        }
+
+        boolean enabled() {
+            return MetricsRegistry.global().isEnabled();
+        }
+    }
+
+    private static final IoMetric SAVE = IoMetric.of("saveWorkoutHistory");
+    private static final IoMetric LOAD = IoMetric.of("loadWorkoutHistory");
+    private static final IoMetric LOAD_USER = IoMetric.of("loadUserHistory");
+    private static final IoMetric SCAN = IoMetric.of("forEachWorkoutRecord");
+    private static final IoMetric RANGE = IoMetric.of("forEachWorkoutInRange");
+    private static final IoMetric EXPORT = IoMetric.of("exportWorkoutHistory");
+    private static final IoMetric SAVE_BINARY = IoMetric.of("saveBinaryHistory");
+    private static final IoMetric CONVERT = IoMetric.of("convertHistory");
+    private static final IoMetric BACKUP = IoMetric.of("backupHistory");
+    private static final IoMetric RESTORE = IoMetric.of("restoreBackup");
+    private static final IoMetric SAVE_SKETCHES = IoMetric.of("saveDistributions");
+
+    private final Path dataDir;
+    private final Path backupDir;
+    private final Path journalDir;
+    private final boolean verbose;
+    private final PartitionedHistoryStore partitions;
+    private final ChunkedBackupStore backups;
+    private volatile RetentionPolicy retentionPolicy = RetentionPolicy.defaults();
+    private ExecutorService retentionExecutor; // created on first use, guarded by this
+
+    /** Uses ./fitness_data and reports each operation on System.out. */
+    public WorkoutDataManager() {
+        this(Path.of(DATA_DIR), true);
+    }
+
+    /**
+     * @param dataDir root for user partitions, backups and the journal
+     * @param verbose whether to report each operation on System.out
+     */
+    public WorkoutDataManager(Path dataDir, boolean verbose) {
+        this.dataDir = dataDir;
+        this.backupDir = dataDir.resolve("backups");
+        this.journalDir = dataDir.resolve("journal");
+        this.verbose = verbose;
+        this.partitions = new PartitionedHistoryStore(dataDir.resolve("users"));
+        this.backups = new ChunkedBackupStore(backupDir);
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
 
     // ------------------------------------------------------------------
     // Initialise — create directories if they don't already exist (NIO2)
     // ------------------------------------------------------------------
     public void initialise() throws IOException {
-        Path dataPath = Path.of(DATA_DIR);
-        Path backupPath = Path.of(BACKUP_DIR);
+        Path dataPath = dataDir;
+        Path backupPath = backupDir;
 
         if (!Files.exists(dataPath)) {
             Files.createDirectories(dataPath);
-            System.out.println("  [NIO2] Created data directory: " + dataPath.toAbsolutePath());
+            log("  [NIO2] Created data directory: " + dataPath.toAbsolutePath());
         }
         if (!Files.exists(backupPath)) {
             Files.createDirectories(backupPath);
-            System.out.println("  [NIO2] Created backup directory: " + backupPath.toAbsolutePath());
+            log("  [NIO2] Created backup directory: " + backupPath.toAbsolutePath());
         }
     }
 
     // ------------------------------------------------------------------
-    // Write workout history to CSV — NIO2 Files.newBufferedWriter
+    // Write one user's history — NIO2 Files.newBufferedWriter, into that
+    // user's own partition file so other users' data is never touched
     // ------------------------------------------------------------------
     public void saveWorkoutHistory(String userId, List<WorkoutSession> sessions) throws IOException {
-        initialise();
-        Path filePath = Path.of(HISTORY_FILE);
-
-        try (BufferedWriter writer = Files.newBufferedWriter(
-                filePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-
-            writer.write("userId,sessionId,date,type,durationMinutes,calories,notes");
-            writer.newLine();
-
-            for (WorkoutSession session : sessions) {
-                String line = String.join(",",
-                        userId,
-                        session.sessionId(),
-                        session.date().format(DATE_FMT),
-                        session.type().name(),
-                        String.valueOf(session.totalDuration()),    // fixed: was durationMinutes()
-                        String.format("%.0f", session.calculateTotalCalories()),
-                        session.notes().replace(",", ";")
-                );
-                writer.write(line);
+        long start = SAVE.time().start();
+        boolean ok = false;
+        try {
+            initialise();
+            Path filePath = partitions.save(userId, sessions);
+            if (SAVE.enabled()) SAVE.bytes().add(Files.size(filePath));
+            log("  [NIO2] Saved " + sessions.size() + " sessions to: " + filePath.toAbsolutePath());
+            ok = true;
+        } finally {
+            SAVE.time().stop(start, ok);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Read workout history back from CSV — every user's partition
+    // ------------------------------------------------------------------
+    public List<String[]> loadWorkoutHistory() throws IOException {
+        long start = LOAD.time().start();
+        boolean ok = false;
+        try {
+            List<String[]> rows = new ArrayList<>();
+            var files = partitions.partitionFiles();
+
+            if (files.isEmpty()) {
+                log("  [NIO2] No history files found under: " + partitions.getRoot().toAbsolutePath());
+                ok = true;
+                return rows;
+            }
+
+            for (Path filePath : files) {
+                readRawRows(filePath, rows);
+            }
+            countBytes(LOAD, files);
+
+            log("  [NIO2] Loaded " + rows.size() + " workout records from "
+                    + files.size() + " user file(s).");
+            ok = true;
+            return rows;
+        } finally {
+            LOAD.time().stop(start, ok);
+        }
+    }
+
+    /** Typed rows for one user — reads only that user's partition file. */
+    public List<WorkoutCsvReader.HistoryRow> loadWorkoutHistory(String userId) throws IOException {
+        long start = LOAD_USER.time().start();
+        boolean ok = false;
+        try {
+            var rows = partitions.load(userId);
+            countBytes(LOAD_USER, List.of(partitions.pathFor(userId)));
+            ok = true;
+            return rows;
+        } finally {
+            LOAD_USER.time().stop(start, ok);
+        }
+    }
+
+    // Adds the size of whole files read to the metric (only while metrics are on)
+    private static void countBytes(IoMetric metric, List<Path> files) throws IOException {
+        if (!metric.enabled()) return;
+        long total = 0;
+        for (Path file : files) {
+            if (Files.exists(file)) total += Files.size(file);
+        }
+        metric.bytes().add(total);
+    }
+
+    // Quote-aware tokenizer, so notes containing commas stay one field
+    private static void readRawRows(Path filePath, List<String[]> rows) throws IOException {
+        try (var tokenizer = new CsvTokenizer(Files.newBufferedReader(filePath))) {
+            boolean header = true;
+            while (tokenizer.nextRecord()) {
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                if (tokenizer.isBlank()) continue;
+                var fields = new String[tokenizer.fieldCount()];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = tokenizer.getString(i);
+                }
+                rows.add(fields);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Streaming, typed read — constant memory regardless of file size
+    // ------------------------------------------------------------------
+
+    /**
+     * Lazily streams typed rows from every partition. The caller must
+     * close the stream (try-with-resources) to release the files.
+     */
+    public Stream<WorkoutCsvReader.HistoryRow> streamWorkoutHistory() throws IOException {
+        return partitions.streamAll();
+    }
+
+    /** Visitor form of streamWorkoutHistory; returns the number of rows visited. */
+    public long forEachWorkoutRecord(Consumer<? super WorkoutCsvReader.HistoryRow> visitor) throws IOException {
+        long start = SCAN.time().start();
+        boolean ok = false;
+        try {
+            long rows = partitions.forEachAll(visitor);
+            countBytes(SCAN, partitions.partitionFiles());
+            ok = true;
+            return rows;
+        } finally {
+            SCAN.time().stop(start, ok);
+        }
+    }
+
+    /** Visitor over a single user's partition. */
+    public long forEachWorkoutRecord(String userId, Consumer<? super WorkoutCsvReader.HistoryRow> visitor)
+            throws IOException {
+        long start = SCAN.time().start();
+        boolean ok = false;
+        try {
+            long rows = partitions.forEach(userId, visitor);
+            countBytes(SCAN, List.of(partitions.pathFor(userId)));
+            ok = true;
+            return rows;
+        } finally {
+            SCAN.time().stop(start, ok);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Date-range query — the partition's block index picks which byte
+    // ranges to read, so only matching parts of the file are touched
+    // ------------------------------------------------------------------
+    public long forEachWorkoutInRange(String userId, LocalDate from, LocalDate to,
+                                      Consumer<? super WorkoutCsvReader.HistoryRow> visitor) throws IOException {
+        // Bytes are not counted: the index decides how much is read
+        long start = RANGE.time().start();
+        boolean ok = false;
+        try {
+            long rows = partitions.forEachInRange(userId, from, to, visitor);
+            ok = true;
+            return rows;
+        } finally {
+            RANGE.time().stop(start, ok);
+        }
+    }
+
+    /** Lazy form of forEachWorkoutInRange; close the stream when done. */
+    public Stream<WorkoutCsvReader.HistoryRow> streamWorkoutHistory(String userId, LocalDate from, LocalDate to)
+            throws IOException {
+        return partitions.streamRange(userId, from, to);
+    }
+
+    // ------------------------------------------------------------------
+    // Export — all partitions combined into one CSV (header written once)
+    // ------------------------------------------------------------------
+    public void exportWorkoutHistory(Path target) throws IOException {
+        long start = EXPORT.time().start();
+        boolean ok = false;
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(target)) {
+                writer.write(WorkoutCsvReader.HEADER);
                 writer.newLine();
+                for (Path filePath : partitions.partitionFiles()) {
+                    try (BufferedReader reader = Files.newBufferedReader(filePath)) {
+                        reader.readLine(); // each partition's own header
+                        reader.transferTo(writer);
+                    }
+                }
             }
+            if (EXPORT.enabled()) EXPORT.bytes().add(Files.size(target));
+            ok = true;
+        } finally {
+            EXPORT.time().stop(start, ok);
         }
-        System.out.println("  [NIO2] Saved " + sessions.size() + " sessions to: " + filePath.toAbsolutePath());
     }
 
     // ------------------------------------------------------------------
-    // Read workout history back from CSV — NIO2 Files.newBufferedReader
+    // Binary history — compact, memory-mapped copy of a user's partition
+    // (see BinaryHistoryFormat); CSV stays the import/export format
     // ------------------------------------------------------------------
-    public List<String[]> loadWorkoutHistory() throws IOException {
-        Path filePath = Path.of(HISTORY_FILE);
-        List<String[]> rows = new ArrayList<>();
+    public Path saveBinaryHistory(String userId, List<WorkoutSession> sessions) throws IOException {
+        long start = SAVE_BINARY.time().start();
+        boolean ok = false;
+        try {
+            initialise();
+            Path filePath = partitions.pathFor(userId, BINARY_SUFFIX);
+            BinaryHistoryFormat.write(filePath, userId, sessions);
+            long size = Files.size(filePath);
+            SAVE_BINARY.bytes().add(size);
+            log("  [NIO2] Saved " + sessions.size() + " sessions (binary, "
+                    + size + " bytes) to: " + filePath.toAbsolutePath());
+            ok = true;
+            return filePath;
+        } finally {
+            SAVE_BINARY.time().stop(start, ok);
+        }
+    }
 
-        if (!Files.exists(filePath)) {
-            System.out.println("  [NIO2] No history file found at: " + filePath.toAbsolutePath());
+    /** Maps the user's binary history; close the reader when done. */
+    public BinaryHistoryReader openBinaryHistory(String userId) throws IOException {
+        return BinaryHistoryReader.open(partitions.pathFor(userId, BINARY_SUFFIX));
+    }
+
+    public long convertCsvToBinary(Path csv, Path binary) throws IOException {
+        long start = CONVERT.time().start();
+        boolean ok = false;
+        try {
+            long rows = BinaryHistoryFormat.csvToBinary(csv, binary);
+            countBytes(CONVERT, List.of(csv, binary));
+            ok = true;
             return rows;
+        } finally {
+            CONVERT.time().stop(start, ok);
         }
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            reader.lines()
-                  .skip(1)
-                  .map(line -> line.split(","))
-                  .forEach(rows::add);
+    public long convertBinaryToCsv(Path binary, Path csv) throws IOException {
+        long start = CONVERT.time().start();
+        boolean ok = false;
+        try {
+            long rows = BinaryHistoryFormat.binaryToCsv(binary, csv);
+            countBytes(CONVERT, List.of(binary, csv));
+            ok = true;
+            return rows;
+        } finally {
+            CONVERT.time().stop(start, ok);
         }
+    }
 
-        System.out.println("  [NIO2] Loaded " + rows.size() + " workout records from file.");
-        return rows;
+    // ------------------------------------------------------------------
+    // Distribution sketches — saved next to the user's partition so
+    // percentiles survive a restart without re-reading the history
+    // ------------------------------------------------------------------
+
+    /** Duration (minutes) and calorie (kcal) sketches as persisted for one user. */
+    public record SessionSketches(QuantileSketch duration, QuantileSketch calories) { }
+
+    public Path saveDistributions(User user) throws IOException {
+        long start = SAVE_SKETCHES.time().start();
+        boolean ok = false;
+        try {
+            initialise();
+            var distributions = user.getDistributions();
+            byte[] duration = distributions.getDurationSketch().toByteArray();
+            byte[] calories = distributions.getCalorieSketch().toByteArray();
+            var bytes = new byte[duration.length + calories.length];
+            System.arraycopy(duration, 0, bytes, 0, duration.length);
+            System.arraycopy(calories, 0, bytes, duration.length, calories.length);
+
+            Path filePath = partitions.pathFor(user.getUserId(), SKETCH_SUFFIX);
+            Files.createDirectories(filePath.getParent());
+            Path temp = Files.createTempFile(filePath.getParent(), filePath.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            SAVE_SKETCHES.bytes().add(bytes.length);
+            log("  [NIO2] Saved distribution sketches (" + bytes.length + " bytes) to: " + filePath.toAbsolutePath());
+            ok = true;
+            return filePath;
+        } finally {
+            SAVE_SKETCHES.time().stop(start, ok);
+        }
+    }
+
+    /** Sketches saved by {@link #saveDistributions}, or empty if none were saved for the user. */
+    public Optional<SessionSketches> loadDistributions(String userId) throws IOException {
+        Path filePath = partitions.pathFor(userId, SKETCH_SUFFIX);
+        if (!Files.exists(filePath)) {
+            return Optional.empty();
+        }
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(filePath));
+        try {
+            var duration = QuantileSketch.readFrom(buffer);
+            var calories = QuantileSketch.readFrom(buffer);
+            return Optional.of(new SessionSketches(duration, calories));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt distribution file " + filePath + ": " + e.getMessage(), e);
+        }
     }
 
     // ------------------------------------------------------------------
-    // Backup — copy current history file (NIO2 Files.copy + Path)
+    // Append-only journal — one record per saved workout, no rewrite
     // ------------------------------------------------------------------
-    public void backupHistory() throws IOException {
+
+    /**
+     * Opens (or recovers) the workout journal under the data directory.
+     * Replay it with {@link WorkoutJournal#restoreInto} on startup and
+     * close it on shutdown.
+     */
+    public WorkoutJournal openJournal() throws IOException {
         initialise();
-        Path source = Path.of(HISTORY_FILE);
-        if (!Files.exists(source)) {
-            System.out.println("  [NIO2] Nothing to back up — history file does not exist.");
-            return;
+        return WorkoutJournal.open(journalDir, WorkoutJournal.DEFAULT_COMMIT_INTERVAL,
+                WorkoutJournal.DEFAULT_COMPACT_THRESHOLD, message -> log("  [JOURNAL] " + message));
+    }
+
+    // ------------------------------------------------------------------
+    // Backup — incremental and deduplicated (see ChunkedBackupStore): only
+    // chunks that changed since earlier backups are written, and every
+    // backup gets its own timestamped manifest, so none is ever overwritten
+    // ------------------------------------------------------------------
+    public ChunkedBackupStore.BackupResult backupHistory() throws IOException {
+        long start = BACKUP.time().start();
+        boolean ok = false;
+        try {
+            ChunkedBackupStore.BackupResult result = backupPartitions();
+            ok = true;
+            return result;
+        } finally {
+            BACKUP.time().stop(start, ok);
+        }
+    }
+
+    private ChunkedBackupStore.BackupResult backupPartitions() throws IOException {
+        initialise();
+        var files = partitions.partitionFiles();
+        if (files.isEmpty()) {
+            log("  [NIO2] Nothing to back up — no history files exist.");
+            return null;
         }
 
-        String timestamp = LocalDate.now().format(DATE_FMT);
-        Path backup = Path.of(BACKUP_DIR + "/workout_history_" + timestamp + ".csv");
-        Files.copy(source, backup, StandardCopyOption.REPLACE_EXISTING);
-        System.out.println("  [NIO2] Backup created: " + backup.toAbsolutePath());
+        // Block indexes are not backed up; the next save rebuilds them
+        var result = backups.backup(dataDir, files);
+        BACKUP.bytes().add(result.bytesWritten());
+        log(String.format("  [NIO2] Backup created: %s (%d file(s), %d of %d chunks new, %d bytes written for %d read)",
+                result.backupId(), result.files(), result.newChunks(), result.chunks(),
+                result.bytesWritten(), result.bytesRead()));
+        enforceRetentionAsync();
+        return result;
+    }
+
+    /**
+     * Rebuilds a backup point under {@code targetDir}. Every file is
+     * restored to a temp file and atomically moved into place; restoring
+     * into the data directory itself replaces each partition under its
+     * per-user lock and drops its block index. Sessions already loaded
+     * into a FitnessService are not touched; reload the users afterwards.
+     */
+    public long restoreBackup(String backupId, Path targetDir) throws IOException {
+        long start = RESTORE.time().start();
+        boolean ok = false;
+        long bytes;
+        try {
+            bytes = backups.restore(backupId, targetDir, partitions::replaceFile);
+            RESTORE.bytes().add(bytes);
+            ok = true;
+        } finally {
+            RESTORE.time().stop(start, ok);
+        }
+        log("  [NIO2] Restored backup " + backupId + " (" + bytes + " bytes) to: "
+                + targetDir.toAbsolutePath());
+        return bytes;
     }
 
     // ------------------------------------------------------------------
-    // List backups — walkFileTree to show all backup files (NIO2)
+    // List backups — straight from the backup catalog, no directory walk
     // ------------------------------------------------------------------
     public void listBackups() throws IOException {
-        Path backupPath = Path.of(BACKUP_DIR);
-        if (!Files.exists(backupPath)) {
-            System.out.println("  [NIO2] No backup directory found.");
+        var entries = backups.catalog().entries();
+        if (entries.isEmpty()) {
+            System.out.println("  [NIO2] No backups found.");
             return;
         }
 
-        System.out.println("  [NIO2] Backup files found:");
-        Files.walkFileTree(backupPath, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                System.out.printf("    - %s  (%.1f KB, modified: %s)%n",
-                        file.getFileName(),
-                        attrs.size() / 1024.0,
-                        attrs.lastModifiedTime());
-                return FileVisitResult.CONTINUE;
+        System.out.println("  [NIO2] Backups in catalog:");
+        for (var entry : entries) {
+            System.out.printf("    - %s  (%d file(s), %.1f KB of history, %.1f KB stored, created: %s)%n",
+                    entry.id(),
+                    entry.files(),
+                    entry.logicalBytes() / 1024.0,
+                    entry.storedBytes() / 1024.0,
+                    entry.created());
+        }
+    }
+
+    public Optional<BackupCatalog.Entry> findBackup(String backupId) throws IOException {
+        return backups.catalog().find(backupId);
+    }
+
+    // ------------------------------------------------------------------
+    // Retention — enforced on a background thread after each backup, so
+    // neither saves nor the backup itself wait for deletion
+    // ------------------------------------------------------------------
+    public void setRetentionPolicy(RetentionPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Retention policy is required");
+        }
+        this.retentionPolicy = policy;
+    }
+
+    public RetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /** Queues a retention pass; passes run one at a time, in order. */
+    public Future<ChunkedBackupStore.RetentionResult> enforceRetentionAsync() {
+        var policy = retentionPolicy;
+        return retentionExecutor().submit(() -> {
+            try {
+                return backups.applyRetention(policy);
+            } catch (IOException e) {
+                System.err.println("  [NIO2] Backup retention failed: " + e.getMessage());
+                throw e;
             }
         });
     }
 
+    private synchronized ExecutorService retentionExecutor() {
+        if (retentionExecutor == null) {
+            retentionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                var thread = new Thread(runnable, "backup-retention");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return retentionExecutor;
+    }
+
     // ------------------------------------------------------------------
     // Get file metadata — demonstrates BasicFileAttributes (NIO2)
     // ------------------------------------------------------------------
     public void printFileInfo() throws IOException {
-        Path filePath = Path.of(HISTORY_FILE);
-        if (!Files.exists(filePath)) return;
-
-        BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
-        System.out.printf("  [NIO2] File: %s%n", filePath.toAbsolutePath());
-        System.out.printf("         Size: %.1f KB%n", attrs.size() / 1024.0);
-        System.out.printf("         Created:  %s%n", attrs.creationTime());
-        System.out.printf("         Modified: %s%n", attrs.lastModifiedTime());
+        for (Path filePath : partitions.partitionFiles()) {
+            BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
+            System.out.printf("  [NIO2] File: %s%n", filePath.toAbsolutePath());
+            System.out.printf("         Size: %.1f KB%n", attrs.size() / 1024.0);
+            System.out.printf("         Created:  %s%n", attrs.creationTime());
+            System.out.printf("         Modified: %s%n", attrs.lastModifiedTime());
+        }
     }
 }
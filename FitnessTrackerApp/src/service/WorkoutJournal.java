@@ -0,0 +1,587 @@
+package service;
+
+import model.User;
+import model.WorkoutSession;
+import exception.InvalidWorkoutException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of workout sessions.
+ *
+ * Saving a workout appends one framed record instead of rewriting the
+ * whole history file, so the cost of a save no longer grows with history.
+ *
+ *  - Record frame:   [int payloadLength][int crc32][payload]; the payload is
+ *                    the session encoded by WorkoutSessionCodec (UTF-8).
+ *  - Group commit:   appends go to the OS immediately; a flusher thread
+ *                    calls force() once per batch and completes every
+ *                    appender's future in that batch.
+ *  - Generations:    records go to journal-&lt;gen&gt;.log. Compaction seals the
+ *                    current generation, starts the next, and folds the
+ *                    sealed ones into snapshot.dat on a background thread.
+ *                    The snapshot header records the last generation it
+ *                    contains, so a crash at any point never replays a
+ *                    record twice.
+ *  - Recovery:       open() truncates a torn record at the tail of the
+ *                    newest generation; replay() reads the snapshot and then
+ *                    every newer generation in order.
+ *  - Reporting:      tail truncation and compaction are reported to the
+ *                    listener passed to open(); the default one is silent.
+ */
+public final class WorkoutJournal implements AutoCloseable {
+
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final int SNAPSHOT_MAGIC = 0x46544A53; // "FTJS"
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofMillis(2);
+    public static final long DEFAULT_COMPACT_THRESHOLD = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final long commitIntervalNanos;
+    private final long compactThresholdBytes;
+    private final Consumer<String> listener;
+
+    // Guarded by writeLock (monitor): current channel, generation and pending batch
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+    private long generation;
+    private long journalBytes;
+    private IOException failure;         // set when a torn frame could not be cut off
+    private List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+    // Flusher holds the read side while forcing; sealing takes the write side
+    private final ReadWriteLock rotateLock = new ReentrantReadWriteLock();
+    private final Thread flusher;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean(); // one queued background run
+    private final Object compactLock = new Object();             // one compaction writing the snapshot
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private volatile boolean closed;
+
+    private WorkoutJournal(Path directory, Duration commitInterval, long compactThresholdBytes,
+                           Consumer<String> listener) throws IOException {
+        this.directory = directory;
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.listener = listener;
+        Files.createDirectories(directory);
+
+        var generations = journalGenerations();
+        this.generation = generations.isEmpty()
+                ? Math.max(0, snapshotGeneration() + 1)
+                : generations.lastKey();
+        Path current = journalPath(generation);
+        if (Files.exists(current)) {
+            recoverTail(current, listener);
+        }
+        this.channel = openForAppend(current);
+        this.journalBytes = channel.size();
+
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static WorkoutJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_COMMIT_INTERVAL, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * @param commitInterval        how long the flusher waits to gather a batch before force()
+     * @param compactThresholdBytes journal size that triggers background compaction
+     */
+    public static WorkoutJournal open(Path directory, Duration commitInterval, long compactThresholdBytes)
+            throws IOException {
+        return open(directory, commitInterval, compactThresholdBytes, message -> { });
+    }
+
+    /** @param listener receives a line for each tail truncation, compaction and compaction failure */
+    public static WorkoutJournal open(Path directory, Duration commitInterval, long compactThresholdBytes,
+                                      Consumer<String> listener) throws IOException {
+        if (commitInterval.isNegative() || compactThresholdBytes <= 0) {
+            throw new IllegalArgumentException("Commit interval must be >= 0 and threshold positive");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        return new WorkoutJournal(directory, commitInterval, compactThresholdBytes, listener);
+    }
+
+    // ------------------------------------------------------------------
+    // Append — write now, durable once the returned future completes
+    // ------------------------------------------------------------------
+    public CompletableFuture<Void> append(String userId, WorkoutSession session) throws IOException {
+        ByteBuffer frame = frame(WorkoutSessionCodec.encode(userId, session));
+        var durable = new CompletableFuture<Void>();
+        boolean compactDue;
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+            if (failure != null) {
+                throw new IOException("Journal is failed; reopen it to recover", failure);
+            }
+            long start = journalBytes;
+            try {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException e) {
+                discardTornFrame(start, e);
+                throw e;
+            }
+            journalBytes += frame.capacity();
+            pending.add(durable);
+            compactDue = journalBytes >= compactThresholdBytes;
+            writeLock.notifyAll(); // wake the flusher
+        }
+        appends.incrementAndGet();
+        if (compactDue) {
+            compactAsync();
+        }
+        return durable;
+    }
+
+    /**
+     * A write that failed partway leaves a torn frame, and recovery stops at
+     * the first bad frame, so every record appended after it would be lost.
+     * Cut the file back to where the frame began; if even that fails, refuse
+     * further appends. Caller holds writeLock.
+     */
+    private void discardTornFrame(long start, IOException cause) {
+        try {
+            channel.truncate(start);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+        }
+    }
+
+    /** Appends and blocks until the record has been forced to disk. */
+    public void appendDurably(String userId, WorkoutSession session) throws IOException {
+        try {
+            append(userId, session).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private static ByteBuffer frame(String record) {
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        var crc = new CRC32();
+        crc.update(payload);
+        var frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return frame;
+    }
+
+    // ------------------------------------------------------------------
+    // Group commit — one force() per batch of appends
+    // ------------------------------------------------------------------
+    private void flushLoop() {
+        while (true) {
+            synchronized (writeLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        writeLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) return; // closed and drained
+            }
+            if (commitIntervalNanos > 0 && !closed) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(commitIntervalNanos); // let the batch fill up
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            commitPending();
+        }
+    }
+
+    private void commitPending() {
+        rotateLock.readLock().lock();
+        try {
+            List<CompletableFuture<Void>> batch;
+            FileChannel target;
+            synchronized (writeLock) {
+                batch = pending;
+                pending = new ArrayList<>();
+                target = channel;
+            }
+            if (batch.isEmpty()) return;
+            try {
+                target.force(false);
+                commits.incrementAndGet();
+                batch.forEach(f -> f.complete(null));
+            } catch (IOException e) {
+                batch.forEach(f -> f.completeExceptionally(e));
+            }
+        } finally {
+            rotateLock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Replay — snapshot first, then every newer journal generation
+    // ------------------------------------------------------------------
+
+    /** Streams every persisted session to the sink; returns the record count. */
+    public long replay(BiConsumer<String, WorkoutSession> sink) throws IOException {
+        long count = 0;
+        long included = -1;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+                included = readSnapshotHeader(in, snapshot);
+                count += readFrames(in, Long.MAX_VALUE, sink, false, snapshot);
+            }
+        }
+        var generations = journalGenerations();
+        long last = generations.isEmpty() ? -1 : generations.lastKey();
+        for (var entry : generations.entrySet()) {
+            if (entry.getKey() <= included) continue; // already folded into the snapshot
+            Path file = entry.getValue();
+            long limit = Files.size(file); // ignore records appended after replay began
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                count += readFrames(in, limit, sink, entry.getKey() == last, file);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds state after startup: every journaled session is added to its
+     * user, creating a placeholder User for ids the service doesn't know yet.
+     */
+    public long restoreInto(FitnessService service) throws IOException {
+        var failure = new IOException[1];
+        long count = replay((userId, session) -> {
+            if (failure[0] != null) return;
+            if (service.getUser(userId) == null) {
+                service.addUser(new User(userId, userId));
+            }
+            try {
+                service.addWorkoutToUser(userId, session);
+            } catch (InvalidWorkoutException e) {
+                failure[0] = new IOException("Journal holds an invalid session: " + e.getMessage(), e);
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+        return count;
+    }
+
+    /**
+     * Reads frames until {@code limit} bytes or a clean EOF. A damaged or
+     * truncated frame ends a tolerant read (torn tail); otherwise it is an error.
+     */
+    private static long readFrames(DataInputStream in, long limit, BiConsumer<String, WorkoutSession> sink,
+                                   boolean tolerateTornTail, Path file) throws IOException {
+        long count = 0;
+        long offset = 0;
+        var crc = new CRC32();
+        while (offset < limit) {
+            int first = in.read();
+            if (first == -1) break; // clean end on a record boundary
+            byte[] payload;
+            try {
+                int length = (first << 24) | (in.readUnsignedByte() << 16)
+                        | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+                int expectedCrc = in.readInt();
+                if (length < 0 || length > MAX_RECORD_BYTES || offset + 8 + length > limit) {
+                    throw new IOException("Bad record length " + length + " at offset " + offset + " in " + file);
+                }
+                payload = in.readNBytes(length);
+                if (payload.length != length) {
+                    throw new EOFException("Truncated record at offset " + offset + " in " + file);
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Checksum mismatch at offset " + offset + " in " + file);
+                }
+            } catch (IOException e) {
+                if (tolerateTornTail) break;
+                throw e;
+            }
+            offset += 8 + payload.length;
+            var entry = WorkoutSessionCodec.decode(new String(payload, StandardCharsets.UTF_8));
+            sink.accept(entry.userId(), entry.session());
+            count++;
+        }
+        return count;
+    }
+
+    // Drops a partially written record left by a crash at the end of the file
+    private static void recoverTail(Path file, Consumer<String> listener) throws IOException {
+        long valid = 0;
+        try (var ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            var header = ByteBuffer.allocate(8);
+            var crc = new CRC32();
+            while (valid + 8 <= size) {
+                header.clear();
+                if (readFully(ch, header, valid) < 8) break;
+                header.flip();
+                int length = header.getInt();
+                int expectedCrc = header.getInt();
+                if (length < 0 || length > MAX_RECORD_BYTES || valid + 8 + length > size) break;
+                var payload = ByteBuffer.allocate(length);
+                if (readFully(ch, payload, valid + 8) < length) break;
+                crc.reset();
+                crc.update(payload.flip());
+                if ((int) crc.getValue() != expectedCrc) break;
+                valid += 8 + length;
+            }
+            if (valid < size) {
+                listener.accept("Truncating torn tail of " + file.getFileName()
+                        + " at byte " + valid + " (was " + size + ")");
+                ch.truncate(valid);
+                ch.force(true);
+            }
+        }
+    }
+
+    private static int readFully(FileChannel ch, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int n = ch.read(buffer, position + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    // ------------------------------------------------------------------
+    // Compaction — seal the current generation, fold into the snapshot
+    // ------------------------------------------------------------------
+
+    /** Schedules a compaction unless one is already running. */
+    public Future<?> compactAsync() {
+        if (closed || !compacting.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return compactor.submit(() -> {
+            try {
+                compactNow();
+            } catch (IOException e) {
+                listener.accept("Compaction failed: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Folds all sealed generations into snapshot.dat (runs on the caller's
+     * thread). Waits for any compaction already in progress, since both
+     * would write the same temporary snapshot.
+     */
+    public void compactNow() throws IOException {
+        synchronized (compactLock) {
+            compact();
+        }
+    }
+
+    // Caller holds compactLock
+    private void compact() throws IOException {
+        long sealed = seal();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        long included = -1;
+
+        try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(12).putInt(SNAPSHOT_MAGIC).putLong(sealed).flip());
+            if (Files.exists(snapshot)) {
+                try (var in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                    var header = ByteBuffer.allocate(12);
+                    readFully(in, header, 0);
+                    included = header.flip().getInt() == SNAPSHOT_MAGIC ? header.getLong() : -1;
+                    transfer(in, 12, in.size() - 12, out);
+                }
+            }
+            for (var entry : journalGenerations().entrySet()) {
+                long gen = entry.getKey();
+                if (gen <= included || gen > sealed) continue;
+                try (var in = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                    transfer(in, 0, in.size(), out);
+                }
+            }
+            out.force(true);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (var entry : journalGenerations().entrySet()) {
+            if (entry.getKey() <= sealed) {
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+        listener.accept("Compacted generations <= " + sealed + " into " + snapshot.getFileName());
+    }
+
+    // Makes the current generation immutable and starts the next one
+    private long seal() throws IOException {
+        rotateLock.writeLock().lock();
+        try {
+            synchronized (writeLock) {
+                long sealed = generation;
+                channel.force(false);
+                commits.incrementAndGet();
+                pending.forEach(f -> f.complete(null));
+                pending = new ArrayList<>();
+                channel.close();
+                generation++;
+                channel = openForAppend(journalPath(generation));
+                journalBytes = 0;
+                return sealed;
+            }
+        } finally {
+            rotateLock.writeLock().unlock();
+        }
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = in.transferTo(position + done, count - done, out);
+            if (n <= 0) break;
+            done += n;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Files and generations
+    // ------------------------------------------------------------------
+    private Path journalPath(long gen) {
+        return directory.resolve(String.format("%s%012d%s", JOURNAL_PREFIX, gen, JOURNAL_SUFFIX));
+    }
+
+    private TreeMap<Long, Path> journalGenerations() throws IOException {
+        var generations = new TreeMap<Long, Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String digits = name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length());
+                try {
+                    generations.put(Long.parseLong(digits), file);
+                } catch (NumberFormatException e) {
+                    // not one of ours — leave it alone
+                }
+            }
+        }
+        return generations;
+    }
+
+    private long snapshotGeneration() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) return -1;
+        try (InputStream raw = Files.newInputStream(snapshot); var in = new DataInputStream(raw)) {
+            return readSnapshotHeader(in, snapshot);
+        }
+    }
+
+    private static long readSnapshotHeader(DataInputStream in, Path snapshot) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a journal snapshot: " + snapshot);
+        }
+        return in.readLong();
+    }
+
+    private static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // ------------------------------------------------------------------
+    // Monitoring and lifecycle
+    // ------------------------------------------------------------------
+    public long getGeneration() {
+        synchronized (writeLock) {
+            return generation;
+        }
+    }
+
+    public long getJournalBytes() {
+        synchronized (writeLock) {
+            return journalBytes;
+        }
+    }
+
+    public long getAppendCount() {
+        return appends.get();
+    }
+
+    /** Number of force() calls — appends / commits is the average batch size. */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) return;
+            closed = true;
+            writeLock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commitPending(); // anything that raced with shutdown
+        synchronized (writeLock) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.ExerciseCatalog;
+import model.StrengthExercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+
+/**
+ * Lossless text encoding of a user's WorkoutSession, exercises included,
+ * as a single CSV record:
+ *
+ *   userId,sessionId,date,type,totalDuration,notes,exerciseCount,
+ *     C,name,duration,distance,heartRate,  (per cardio exercise, padded)
+ *     S,name,duration,sets,reps,weight     (per strength exercise)
+ *
+ * Unlike the history CSV this keeps everything needed to rebuild the
+ * record, so it is what the journal persists.
+ */
+public final class WorkoutSessionCodec {
+
+    /** A decoded record: the session plus the user it belongs to. */
+    public record Entry(String userId, WorkoutSession session) { }
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+    private static final ExerciseCatalog CATALOG = ExerciseCatalog.global(); // decoded exercises are shared
+    private static final int SESSION_FIELDS = 7;
+    private static final int EXERCISE_FIELDS = 6;
+
+    private WorkoutSessionCodec() {
+    }
+
+    public static String encode(String userId, WorkoutSession session) {
+        var line = new StringBuilder(128);
+        line.append(CsvTokenizer.escape(userId)).append(',')
+            .append(CsvTokenizer.escape(session.sessionId())).append(',')
+            .append(session.date()).append(',')
+            .append(session.type().name()).append(',')
+            .append(session.totalDuration()).append(',')
+            .append(CsvTokenizer.escape(session.notes())).append(',')
+            .append(session.exercises().size());
+        for (var exercise : session.exercises()) {
+            line.append(',');
+            if (exercise instanceof CardioExercise cardio) {
+                line.append("C,").append(CsvTokenizer.escape(cardio.getName())).append(',')
+                    .append(cardio.getDuration()).append(',')
+                    .append(cardio.getDistance()).append(',')
+                    .append(cardio.getHeartRate()).append(',');
+            } else if (exercise instanceof StrengthExercise strength) {
+                line.append("S,").append(CsvTokenizer.escape(strength.getName())).append(',')
+                    .append(strength.getDuration()).append(',')
+                    .append(strength.getSets()).append(',')
+                    .append(strength.getReps()).append(',')
+                    .append(strength.getWeight());
+            }
+        }
+        return line.toString();
+    }
+
+    public static Entry decode(String line) throws IOException {
+        try (var tokenizer = new CsvTokenizer(new StringReader(line), Math.max(16, line.length()))) {
+            if (!tokenizer.nextRecord()) {
+                throw new IOException("Empty session record");
+            }
+            return decode(tokenizer);
+        }
+    }
+
+    /** Decodes the tokenizer's current record. */
+    public static Entry decode(CsvTokenizer tokenizer) throws IOException {
+        try {
+            int exerciseCount = tokenizer.getInt(6);
+            int expected = SESSION_FIELDS + exerciseCount * EXERCISE_FIELDS;
+            if (exerciseCount < 0 || tokenizer.fieldCount() != expected) {
+                throw new IOException("Session record " + tokenizer.getRecordNumber() + " has "
+                        + tokenizer.fieldCount() + " fields, expected " + expected);
+            }
+            var exercises = new ArrayList<Exercise>(exerciseCount);
+            for (int i = 0, f = SESSION_FIELDS; i < exerciseCount; i++, f += EXERCISE_FIELDS) {
+                exercises.add(decodeExercise(tokenizer, f));
+            }
+            var session = new WorkoutSession(
+                tokenizer.getString(1),
+                tokenizer.getDate(2),
+                decodeType(tokenizer, 3),
+                exercises,
+                tokenizer.getInt(4),
+                tokenizer.getString(5));
+            return new Entry(tokenizer.getString(0), session);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IOException("Malformed session record " + tokenizer.getRecordNumber()
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Exercise decodeExercise(CsvTokenizer tokenizer, int f) {
+        if (tokenizer.fieldEquals(f, "C")) {
+            return CATALOG.cardio(tokenizer.getString(f + 1), tokenizer.getInt(f + 2),
+                    tokenizer.getDouble(f + 3), tokenizer.getInt(f + 4));
+        }
+        if (tokenizer.fieldEquals(f, "S")) {
+            return CATALOG.strength(tokenizer.getString(f + 1), tokenizer.getInt(f + 2),
+                    tokenizer.getInt(f + 3), tokenizer.getInt(f + 4), tokenizer.getDouble(f + 5));
+        }
+        throw new IllegalArgumentException("Unknown exercise kind '" + tokenizer.getString(f) + "'");
+    }
+
+    private static WorkoutType decodeType(CsvTokenizer tokenizer, int field) {
+        for (var type : TYPES) {
+            if (tokenizer.fieldEquals(field, type.name())) return type;
+        }
+        throw new IllegalArgumentException("Unknown workout type '" + tokenizer.getString(field) + "'");
+    }
+}
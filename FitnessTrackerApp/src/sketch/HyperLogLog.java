@@ -0,0 +1,226 @@
+package sketch;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * HyperLogLog distinct-count sketch.
+ *
+ * 2^p registers each remember the longest run of leading zeros seen among
+ * the hashes routed to them; the harmonic mean of the registers estimates
+ * the number of distinct items with a relative standard error of
+ * 1.04 / sqrt(2^p), in 2^p bytes however many items are added. Small
+ * cardinalities fall back to linear counting, so they are near exact.
+ *
+ * Safe for concurrent use: registers are packed four to an int and raised
+ * with compare-and-set, so any number of threads may add to one sketch.
+ * Sketches of the same precision merge by taking each register's maximum,
+ * which gives exactly the sketch of the union — across days, threads or
+ * machines.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    static final int MAGIC = 0x314C4C48;     // "HLL1" read as little-endian
+    static final int VERSION = 1;
+
+    private final int precision;
+    private final int registerCount;
+    private final AtomicIntegerArray registers; // 4 x 8-bit registers per int
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be in [" + MIN_PRECISION + ", "
+                    + MAX_PRECISION + "]: " + precision);
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+        this.registers = new AtomicIntegerArray(registerCount / 4);
+    }
+
+    /** Smallest sketch whose relative standard error is at most {@code relativeError}. */
+    public static HyperLogLog withError(double relativeError) {
+        return new HyperLogLog(precisionFor(relativeError));
+    }
+
+    /** Precision needed for a relative standard error of at most {@code relativeError}. */
+    public static int precisionFor(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("Relative error must be in (0, 1): " + relativeError);
+        }
+        double registersNeeded = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registersNeeded) / Math.log(2));
+        if (precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Relative error " + relativeError + " needs more than 2^"
+                    + MAX_PRECISION + " registers");
+        }
+        return Math.max(MIN_PRECISION, precision);
+    }
+
+    /** Relative standard error for a precision: 1.04 / sqrt(2^p). */
+    public static double errorFor(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    // ----------------------------------------------------------------
+    // Updates
+    // ----------------------------------------------------------------
+    public void add(String item) {
+        addHash(hash(item));
+    }
+
+    /** Adds an item by its 64-bit hash; the hash must be well mixed. */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Leading zeros of the remaining bits, plus one; the sentinel bit caps it
+        long rest = (hash << precision) | (1L << (precision - 1));
+        int rank = Long.numberOfLeadingZeros(rest) + 1;
+        raise(index, rank);
+    }
+
+    private void raise(int index, int rank) {
+        int slot = index >>> 2;
+        int shift = (index & 3) << 3;
+        while (true) {
+            int packed = registers.get(slot);
+            if (((packed >>> shift) & 0xFF) >= rank) return; // the common case: no write at all
+            int updated = (packed & ~(0xFF << shift)) | (rank << shift);
+            if (registers.compareAndSet(slot, packed, updated)) return;
+        }
+    }
+
+    private int register(int index) {
+        return (registers.get(index >>> 2) >>> ((index & 3) << 3)) & 0xFF;
+    }
+
+    /** Folds {@code other} into this sketch (register-wise max). */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision
+                    + " into precision " + precision);
+        }
+        for (int i = 0; i < registerCount; i++) {
+            int rank = other.register(i);
+            if (rank > 0) raise(i, rank);
+        }
+        return this;
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(precision).merge(this);
+    }
+
+    // ----------------------------------------------------------------
+    // Queries
+    // ----------------------------------------------------------------
+    public int getPrecision() {
+        return precision;
+    }
+
+    /** Relative standard error of {@link #estimate}. */
+    public double getRelativeError() {
+        return errorFor(precision);
+    }
+
+    /** Estimated number of distinct items added. */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < registerCount; i++) {
+            int rank = register(i);
+            sum += Double.longBitsToDouble((long) (1023 - rank) << 52); // 2^-rank
+            if (rank == 0) zeros++;
+        }
+        double m = registerCount;
+        double estimate = alpha(registerCount) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log(m / zeros); // linear counting for small cardinalities
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < registers.length(); i++) {
+            if (registers.get(i) != 0) return false;
+        }
+        return true;
+    }
+
+    // ----------------------------------------------------------------
+    // Hashing — 64-bit FNV-1a over the UTF-16 chars, then a murmur3
+    // finaliser so every bit of the result depends on every input bit
+    // ----------------------------------------------------------------
+    public static long hash(String item) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            h ^= item.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // ----------------------------------------------------------------
+    // Serialisation — little-endian: magic, version, precision, registers
+    // ----------------------------------------------------------------
+    public byte[] toByteArray() {
+        var buffer = ByteBuffer.allocate(12 + registerCount).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(precision);
+        for (int i = 0; i < registerCount; i++) {
+            buffer.put((byte) register(i));
+        }
+        return buffer.array();
+    }
+
+    /** @throws IllegalArgumentException if the bytes are not a valid sketch */
+    public static HyperLogLog fromByteArray(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a HyperLogLog sketch");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported HyperLogLog version " + version);
+            }
+            var sketch = new HyperLogLog(buffer.getInt());
+            for (int i = 0; i < sketch.registerCount; i++) {
+                int rank = buffer.get() & 0xFF;
+                if (rank > 65 - sketch.precision) {
+                    throw new IllegalArgumentException("Corrupt HyperLogLog register " + i + ": " + rank);
+                }
+                if (rank > 0) sketch.raise(i, rank);
+            }
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("HyperLogLog sketch truncated", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HyperLogLog[p=%d, ~%d distinct, +/-%.1f%%]",
+                precision, estimate(), getRelativeError() * 100);
+    }
+}
@@ -0,0 +1,415 @@
+package sketch;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch (KLL) with bounded memory.
+ *
+ * Values go into a stack of compactors. Level h holds items that each
+ * stand for 2^h inputs; when the sketch is over capacity, the lowest full
+ * level is sorted and every other item (random offset) is promoted to the
+ * level above. Capacities shrink geometrically (factor 2/3) going down, so
+ * at most about 3k doubles are kept however many values are added, and the
+ * rank error is roughly 1.7 / k (about 1% at the default k = 200).
+ * Count, min and max are exact.
+ *
+ * Not thread-safe: update one sketch per thread (or under the owner's
+ * lock) and {@link #merge} the results, as fork/join partitions do.
+ * Sketches serialise to a compact little-endian form with
+ * {@link #toByteArray} / {@link #fromByteArray}.
+ */
+public final class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+    public static final int MIN_K = 8;
+
+    static final int MAGIC = 0x314B5351;     // "QSK1" read as little-endian
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8 + 8 + 4;
+    private static final int MAX_LEVELS = 61; // weights stay within a long
+    private static final double SHRINK = 2.0 / 3.0;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int k;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private int numLevels = 1;
+    private int retained;
+    private int[] capacities;                 // per level, recomputed when a level is added
+    private int totalCapacity;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long random;                      // xorshift state for the compaction coin
+
+    // Sorted (value, cumulative weight) view, rebuilt on the first query after a change
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < MIN_K || k > 65_535) {
+            throw new IllegalArgumentException("k must be in [" + MIN_K + ", 65535]: " + k);
+        }
+        this.k = k;
+        this.random = 0x9E3779B97F4A7C15L ^ k;
+        levels[0] = new double[INITIAL_CAPACITY];
+        updateCapacities();
+    }
+
+    // ----------------------------------------------------------------
+    // Updates
+    // ----------------------------------------------------------------
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a quantile sketch");
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        count++;
+        append(0, value);
+        retained++;
+        if (retained >= totalCapacity) {
+            compress();
+        }
+        sortedValues = null;
+    }
+
+    /**
+     * Folds {@code other} into this sketch; {@code other} is left unchanged.
+     * Sketches with different k can be merged — the result keeps this
+     * sketch's k, and its error is bounded by the smaller of the two.
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a sketch into itself");
+        }
+        if (other.count == 0) return this;
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        while (numLevels < other.numLevels) {
+            addLevel();
+        }
+        for (int h = 0; h < other.numLevels; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+            retained += other.sizes[h];
+        }
+        count += other.count;
+        while (retained >= totalCapacity) {
+            compress();
+        }
+        sortedValues = null;
+        return this;
+    }
+
+    public QuantileSketch copy() {
+        var copy = new QuantileSketch(k);
+        copy.levels = new double[levels.length][];
+        for (int h = 0; h < numLevels; h++) {
+            copy.levels[h] = Arrays.copyOf(levels[h], Math.max(sizes[h], INITIAL_CAPACITY));
+        }
+        copy.sizes = sizes.clone();
+        copy.numLevels = numLevels;
+        copy.updateCapacities();
+        copy.retained = retained;
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.random = random;
+        return copy;
+    }
+
+    private void append(int level, double value) {
+        double[] buffer = levels[level];
+        int size = sizes[level];
+        if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(INITIAL_CAPACITY, size + (size >> 1) + 1));
+            levels[level] = buffer;
+        }
+        buffer[size] = value;
+        sizes[level] = size + 1;
+    }
+
+    // The top level holds k items, each level below 2/3 of the one above (at least 2)
+    private void updateCapacities() {
+        capacities = new int[numLevels];
+        int total = 0;
+        for (int h = 0; h < numLevels; h++) {
+            int depth = numLevels - 1 - h;
+            capacities[h] = Math.max(2, (int) Math.ceil(k * Math.pow(SHRINK, depth)));
+            total += capacities[h];
+        }
+        totalCapacity = total;
+    }
+
+    // Compact the lowest level that is at or over its capacity
+    private void compress() {
+        for (int h = 0; h < numLevels; h++) {
+            if (sizes[h] >= capacities[h]) {
+                if (h + 1 == numLevels) {
+                    if (numLevels == MAX_LEVELS) {
+                        throw new IllegalStateException("Quantile sketch is full");
+                    }
+                    addLevel();
+                }
+                compact(h);
+                return;
+            }
+        }
+    }
+
+    private void addLevel() {
+        if (numLevels == levels.length) {
+            levels = Arrays.copyOf(levels, numLevels + 1);
+            sizes = Arrays.copyOf(sizes, numLevels + 1);
+        }
+        levels[numLevels] = new double[INITIAL_CAPACITY];
+        numLevels++;
+        updateCapacities();
+    }
+
+    // Sort the level, promote every other item (random offset), keep an odd leftover
+    private void compact(int level) {
+        double[] buffer = levels[level];
+        int size = sizes[level];
+        Arrays.sort(buffer, 0, size);
+        int pairs = size & ~1;
+        int offset = nextCoin();
+        for (int i = offset; i < pairs; i += 2) {
+            append(level + 1, buffer[i]);
+        }
+        if ((size & 1) != 0) {
+            buffer[0] = buffer[size - 1];
+        }
+        sizes[level] = size & 1;
+        retained -= pairs / 2;
+    }
+
+    private int nextCoin() {
+        long x = random;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        random = x;
+        return (int) (x >>> 63);
+    }
+
+    // ----------------------------------------------------------------
+    // Queries
+    // ----------------------------------------------------------------
+    public int getK() {
+        return k;
+    }
+
+    /** Number of values added, exact. */
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Smallest value added (NaN when empty), exact. */
+    public double getMin() {
+        return min;
+    }
+
+    /** Largest value added (NaN when empty), exact. */
+    public double getMax() {
+        return max;
+    }
+
+    /** Items currently held — bounded by roughly 3k. */
+    public int getRetained() {
+        return retained;
+    }
+
+    /**
+     * Approximate value at rank {@code q} (0 = min, 1 = max): the smallest
+     * retained value with at least q of the weight at or below it. NaN
+     * when the sketch is empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1 || Double.isNaN(q)) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        if (count == 0) return Double.NaN;
+        if (q == 0) return min;
+        if (q == 1) return max;
+        buildSortedView();
+        long target = (long) Math.ceil(q * count);
+        int i = Arrays.binarySearch(cumulativeWeights, target);
+        if (i < 0) i = -i - 1;
+        return sortedValues[Math.min(i, sortedValues.length - 1)];
+    }
+
+    /** Several quantiles at once, sharing one sorted view. */
+    public double[] quantiles(double... qs) {
+        var result = new double[qs.length];
+        for (int i = 0; i < qs.length; i++) {
+            result[i] = quantile(qs[i]);
+        }
+        return result;
+    }
+
+    /** Approximate fraction of values at or below {@code value}. */
+    public double rank(double value) {
+        if (count == 0) return Double.NaN;
+        buildSortedView();
+        int i = upperBound(sortedValues, value);
+        return i == 0 ? 0 : (double) cumulativeWeights[i - 1] / count;
+    }
+
+    private static int upperBound(double[] values, double value) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void buildSortedView() {
+        if (sortedValues != null) return;
+        var values = new double[retained];
+        var weights = new long[retained];
+        int n = 0;
+        for (int h = 0; h < numLevels; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                values[n] = levels[h][i];
+                weights[n] = 1L << h;
+                n++;
+            }
+        }
+        // Sort indices by value, then turn weights into running totals
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        var sorted = new double[n];
+        var cumulative = new long[n];
+        long running = 0;
+        for (int i = 0; i < n; i++) {
+            sorted[i] = values[order[i]];
+            running += weights[order[i]];
+            cumulative[i] = running;
+        }
+        this.cumulativeWeights = cumulative;
+        this.sortedValues = sorted;
+    }
+
+    // ----------------------------------------------------------------
+    // Serialisation — little-endian:
+    //   magic, version, k, count, min, max, random, numLevels,
+    //   then per level: size, size doubles
+    // ----------------------------------------------------------------
+    public int serializedSize() {
+        return HEADER_SIZE + numLevels * 4 + retained * 8;
+    }
+
+    public byte[] toByteArray() {
+        var buffer = ByteBuffer.allocate(serializedSize()).order(ByteOrder.LITTLE_ENDIAN);
+        writeTo(buffer);
+        return buffer.array();
+    }
+
+    public void writeTo(ByteBuffer out) {
+        var buffer = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(k).putLong(count)
+              .putDouble(min).putDouble(max).putLong(random).putInt(numLevels);
+        for (int h = 0; h < numLevels; h++) {
+            buffer.putInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                buffer.putDouble(levels[h][i]);
+            }
+        }
+        out.position(buffer.position());
+    }
+
+    public static QuantileSketch fromByteArray(byte[] bytes) {
+        return readFrom(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a sketch written by {@link #writeTo}, advancing {@code in}.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid sketch
+     */
+    public static QuantileSketch readFrom(ByteBuffer in) {
+        var buffer = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a quantile sketch");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported quantile sketch version " + version);
+            }
+            var sketch = new QuantileSketch(buffer.getInt());
+            sketch.count = buffer.getLong();
+            sketch.min = buffer.getDouble();
+            sketch.max = buffer.getDouble();
+            sketch.random = buffer.getLong();
+            int levelCount = buffer.getInt();
+            if (levelCount < 1 || levelCount > MAX_LEVELS) {
+                throw new IllegalArgumentException("Corrupt quantile sketch: " + levelCount + " levels");
+            }
+            sketch.levels = new double[levelCount][];
+            sketch.sizes = new int[levelCount];
+            sketch.numLevels = levelCount;
+            sketch.updateCapacities();
+            long weight = 0;
+            for (int h = 0; h < levelCount; h++) {
+                int size = buffer.getInt();
+                if (size < 0 || size > buffer.remaining() / 8) {
+                    throw new IllegalArgumentException("Corrupt quantile sketch: level " + h + " size " + size);
+                }
+                var level = new double[Math.max(size, INITIAL_CAPACITY)];
+                for (int i = 0; i < size; i++) {
+                    level[i] = buffer.getDouble();
+                }
+                sketch.levels[h] = level;
+                sketch.sizes[h] = size;
+                sketch.retained += size;
+                weight += (long) size << h;
+            }
+            // Compaction preserves total weight, so it must equal the count
+            if (weight != sketch.count) {
+                throw new IllegalArgumentException("Corrupt quantile sketch: weight " + weight
+                        + " does not match count " + sketch.count);
+            }
+            in.position(buffer.position());
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Quantile sketch truncated", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) return "QuantileSketch[empty]";
+        double[] q = quantiles(0.5, 0.9, 0.99);
+        return String.format("QuantileSketch[n=%d, min=%.1f, p50=%.1f, p90=%.1f, p99=%.1f, max=%.1f]",
+                count, min, q[0], q[1], q[2], max);
+    }
+}
@@ -0,0 +1,87 @@
+package workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * A numeric distribution sampled from a caller-supplied random source, so
+ * the same seed always yields the same population.
+ */
+@FunctionalInterface
+public interface Distribution {
+
+    double sample(SplittableRandom random);
+
+    /** Sample rounded to the nearest int. */
+    default int sampleInt(SplittableRandom random) {
+        return (int) Math.round(sample(random));
+    }
+
+    /** Same distribution with samples clamped into [min, max]. */
+    default Distribution clamp(double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("min > max: " + min + " > " + max);
+        }
+        return random -> Math.max(min, Math.min(max, sample(random)));
+    }
+
+    // ------------------------------------------------------------------
+    // Factories
+    // ------------------------------------------------------------------
+    static Distribution constant(double value) {
+        return random -> value;
+    }
+
+    /** Uniform over [min, max). */
+    static Distribution uniform(double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("min > max: " + min + " > " + max);
+        }
+        return random -> min == max ? min : random.nextDouble(min, max);
+    }
+
+    static Distribution normal(double mean, double stdDev) {
+        return random -> mean + stdDev * random.nextGaussian();
+    }
+
+    /**
+     * Log-normal with the given median; {@code sigma} is the standard
+     * deviation of the underlying normal. Right-skewed — a few very active
+     * users, most near the median — which is what activity counts look like.
+     */
+    static Distribution logNormal(double median, double sigma) {
+        if (median <= 0) {
+            throw new IllegalArgumentException("Median must be positive");
+        }
+        double mu = Math.log(median);
+        return random -> Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    static Distribution exponential(double mean) {
+        if (mean <= 0) {
+            throw new IllegalArgumentException("Mean must be positive");
+        }
+        return random -> -mean * Math.log(1.0 - random.nextDouble());
+    }
+
+    /**
+     * Zipf-like rank in [0, n): rank 0 is the most popular. Uses the
+     * continuous power-law inverse CDF, which is close enough for picking
+     * hot keys and needs no table.
+     */
+    static Distribution zipf(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        if (exponent <= 0) {
+            return random -> random.nextInt(n);
+        }
+        if (Math.abs(exponent - 1.0) < 1e-9) {
+            double logN = Math.log(n + 1.0);
+            return random -> Math.min(n - 1, (int) Math.exp(random.nextDouble() * logN) - 1);
+        }
+        double oneMinusS = 1.0 - exponent;
+        double top = Math.pow(n + 1.0, oneMinusS) - 1.0;
+        return random -> Math.min(n - 1,
+                (int) Math.pow(random.nextDouble() * top + 1.0, 1.0 / oneMinusS) - 1);
+    }
+}
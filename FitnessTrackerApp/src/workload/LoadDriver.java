@@ -0,0 +1,336 @@
+package workload;
+
+import exception.InvalidWorkoutException;
+import metrics.LatencyHistogram;
+import model.User;
+import model.WorkoutType;
+import service.ConcurrentFitnessServiceImpl;
+import service.FitnessService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Replays a mixed read/write workload against a FitnessService from N
+ * threads and reports throughput and p50/p99/p99.9 latency per operation.
+ *
+ * Each thread picks operations from the configured mix and users from a
+ * Zipf-skewed distribution (a few hot users, a long tail), using its own
+ * seeded random stream, so the operation sequence is reproducible. Latency
+ * is recorded into per-thread histograms that are merged at the end, so
+ * measurement adds no shared-memory contention of its own.
+ *
+ * This is a closed-loop driver: each thread issues its next request only
+ * when the previous one returns, so a stall delays later requests instead
+ * of queueing them, and tail percentiles are optimistic compared with a
+ * fixed-arrival-rate client. The service must be safe for concurrent
+ * writers — use ConcurrentFitnessServiceImpl with more than one thread.
+ *
+ * Usage: java workload.LoadDriver [users] [threads] [seconds] [seed]
+ */
+public final class LoadDriver {
+
+    /** Operations the driver issues; the doc describes the FitnessService call(s) made. */
+    public enum Operation {
+        /** addWorkoutToUser with a freshly generated session. */
+        ADD_WORKOUT,
+        /** getUser plus its running totals. */
+        GET_USER,
+        /** filterWorkouts by one workout type (a full history scan). */
+        FILTER_WORKOUTS,
+        /** calculateUserProgress. */
+        USER_PROGRESS,
+        /** getUser(...).getRecentWorkouts(10). */
+        RECENT_WORKOUTS,
+        /** getUser(...).getWorkoutsInDateRange over the last 30 days. */
+        DATE_RANGE
+    }
+
+    /**
+     * Run settings. {@code mix} holds relative weights per operation;
+     * {@code userSkew} is the Zipf exponent for picking users (0 = uniform).
+     */
+    public record Config(int threads, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+                         double userSkew) {
+        public Config {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Thread count must be positive");
+            }
+            if (warmup.isNegative() || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Warmup must be >= 0 and duration > 0");
+            }
+            var copy = new EnumMap<Operation, Integer>(Operation.class);
+            copy.putAll(mix);
+            if (copy.values().stream().anyMatch(w -> w < 0)
+                    || copy.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("Operation mix needs non-negative weights and a positive total");
+            }
+            mix = Map.copyOf(copy);
+        }
+
+        /** Read-heavy mix (about 1 write in 5), 4 threads, 2 s warmup, 10 s measured. */
+        public static Config defaults() {
+            return new Config(4, Duration.ofSeconds(2), Duration.ofSeconds(10), Map.of(
+                    Operation.ADD_WORKOUT, 20,
+                    Operation.GET_USER, 25,
+                    Operation.USER_PROGRESS, 20,
+                    Operation.RECENT_WORKOUTS, 15,
+                    Operation.DATE_RANGE, 15,
+                    Operation.FILTER_WORKOUTS, 5), 1.0);
+        }
+
+        public Config withThreads(int threads) {
+            return new Config(threads, warmup, duration, mix, userSkew);
+        }
+
+        public Config withTiming(Duration warmup, Duration duration) {
+            return new Config(threads, warmup, duration, mix, userSkew);
+        }
+
+        public Config withMix(Map<Operation, Integer> mix) {
+            return new Config(threads, warmup, duration, mix, userSkew);
+        }
+
+        public Config withUserSkew(double userSkew) {
+            return new Config(threads, warmup, duration, mix, userSkew);
+        }
+    }
+
+    /** Measured results for one operation; latencies in nanoseconds. */
+    public record OperationStats(Operation operation, long count, long errors, double throughput,
+                                 long p50, long p99, long p999, long max) { }
+
+    public record Report(int threads, Duration measured, List<OperationStats> operations) {
+
+        public double totalThroughput() {
+            return operations.stream().mapToDouble(OperationStats::throughput).sum();
+        }
+
+        public long totalErrors() {
+            return operations.stream().mapToLong(OperationStats::errors).sum();
+        }
+
+        /** Fixed-width table, latencies in microseconds. */
+        public String format() {
+            var sb = new StringBuilder();
+            sb.append(String.format("%-16s %10s %7s %11s %10s %10s %10s %10s%n",
+                    "operation", "count", "errors", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us"));
+            for (var s : operations) {
+                sb.append(String.format("%-16s %10d %7d %11.0f %10.1f %10.1f %10.1f %10.1f%n",
+                        s.operation(), s.count(), s.errors(), s.throughput(),
+                        s.p50() / 1e3, s.p99() / 1e3, s.p999() / 1e3, s.max() / 1e3));
+            }
+            sb.append(String.format("%-16s %10d %7d %11.0f  (%d threads, %.1f s)%n", "total",
+                    operations.stream().mapToLong(OperationStats::count).sum(), totalErrors(),
+                    totalThroughput(), threads, measured.toMillis() / 1e3));
+            return sb.toString();
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final FitnessService service;
+    private final List<String> userIds;
+    private final WorkloadGenerator generator;
+    private final Config config;
+    private final Operation[] opTable;   // operations laid out by weight
+    private final int[] opCumulative;
+
+    /**
+     * @param userIds users already registered with the service
+     * @param generator source of new sessions (and per-thread random streams)
+     */
+    public LoadDriver(FitnessService service, List<String> userIds, WorkloadGenerator generator, Config config) {
+        if (userIds.isEmpty()) {
+            throw new IllegalArgumentException("Load driver needs at least one user");
+        }
+        this.service = service;
+        this.userIds = List.copyOf(userIds);
+        this.generator = generator;
+        this.config = config;
+        var active = new ArrayList<Operation>();
+        var cumulative = new ArrayList<Integer>();
+        int running = 0;
+        for (Operation op : OPERATIONS) {
+            int weight = config.mix().getOrDefault(op, 0);
+            if (weight == 0) continue;
+            running += weight;
+            active.add(op);
+            cumulative.add(running);
+        }
+        this.opTable = active.toArray(Operation[]::new);
+        this.opCumulative = cumulative.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Runs warmup then the measured phase; blocks until every thread finishes. */
+    public Report run() throws InterruptedException {
+        var workers = new ArrayList<Worker>(config.threads());
+        var threads = new ArrayList<Thread>(config.threads());
+        var start = new CountDownLatch(1);
+        long startNanos = System.nanoTime();
+        long measureFrom = startNanos + config.warmup().toNanos();
+        long stopAt = measureFrom + config.duration().toNanos();
+        for (int t = 0; t < config.threads(); t++) {
+            var worker = new Worker(t, start, measureFrom, stopAt);
+            workers.add(worker);
+            var thread = new Thread(worker, "load-driver-" + t);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            throw e;
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Load driver thread failed", worker.failure);
+            }
+        }
+        return report(workers);
+    }
+
+    private Report report(List<Worker> workers) {
+        double seconds = config.duration().toNanos() / 1e9;
+        var stats = new ArrayList<OperationStats>();
+        for (Operation op : opTable) {
+            var merged = new LatencyHistogram();
+            long errors = 0;
+            for (Worker worker : workers) {
+                merged.merge(worker.latency[op.ordinal()]);
+                errors += worker.errors[op.ordinal()];
+            }
+            stats.add(new OperationStats(op, merged.count(), errors, merged.count() / seconds,
+                    merged.percentile(0.50), merged.percentile(0.99), merged.percentile(0.999), merged.max()));
+        }
+        return new Report(config.threads(), config.duration(), List.copyOf(stats));
+    }
+
+    // ------------------------------------------------------------------
+    // Worker — one per thread, all state thread-confined until joined
+    // ------------------------------------------------------------------
+    private final class Worker implements Runnable {
+        private final int index;
+        private final CountDownLatch start;
+        private final long measureFrom;
+        private final long stopAt;
+        private final SplittableRandom random;
+        private final Distribution userPick;
+        private final LatencyHistogram[] latency = new LatencyHistogram[OPERATIONS.length];
+        private final long[] errors = new long[OPERATIONS.length];
+        private long sink;   // consumes results so reads cannot be optimised away
+        private long sessions;
+        private volatile Throwable failure;
+
+        Worker(int index, CountDownLatch start, long measureFrom, long stopAt) {
+            this.index = index;
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.stopAt = stopAt;
+            this.random = generator.random(-1L - index);   // disjoint from the population's streams
+            this.userPick = Distribution.zipf(userIds.size(), config.userSkew());
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                long now;
+                while ((now = System.nanoTime()) < stopAt) {
+                    Operation op = nextOperation();
+                    String userId = userIds.get((int) userPick.sample(random));
+                    boolean ok = execute(op, userId);
+                    long end = System.nanoTime();
+                    if (now >= measureFrom) {
+                        latency[op.ordinal()].record(end - now);
+                        if (!ok) errors[op.ordinal()]++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+        }
+
+        private Operation nextOperation() {
+            int pick = random.nextInt(opCumulative[opCumulative.length - 1]);
+            for (int i = 0; i < opCumulative.length; i++) {
+                if (pick < opCumulative[i]) return opTable[i];
+            }
+            return opTable[opTable.length - 1];
+        }
+
+        private boolean execute(Operation op, String userId) {
+            LocalDate today = generator.getProfile().endDate();
+            switch (op) {
+                case ADD_WORKOUT -> {
+                    var session = generator.session(random, "L" + index + "-" + sessions++, today);
+                    try {
+                        service.addWorkoutToUser(userId, session);
+                    } catch (InvalidWorkoutException e) {
+                        return false;
+                    }
+                }
+                case GET_USER -> {
+                    User user = service.getUser(userId);
+                    if (user == null) return false;
+                    sink += user.getTotalWorkoutDuration() + (long) user.getTotalCaloriesBurned();
+                }
+                case FILTER_WORKOUTS -> {
+                    WorkoutType type = generator.type(random);
+                    sink += service.filterWorkouts(userId, s -> s.type() == type).size();
+                }
+                case USER_PROGRESS -> sink += (long) service.calculateUserProgress(userId);
+                case RECENT_WORKOUTS -> {
+                    User user = service.getUser(userId);
+                    if (user == null) return false;
+                    sink += user.getRecentWorkouts(10).size();
+                }
+                case DATE_RANGE -> {
+                    User user = service.getUser(userId);
+                    if (user == null) return false;
+                    sink += user.getWorkoutsInDateRange(today.minusDays(29), today).size();
+                }
+            }
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Command line
+    // ------------------------------------------------------------------
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+
+        var generator = new WorkloadGenerator(seed, WorkloadProfile.builder().users(users).build());
+        var service = new ConcurrentFitnessServiceImpl();
+        long begin = System.nanoTime();
+        var ids = generator.populate(service);
+        long sessions = ids.stream().mapToLong(id -> service.getUser(id).getWorkoutHistory().size()).sum();
+        System.out.printf("Populated %d users / %d sessions in %d ms (seed %d)%n",
+                ids.size(), sessions, (System.nanoTime() - begin) / 1_000_000, seed);
+
+        var config = Config.defaults().withThreads(threads)
+                .withTiming(Duration.ofSeconds(Math.min(2, seconds)), Duration.ofSeconds(seconds));
+        var report = new LoadDriver(service, ids, generator, config).run();
+        System.out.print(report.format());
+    }
+}
@@ -0,0 +1,247 @@
+package workload;
+
+import exception.InvalidWorkoutException;
+import model.CardioExercise;
+import model.Exercise;
+import model.FitnessGoal;
+import model.NutritionPlan;
+import model.StrengthExercise;
+import model.User;
+import model.WorkoutSession;
+import model.WorkoutType;
+import service.FitnessService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of users, workout histories, goals and
+ * nutrition plans drawn from a {@link WorkloadProfile}.
+ *
+ * User {@code i} is generated from its own random stream derived from
+ * (seed, i), so a population is identical run to run, independent of the
+ * order or thread users are generated on, and any single user can be
+ * regenerated without the others. Every generated session passes
+ * ValidationService (positive duration, at least one exercise).
+ */
+public final class WorkloadGenerator {
+
+    private static final long STREAM_STRIDE = 0x9E3779B97F4A7C15L;
+
+    private static final String[] CARDIO = {"Running", "Cycling", "Rowing", "Swimming", "Elliptical", "Stair Climber"};
+    private static final String[] STRENGTH = {"Squat", "Bench Press", "Deadlift", "Overhead Press", "Barbell Row", "Lunge", "Pull Up"};
+    private static final String[] HIIT = {"Burpees", "Sprint Intervals", "Kettlebell Swing", "Box Jumps", "Battle Ropes"};
+    private static final String[] MOBILITY = {"Sun Salutation", "Hamstring Stretch", "Hip Opener", "Downward Dog", "Foam Rolling"};
+    private static final String[] NOTES = {"Felt strong", "Tired legs", "New personal best", "Short on time",
+            "Great session", "Bit sore, took it easy", "Form focus"};
+    private static final String[] FIRST = {"Alex", "Sam", "Jordan", "Taylor", "Casey", "Morgan", "Riley", "Jamie",
+            "Avery", "Quinn", "Charlie", "Rowan"};
+    private static final String[] LAST = {"Murphy", "Kelly", "Byrne", "Walsh", "Ryan", "Smith", "Nolan", "Doyle",
+            "Brennan", "Lynch"};
+
+    private final long seed;
+    private final WorkloadProfile profile;
+    private final WorkoutType[] types;
+    private final double[] cumulativeWeights;
+
+    public WorkloadGenerator(long seed, WorkloadProfile profile) {
+        this.seed = seed;
+        this.profile = profile;
+        var mix = profile.typeMix().entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .toList();
+        this.types = new WorkoutType[mix.size()];
+        this.cumulativeWeights = new double[mix.size()];
+        double running = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            Map.Entry<WorkoutType, Double> entry = mix.get(i);
+            running += entry.getValue();
+            types[i] = entry.getKey();
+            cumulativeWeights[i] = running;
+        }
+    }
+
+    public WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    /** Independent random stream {@code n} of this generator's seed. */
+    public SplittableRandom random(long stream) {
+        return new SplittableRandom(seed + (stream + 1) * STREAM_STRIDE);
+    }
+
+    public static String userId(int index) {
+        return String.format("U%06d", index);
+    }
+
+    // ------------------------------------------------------------------
+    // Population
+    // ------------------------------------------------------------------
+
+    /** Every user of the profile, each with history, goals and maybe a plan. */
+    public List<User> users() {
+        var users = new ArrayList<User>(profile.users());
+        for (int i = 0; i < profile.users(); i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    /** User {@code index}, fully populated. */
+    public User user(int index) {
+        var random = random(index);
+        var user = profile(random, index);
+        user.addWorkoutSessions(history(random, user.getUserId()).toArray(WorkoutSession[]::new));
+        addGoalsAndPlan(random, user);
+        return user;
+    }
+
+    /**
+     * Registers every user with the service and replays their histories
+     * through {@link FitnessService#addWorkoutToUser}, so any indexes or
+     * counters the service keeps are built the normal way.
+     *
+     * @return ids of the users added, in index order
+     */
+    public List<String> populate(FitnessService service) throws InvalidWorkoutException {
+        var ids = new ArrayList<String>(profile.users());
+        for (int i = 0; i < profile.users(); i++) {
+            var random = random(i);
+            var user = profile(random, i);
+            var history = history(random, user.getUserId());
+            addGoalsAndPlan(random, user);
+            service.addUser(user);
+            for (WorkoutSession session : history) {
+                service.addWorkoutToUser(user.getUserId(), session);
+            }
+            ids.add(user.getUserId());
+        }
+        return ids;
+    }
+
+    private User profile(SplittableRandom random, int index) {
+        String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)];
+        return new User(userId(index), name, profile.age().sampleInt(random),
+                round1(profile.weightKg().sample(random)), round1(profile.heightCm().sample(random)));
+    }
+
+    /** Chronological history for one user. */
+    private List<WorkoutSession> history(SplittableRandom random, String userId) {
+        int count = Math.max(0, profile.sessionsPerUser().sampleInt(random));
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = random.nextInt(profile.historyDays());
+        }
+        Arrays.sort(offsets);
+        LocalDate start = profile.endDate().minusDays(profile.historyDays() - 1L);
+        var sessions = new ArrayList<WorkoutSession>(count);
+        for (int i = 0; i < count; i++) {
+            sessions.add(session(random, userId + "-S" + i, start.plusDays(offsets[i])));
+        }
+        return sessions;
+    }
+
+    private void addGoalsAndPlan(SplittableRandom random, User user) {
+        int goals = Math.max(0, (int) profile.goalsPerUser().sample(random));
+        for (int g = 0; g < goals; g++) {
+            user.addGoal(goal(random));
+        }
+        if (random.nextDouble() < profile.nutritionPlanShare()) {
+            user.setNutritionPlan(nutritionPlan(random, user.getWeight()));
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Individual entities — take the caller's random so load drivers can
+    // generate on their own per-thread streams
+    // ------------------------------------------------------------------
+    public WorkoutSession session(SplittableRandom random, String sessionId, LocalDate date) {
+        var type = type(random);
+        int exercises = Math.max(1, profile.exercisesPerSession().sampleInt(random));
+        var list = new ArrayList<Exercise>(exercises);
+        int total = 0;
+        for (int e = 0; e < exercises; e++) {
+            var exercise = exercise(random, type);
+            total += exercise.getDuration();
+            list.add(exercise);
+        }
+        String notes = random.nextDouble() < profile.notesShare() ? NOTES[random.nextInt(NOTES.length)] : "";
+        return new WorkoutSession(sessionId, date, type, list, total, notes);
+    }
+
+    public WorkoutType type(SplittableRandom random) {
+        double pick = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < types.length; i++) {
+            if (pick < cumulativeWeights[i]) return types[i];
+        }
+        return types[types.length - 1];
+    }
+
+    /** Exercise fitting the workout type; cardio-like types mostly get CardioExercise. */
+    public Exercise exercise(SplittableRandom random, WorkoutType type) {
+        int minutes = Math.max(1, profile.exerciseMinutes().sampleInt(random));
+        boolean cardio = switch (type) {
+            case CARDIO -> random.nextDouble() < 0.9;
+            case HIIT -> random.nextDouble() < 0.6;
+            case STRENGTH -> random.nextDouble() < 0.1;
+            case FLEXIBILITY, YOGA -> false;
+        };
+        if (cardio) {
+            String[] names = type == WorkoutType.HIIT ? HIIT : CARDIO;
+            double km = round1(minutes * profile.paceKmPerMinute().sample(random));
+            return new CardioExercise(names[random.nextInt(names.length)], minutes, km,
+                    profile.heartRate().sampleInt(random));
+        }
+        return switch (type) {
+            case FLEXIBILITY, YOGA -> new StrengthExercise(MOBILITY[random.nextInt(MOBILITY.length)], minutes,
+                    1 + random.nextInt(3), 1 + random.nextInt(10), 0.0);
+            case HIIT -> new StrengthExercise(HIIT[random.nextInt(HIIT.length)], minutes,
+                    Math.max(1, profile.sets().sampleInt(random)), Math.max(1, profile.reps().sampleInt(random)),
+                    0.0);
+            default -> new StrengthExercise(STRENGTH[random.nextInt(STRENGTH.length)], minutes,
+                    Math.max(1, profile.sets().sampleInt(random)), Math.max(1, profile.reps().sampleInt(random)),
+                    round1(profile.liftKg().sample(random)));
+        };
+    }
+
+    public FitnessGoal goal(SplittableRandom random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> goal("Weight Loss (kg)", 2 + random.nextInt(15), random);
+            case 1 -> goal("Weekly Workouts", 2 + random.nextInt(5), random);
+            case 2 -> goal("Monthly Distance (km)", 20 + random.nextInt(180), random);
+            default -> goal("Calories Burned", 5_000 + random.nextInt(45_000), random);
+        };
+    }
+
+    private FitnessGoal goal(String type, double target, SplittableRandom random) {
+        double current = round1(target * random.nextDouble(0, 1.2));
+        LocalDate deadline = profile.endDate().plusDays(14 + random.nextInt(180));
+        return new FitnessGoal(type, target, current, deadline, current >= target && random.nextBoolean());
+    }
+
+    /** Plan sized to body weight, within the 1000–5000 kcal range ValidationService accepts. */
+    public NutritionPlan nutritionPlan(SplittableRandom random, double weightKg) {
+        double kg = weightKg > 0 ? weightKg : 70;
+        int calories = (int) Math.max(1_200, Math.min(4_500, Math.round(kg * random.nextDouble(24, 36) / 50) * 50));
+        double proteinShare = random.nextDouble(0.2, 0.35);
+        double fatShare = random.nextDouble(0.2, 0.35);
+        int protein = (int) (calories * proteinShare / 4);
+        int fats = (int) (calories * fatShare / 9);
+        int carbs = (int) (calories * (1 - proteinShare - fatShare) / 4);
+        int meals = 3 + random.nextInt(3);
+        var mealNames = new ArrayList<String>(meals);
+        for (int m = 1; m <= meals; m++) {
+            mealNames.add("Meal " + m);
+        }
+        String name = proteinShare > 0.3 ? "High Protein" : fatShare > 0.3 ? "Higher Fat" : "Balanced";
+        return new NutritionPlan(name + " " + calories, calories, protein, carbs, fats, mealNames);
+    }
+
+    private static double round1(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
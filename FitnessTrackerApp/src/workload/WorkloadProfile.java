@@ -0,0 +1,159 @@
+package workload;
+
+import model.WorkoutType;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shape of a synthetic population: how many users, how active they are,
+ * what they train and with what exercises. Every knob is a Distribution,
+ * so a profile plus a seed fully determines the generated data.
+ *
+ * {@link #defaults()} approximates a recreational-gym population: skewed
+ * activity (log-normal sessions per user), mostly cardio and strength,
+ * 2–4 exercises per session, about half the users on a nutrition plan.
+ */
+public record WorkloadProfile(
+    int users,
+    LocalDate endDate,
+    int historyDays,
+    Distribution sessionsPerUser,
+    Map<WorkoutType, Double> typeMix,
+    Distribution exercisesPerSession,
+    Distribution exerciseMinutes,
+    Distribution paceKmPerMinute,
+    Distribution heartRate,
+    Distribution sets,
+    Distribution reps,
+    Distribution liftKg,
+    Distribution age,
+    Distribution weightKg,
+    Distribution heightCm,
+    Distribution goalsPerUser,
+    double nutritionPlanShare,
+    double notesShare
+) {
+    public WorkloadProfile {
+        if (users < 0) {
+            throw new IllegalArgumentException("User count cannot be negative");
+        }
+        if (historyDays <= 0) {
+            throw new IllegalArgumentException("History must span at least one day");
+        }
+        if (endDate == null) {
+            throw new IllegalArgumentException("End date cannot be null");
+        }
+        var mix = new EnumMap<WorkoutType, Double>(WorkoutType.class);
+        double total = 0;
+        for (var entry : typeMix.entrySet()) {
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Negative weight for " + entry.getKey());
+            }
+            mix.put(entry.getKey(), entry.getValue());
+            total += entry.getValue();
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Workout type mix must have a positive weight");
+        }
+        typeMix = Collections.unmodifiableMap(mix);
+        if (nutritionPlanShare < 0 || nutritionPlanShare > 1 || notesShare < 0 || notesShare > 1) {
+            throw new IllegalArgumentException("Shares must be between 0 and 1");
+        }
+    }
+
+    public static WorkloadProfile defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Builder seeded with a copy of this profile. */
+    public Builder toBuilder() {
+        var b = new Builder();
+        b.users = users;
+        b.endDate = endDate;
+        b.historyDays = historyDays;
+        b.sessionsPerUser = sessionsPerUser;
+        b.typeMix = new EnumMap<>(typeMix);
+        b.exercisesPerSession = exercisesPerSession;
+        b.exerciseMinutes = exerciseMinutes;
+        b.paceKmPerMinute = paceKmPerMinute;
+        b.heartRate = heartRate;
+        b.sets = sets;
+        b.reps = reps;
+        b.liftKg = liftKg;
+        b.age = age;
+        b.weightKg = weightKg;
+        b.heightCm = heightCm;
+        b.goalsPerUser = goalsPerUser;
+        b.nutritionPlanShare = nutritionPlanShare;
+        b.notesShare = notesShare;
+        return b;
+    }
+
+    // ------------------------------------------------------------------
+    // Builder — every field starts at the default profile
+    // ------------------------------------------------------------------
+    public static final class Builder {
+        private int users = 1_000;
+        private LocalDate endDate = LocalDate.of(2025, 12, 31);
+        private int historyDays = 365;
+        private Distribution sessionsPerUser = Distribution.logNormal(60, 0.8).clamp(0, 2_000);
+        private EnumMap<WorkoutType, Double> typeMix = new EnumMap<>(Map.of(
+                WorkoutType.CARDIO, 0.35,
+                WorkoutType.STRENGTH, 0.30,
+                WorkoutType.HIIT, 0.15,
+                WorkoutType.YOGA, 0.10,
+                WorkoutType.FLEXIBILITY, 0.10));
+        private Distribution exercisesPerSession = Distribution.normal(3, 1).clamp(1, 8);
+        private Distribution exerciseMinutes = Distribution.logNormal(15, 0.5).clamp(1, 120);
+        private Distribution paceKmPerMinute = Distribution.normal(0.16, 0.04).clamp(0.05, 0.35);
+        private Distribution heartRate = Distribution.normal(145, 15).clamp(90, 200);
+        private Distribution sets = Distribution.uniform(2, 6);
+        private Distribution reps = Distribution.normal(10, 3).clamp(1, 30);
+        private Distribution liftKg = Distribution.logNormal(40, 0.6).clamp(0, 300);
+        private Distribution age = Distribution.normal(36, 12).clamp(16, 90);
+        private Distribution weightKg = Distribution.normal(75, 14).clamp(40, 180);
+        private Distribution heightCm = Distribution.normal(172, 10).clamp(140, 210);
+        private Distribution goalsPerUser = Distribution.uniform(0, 4);
+        private double nutritionPlanShare = 0.5;
+        private double notesShare = 0.25;
+
+        private Builder() { }
+
+        public Builder users(int users) { this.users = users; return this; }
+        public Builder endDate(LocalDate endDate) { this.endDate = endDate; return this; }
+        public Builder historyDays(int days) { this.historyDays = days; return this; }
+        public Builder sessionsPerUser(Distribution d) { this.sessionsPerUser = d; return this; }
+        public Builder exercisesPerSession(Distribution d) { this.exercisesPerSession = d; return this; }
+        public Builder exerciseMinutes(Distribution d) { this.exerciseMinutes = d; return this; }
+        public Builder paceKmPerMinute(Distribution d) { this.paceKmPerMinute = d; return this; }
+        public Builder heartRate(Distribution d) { this.heartRate = d; return this; }
+        public Builder sets(Distribution d) { this.sets = d; return this; }
+        public Builder reps(Distribution d) { this.reps = d; return this; }
+        public Builder liftKg(Distribution d) { this.liftKg = d; return this; }
+        public Builder age(Distribution d) { this.age = d; return this; }
+        public Builder weightKg(Distribution d) { this.weightKg = d; return this; }
+        public Builder heightCm(Distribution d) { this.heightCm = d; return this; }
+        public Builder goalsPerUser(Distribution d) { this.goalsPerUser = d; return this; }
+        public Builder nutritionPlanShare(double share) { this.nutritionPlanShare = share; return this; }
+        public Builder notesShare(double share) { this.notesShare = share; return this; }
+
+        /** Relative weight of one workout type (0 removes it). */
+        public Builder typeWeight(WorkoutType type, double weight) {
+            typeMix.put(type, weight);
+            return this;
+        }
+
+        public WorkloadProfile build() {
+            return new WorkloadProfile(users, endDate, historyDays, sessionsPerUser, typeMix,
+                    exercisesPerSession, exerciseMinutes, paceKmPerMinute, heartRate, sets, reps, liftKg,
+                    age, weightKg, heightCm, goalsPerUser, nutritionPlanShare, notesShare);
+        }
+    }
+}
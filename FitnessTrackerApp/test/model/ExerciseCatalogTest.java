@@ -0,0 +1,56 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import service.FitnessServiceImpl;
+import service.OffHeapSessionStore;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/** Sharing rules of ExerciseCatalog, including exercises without a name. */
+class ExerciseCatalogTest {
+
+    @Test
+    void identicalExercisesShareOneInstance() {
+        var catalog = new ExerciseCatalog();
+        var first = catalog.canonical(new CardioExercise(new String("Run"), 30, 5.0, 150));
+        var second = catalog.canonical(new CardioExercise(new String("Run"), 30, 5.0, 150));
+        assertSame(first, second);
+        assertSame(catalog.name(catalog.nameId("Run")), first.getName());
+        assertEquals(1, catalog.size());
+    }
+
+    @Test
+    void unnamedExercisesPassThroughUncached() {
+        var catalog = new ExerciseCatalog();
+        var cardio = new CardioExercise(null, 30, 5.0, 150);
+        var strength = new StrengthExercise(null, 20, 3, 10, 50.0);
+        assertSame(cardio, catalog.canonical(cardio));
+        assertSame(strength, catalog.canonical(strength));
+        assertNull(catalog.cardio(null, 30, 5.0, 150).getName());
+        assertEquals(ExerciseCatalog.NO_NAME, catalog.nameId(null));
+        assertNull(catalog.name(ExerciseCatalog.NO_NAME));
+        assertEquals(0, catalog.size());
+        assertEquals(0, catalog.heapReport().names());
+    }
+
+    // The baseline service accepted unnamed exercises; canonicalisation must not change that
+    @Test
+    void servicesAcceptUnnamedExercises() throws Exception {
+        var session = new WorkoutSession("S1", LocalDate.of(2024, 1, 1), WorkoutType.STRENGTH,
+                List.of(new StrengthExercise(null, 20, 3, 10, 50.0)), 20, null);
+        var service = new FitnessServiceImpl();
+        service.addUser(new User("U1", "Unnamed"));
+        service.addWorkoutToUser("U1", session);
+        assertNull(service.getUser("U1").getWorkoutHistory().get(0).exercises().get(0).getName());
+
+        try (var store = new OffHeapSessionStore()) {
+            store.append("U1", session);
+            assertNull(store.session(0).exercises().get(0).getName());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Filtering rules of WorkoutQuery, standalone and pushed down to User's history store. */
+class WorkoutQueryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    @Test
+    void allKeepsNegativeAndNaNCalories() {
+        var negative = session("neg", 0, -5.0);   // 10 * 8 - 250 kcal
+        var nan = session("nan", 1, Double.NaN);
+        var normal = session("ok", 2, 3.0);
+        assertTrue(negative.calculateTotalCalories() < 0);
+        assertTrue(Double.isNaN(nan.calculateTotalCalories()));
+
+        assertTrue(WorkoutQuery.all().test(negative));
+        assertTrue(WorkoutQuery.all().test(nan));
+
+        var user = new User("Q1", "Query");
+        user.addWorkoutSessions(negative, nan, normal);
+        assertEquals(List.of("neg", "nan", "ok"), ids(user, WorkoutQuery.all()));
+    }
+
+    @Test
+    void aSetCalorieBoundExcludesNaN() {
+        var query = WorkoutQuery.builder().minCalories(-1000).build();
+        assertTrue(query.test(session("neg", 0, -5.0)));
+        assertFalse(query.test(session("nan", 0, Double.NaN)));
+        assertThrows(IllegalArgumentException.class, () -> WorkoutQuery.builder().maxCalories(Double.NaN));
+    }
+
+    // test() filters only; order and limit belong to the pushed-down query
+    @Test
+    void predicateFormFiltersLikeThePushedDownQuery() {
+        var user = new User("Q2", "Query");
+        for (int i = 0; i < 10; i++) {
+            user.addWorkoutSession(session("S" + i, 9 - i, i));
+        }
+        var query = WorkoutQuery.builder().minCalories(150).order(WorkoutQuery.Order.NEWEST_FIRST).limit(3).build();
+
+        assertEquals(List.of("S2", "S3", "S4"), ids(user, query)); // S2 is the newest that qualifies
+        var filtered = user.getWorkoutHistory().stream().filter(query).map(WorkoutSession::sessionId).toList();
+        assertEquals(List.of("S2", "S3", "S4", "S5", "S6", "S7", "S8", "S9"), filtered);
+    }
+
+    private static List<String> ids(User user, WorkoutQuery query) {
+        return user.queryWorkouts(query).map(WorkoutSession::sessionId).toList();
+    }
+
+    // Calories = 10 * 8 + distance * 50
+    private static WorkoutSession session(String id, int dayOffset, double distance) {
+        return new WorkoutSession(id, DAY.plusDays(dayOffset), WorkoutType.CARDIO,
+                List.of(new CardioExercise("Run", 10, distance, 120)), 10, null);
+    }
+}
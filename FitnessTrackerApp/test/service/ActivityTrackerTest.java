@@ -0,0 +1,60 @@
+package service;
+
+import model.CardioExercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Retention and pruning of ActivityTracker's per-day sketches. */
+class ActivityTrackerTest {
+
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    @Test
+    void retentionBoundsTheDaysKept() {
+        var tracker = new ActivityTracker(0.05, 30);
+        for (int d = 0; d < 3650; d++) {
+            tracker.record("U" + d % 7, session(START.plusDays(d)));
+        }
+        LocalDate last = START.plusDays(3649);
+        assertEquals(30, tracker.getTrackedDays());
+        assertEquals(30L * 2 * (1 << 9), tracker.getMemoryBytes()); // p = 9 for 5%
+        assertEquals(7, tracker.monthlyActiveUsers(last).count());
+        assertEquals(0, tracker.activeUsers(START, START.plusDays(365)).count());
+    }
+
+    @Test
+    void sessionsOlderThanTheWindowAreNotRecorded() {
+        var tracker = new ActivityTracker(0.05, 7);
+        tracker.record("new", session(START.plusDays(100)));
+        tracker.record("old", session(START));
+        assertEquals(1, tracker.getTrackedDays());
+        assertEquals(0, tracker.dailyActiveUsers(START).count());
+        tracker.record("edge", session(START.plusDays(94))); // first day of the window
+        assertEquals(2, tracker.getTrackedDays());
+    }
+
+    @Test
+    void pruneDropsDaysBeforeTheGivenDate() {
+        var tracker = new ActivityTracker();
+        for (int d = 0; d < 10; d++) {
+            tracker.record("U" + d, session(START.plusDays(d)));
+        }
+        assertEquals(4, tracker.prune(START.plusDays(4)));
+        assertEquals(6, tracker.getTrackedDays());
+        assertEquals(6, tracker.weeklyActiveUsers(START.plusDays(9)).count());
+        assertEquals(0, tracker.prune(START));
+        assertThrows(IllegalArgumentException.class, () -> new ActivityTracker(0.02, 0));
+    }
+
+    private static WorkoutSession session(LocalDate date) {
+        return new WorkoutSession("S" + date, date, WorkoutType.CARDIO,
+                List.of(new CardioExercise("Run", 20, 4.0, 140)), 20, null);
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.StrengthExercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Round trips through BinaryHistoryFormat, sized so the writer's section buffers flush many times. */
+class BinaryHistoryFormatTest {
+
+    private static final int SESSIONS = 5_000; // 200 KB of session records, 320 KB of exercises
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sessionsAndExercisesRoundTrip() throws IOException {
+        var sessions = new ArrayList<WorkoutSession>();
+        for (int i = 0; i < SESSIONS; i++) {
+            // Empty and two-exercise sessions of both kinds, so records straddle every buffer boundary
+            var exercises = i % 3 == 0 ? List.<Exercise>of()
+                    : List.of(new StrengthExercise("Squat", 10 + i % 7, 3, 8 + i % 5, 60.0 + i % 11),
+                              new CardioExercise("Row " + i % 13, 15, 2.5 + i % 3, 120 + i % 40));
+            sessions.add(new WorkoutSession("S" + i, LocalDate.of(2020, 1, 1).plusDays(i),
+                    TYPES[i % TYPES.length], exercises, 30 + i % 60, i % 4 == 0 ? null : "note " + i % 9));
+        }
+        Path file = dir.resolve("u.fth");
+        BinaryHistoryFormat.write(file, "U1", sessions);
+
+        try (var reader = BinaryHistoryReader.open(file)) { // verifies the checksum
+            assertEquals(SESSIONS, reader.sessionCount());
+            assertEquals(sessions.stream().mapToInt(s -> s.exercises().size()).sum(), reader.exerciseCount());
+            for (int i = 0; i < SESSIONS; i++) {
+                var expected = sessions.get(i);
+                var actual = reader.toSession(i);
+                assertEquals("U1", reader.userId(i));
+                assertEquals(expected.sessionId(), actual.sessionId());
+                assertEquals(expected.date(), actual.date());
+                assertEquals(expected.type(), actual.type());
+                assertEquals(expected.totalDuration(), actual.totalDuration());
+                assertEquals(expected.notes(), actual.notes());
+                assertEquals(expected.calculateTotalCalories(), reader.calories(i), 1e-9);
+                assertEquals(expected.exercises().size(), actual.exercises().size(), "exercises of row " + i);
+                for (int e = 0; e < expected.exercises().size(); e++) {
+                    assertEquals(expected.exercises().get(e).toString(), actual.exercises().get(e).toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void csvImportAndExportAgree() throws IOException {
+        Path csv = dir.resolve("history.csv");
+        var lines = new ArrayList<String>();
+        lines.add(WorkoutCsvReader.HEADER);
+        for (int i = 0; i < SESSIONS; i++) {
+            lines.add(String.join(",", "U" + i % 3, "S" + i, LocalDate.of(2021, 1, 1).plusDays(i % 900).toString(),
+                    TYPES[i % TYPES.length].name(), String.valueOf(20 + i % 50), String.valueOf(100 + i),
+                    i % 5 == 0 ? "\"with, comma\"" : "plain"));
+        }
+        Files.write(csv, lines);
+
+        Path binary = dir.resolve("history.fth");
+        assertEquals(SESSIONS, BinaryHistoryFormat.csvToBinary(csv, binary));
+        Path back = dir.resolve("back.csv");
+        assertEquals(SESSIONS, BinaryHistoryFormat.binaryToCsv(binary, back));
+        assertEquals(lines, Files.readAllLines(back));
+    }
+
+    @Test
+    void emptyHistoryWritesAValidFile() throws IOException {
+        Path file = dir.resolve("empty.fth");
+        BinaryHistoryFormat.write(file, List.of());
+        try (var reader = BinaryHistoryReader.open(file)) {
+            assertEquals(0, reader.sessionCount());
+            assertNull(reader.string(-1));
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList()); // no temp files left behind
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Restoring ChunkedBackupStore backups over a live PartitionedHistoryStore. */
+class ChunkedBackupStoreTest {
+
+    private static final Exercise RUN = new CardioExercise("Backup Run", 20, 4.0, 140);
+
+    @TempDir
+    Path dir;
+
+    // The later save has the same length, so only the dropped index keeps range queries right
+    @Test
+    void restoreIntoTheDataDirectoryReplacesPartitionsAndDropsTheirIndex() throws IOException {
+        var store = new PartitionedHistoryStore(dir.resolve("users"), 64);
+        var backups = new ChunkedBackupStore(dir.resolve("backups"));
+        store.save("U1", sessions(LocalDate.of(2024, 1, 1)));
+        byte[] backedUp = Files.readAllBytes(store.pathFor("U1"));
+        String id = backups.backup(dir, store.partitionFiles()).backupId();
+
+        store.save("U1", sessions(LocalDate.of(2024, 6, 1)));
+        long restored = backups.restore(id, dir, store::replaceFile);
+
+        assertEquals(backedUp.length, restored);
+        assertArrayEquals(backedUp, Files.readAllBytes(store.pathFor("U1")));
+        assertFalse(Files.exists(store.pathFor("U1", ".idx")));
+        var january = new ArrayList<String>();
+        store.forEachInRange("U1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                row -> january.add(row.sessionId()));
+        assertEquals(20, january.size());
+        assertEquals(List.of(), leftoverTempFiles());
+    }
+
+    @Test
+    void failedRestoreLeavesTheCurrentFileIntact() throws IOException {
+        var store = new PartitionedHistoryStore(dir.resolve("users"));
+        var backups = new ChunkedBackupStore(dir.resolve("backups"));
+        store.save("U1", sessions(LocalDate.of(2024, 1, 1)));
+        String id = backups.backup(dir, store.partitionFiles()).backupId();
+        store.save("U1", sessions(LocalDate.of(2024, 6, 1)));
+        byte[] current = Files.readAllBytes(store.pathFor("U1"));
+
+        try (Stream<Path> chunks = Files.walk(dir.resolve("backups").resolve("chunks"))) {
+            for (Path chunk : chunks.filter(Files::isRegularFile).toList()) {
+                Files.write(chunk, new byte[] {1, 2, 3});
+            }
+        }
+        assertThrows(IOException.class, () -> backups.restore(id, dir, store::replaceFile));
+
+        assertArrayEquals(current, Files.readAllBytes(store.pathFor("U1")));
+        assertEquals(List.of(), leftoverTempFiles());
+    }
+
+    private List<Path> leftoverTempFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dir.resolve("users"))) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".restore")).toList();
+        }
+    }
+
+    // Twenty daily sessions from {@code first}; every row has the same length
+    private static List<WorkoutSession> sessions(LocalDate first) {
+        var sessions = new ArrayList<WorkoutSession>();
+        for (int i = 0; i < 20; i++) {
+            sessions.add(new WorkoutSession(String.format("S%02d", i), first.plusDays(i),
+                    WorkoutType.CARDIO, List.of(RUN), 30, "backup"));
+        }
+        return sessions;
+    }
+}
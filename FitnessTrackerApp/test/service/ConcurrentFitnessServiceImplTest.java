@@ -0,0 +1,129 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.User;
+import model.WorkoutSession;
+import model.WorkoutQuery;
+import model.WorkoutType;
+import exception.InvalidWorkoutException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test for ConcurrentFitnessServiceImpl: N writer threads add
+ * sessions to every user at once, and afterwards each user must hold
+ * exactly the sessions, minutes and calories that were written.
+ */
+class ConcurrentFitnessServiceImplTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int USERS = 16;
+    private static final int SESSIONS_PER_THREAD_PER_USER = 250;
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+    private static final Exercise RUN = new CardioExercise("Stress Run", 20, 4.0, 140);
+
+    // 1 stripe: every writer contends on one lock; 64: users spread over stripes
+    @ParameterizedTest
+    @ValueSource(ints = {1, 64})
+    void concurrentWritersLoseNoUpdates(int stripes) throws Exception {
+        var service = new ConcurrentFitnessServiceImpl(stripes);
+        for (int u = 0; u < USERS; u++) {
+            service.addUser(new User("S" + u, "Stress " + u));
+        }
+
+        var start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(THREADS);
+        try {
+            var done = new ArrayList<Future<?>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                done.add(writers.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < SESSIONS_PER_THREAD_PER_USER; i++) {
+                        for (int u = 0; u < USERS; u++) {
+                            service.addWorkoutToUser("S" + u, session(thread, i));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : done) {
+                future.get(2, TimeUnit.MINUTES); // rethrows any writer failure
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+
+        int expectedSessions = THREADS * SESSIONS_PER_THREAD_PER_USER;
+        long expectedMinutes = 0;
+        int[] expectedByType = new int[TYPES.length];
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < SESSIONS_PER_THREAD_PER_USER; i++) {
+                expectedMinutes += duration(t);
+                expectedByType[type(t, i).ordinal()]++;
+            }
+        }
+        double expectedCalories = expectedSessions * RUN.calculateCaloriesBurned();
+
+        for (int u = 0; u < USERS; u++) {
+            User user = service.getUser("S" + u);
+            String who = user.getUserId();
+            List<WorkoutSession> history = user.getWorkoutHistory();
+            assertEquals(expectedSessions, history.size(), who + " history size");
+            assertEquals(expectedSessions, user.getWorkoutsInDateRange(LocalDate.MIN, LocalDate.MAX).size(),
+                    who + " date index size");
+            assertEquals(expectedMinutes, user.getTotalWorkoutDuration(), who + " total minutes");
+            assertEquals(expectedCalories, user.getTotalCaloriesBurned(), 1e-6, who + " total calories");
+            for (WorkoutType type : TYPES) {
+                assertEquals(expectedByType[type.ordinal()], user.getSessionCount(type), who + " " + type.name());
+            }
+            var ids = new HashSet<String>();
+            history.forEach(session -> ids.add(session.sessionId()));
+            assertEquals(expectedSessions, ids.size(), who + " distinct sessions");
+        }
+        assertTrue(service.getStripeCount() >= stripes);
+    }
+
+    // The HashMap-backed service treats a null id as unknown; so must this one
+    @Test
+    void nullUserIdBehavesLikeAnUnknownUser() {
+        var service = new ConcurrentFitnessServiceImpl(4);
+        assertNull(service.getUser(null));
+        assertTrue(service.filterWorkouts(null, session -> true).isEmpty());
+        assertEquals(0.0, service.calculateUserProgress(null));
+        assertTrue(service.queryWorkouts(null, WorkoutQuery.all(), null).sessions().isEmpty());
+        assertThrows(InvalidWorkoutException.class, () -> service.addWorkoutToUser(null, session(0, 0)));
+    }
+
+    private static WorkoutSession session(int thread, int i) {
+        return new WorkoutSession("T" + thread + "-" + i, LocalDate.of(2024, 1, 1).plusDays(i % 365),
+                type(thread, i), List.of(RUN), duration(thread), "stress");
+    }
+
+    // Minutes differ per thread, so a lost session changes the total
+    private static int duration(int thread) {
+        return 10 + thread;
+    }
+
+    private static WorkoutType type(int thread, int i) {
+        return TYPES[(thread + i) % TYPES.length];
+    }
+}
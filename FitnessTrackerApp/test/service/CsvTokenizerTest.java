@@ -0,0 +1,108 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Quoting, line-ending and parsing rules of CsvTokenizer. */
+class CsvTokenizerTest {
+
+    @Test
+    void splitsPlainFields() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("d", "", "f")), records("a,b,c\nd,,f\n"));
+    }
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        assertEquals(List.of(List.of("x,y", "say \"hi\"", "two\nlines", "cr\r\nlf")),
+                records("\"x,y\",\"say \"\"hi\"\"\",\"two\nlines\",\"cr\r\nlf\"\n"));
+    }
+
+    @Test
+    void acceptsCrLfLoneCrAndMissingFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "1"), List.of("b", "2"), List.of("c", "3")),
+                records("a,1\r\nb,2\rc,3"));
+    }
+
+    @Test
+    void trailingCommaIsAnEmptyLastField() throws IOException {
+        assertEquals(List.of(List.of("a", "")), records("a,\n"));
+    }
+
+    @Test
+    void emptyLineIsBlankButQuotedEmptyFieldIsNot() throws IOException {
+        try (var tokenizer = tokenizer("\n\"\"\r\n")) {
+            assertTrue(tokenizer.nextRecord());
+            assertTrue(tokenizer.isBlank());
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(1, tokenizer.fieldCount());
+            assertEquals("", tokenizer.getString(0));
+            assertFalse(tokenizer.isBlank());
+            assertFalse(tokenizer.nextRecord());
+        }
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() {
+        var e = assertThrows(IOException.class, () -> records("a,b\n\"open,c\n"));
+        assertEquals("Unterminated quoted field in record 2", e.getMessage());
+    }
+
+    @Test
+    void rejectsCharactersAfterClosingQuote() {
+        var e = assertThrows(IOException.class, () -> records("ok,1\n\"abc\"def,x\nnext,2\n"));
+        assertEquals("Unexpected character after closing quote in record 2", e.getMessage());
+    }
+
+    @Test
+    void parsesNumbersAndDatesInPlace() throws IOException {
+        try (var tokenizer = tokenizer("-42,3.25,1e3,2024-02-29,\"7\"\n")) {
+            assertTrue(tokenizer.nextRecord());
+            assertEquals(-42, tokenizer.getInt(0));
+            assertEquals(3.25, tokenizer.getDouble(1));
+            assertEquals(1000.0, tokenizer.getDouble(2));
+            assertEquals(LocalDate.of(2024, 2, 29), tokenizer.getDate(3));
+            assertEquals(7, tokenizer.getInt(4));
+            assertThrows(NumberFormatException.class, () -> tokenizer.getInt(3));
+        }
+    }
+
+    @Test
+    void escapeRoundTripsThroughTheTokenizer() throws IOException {
+        var values = List.of("plain", "comma,inside", "quote\"inside", "line\nbreak", "");
+        var line = new StringBuilder();
+        for (String value : values) {
+            if (!line.isEmpty()) line.append(',');
+            line.append(CsvTokenizer.escape(value));
+        }
+        assertEquals(List.of(values), records(line + "\r\n"));
+    }
+
+    // Small buffer so records straddle refills
+    private static CsvTokenizer tokenizer(String csv) {
+        return new CsvTokenizer(new StringReader(csv), 4);
+    }
+
+    private static List<List<String>> records(String csv) throws IOException {
+        var result = new ArrayList<List<String>>();
+        try (var tokenizer = tokenizer(csv)) {
+            while (tokenizer.nextRecord()) {
+                var fields = new ArrayList<String>();
+                for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                    fields.add(tokenizer.getString(i));
+                }
+                result.add(fields);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** File layout and block-index use of PartitionedHistoryStore. */
+class PartitionedHistoryStoreTest {
+
+    private static final Exercise RUN = new CardioExercise("Store Run", 20, 4.0, 140);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void idsDifferingOnlyInCaseGetDistinctFileNames() {
+        String lower = PartitionedHistoryStore.encode("abc");
+        String upper = PartitionedHistoryStore.encode("ABC");
+        assertNotEquals(lower.toLowerCase(Locale.ROOT), upper.toLowerCase(Locale.ROOT));
+        assertEquals("abc", lower);
+        assertEquals("%2E%2E%2Fx", PartitionedHistoryStore.encode("../x"));
+    }
+
+    @Test
+    void rangeQueryUsesTheIndexAfterASave() throws IOException {
+        var store = new PartitionedHistoryStore(dir, 64); // small blocks: many to prune
+        store.save("U1", january(40));
+        assertTrue(Files.exists(store.pathFor("U1", ".idx")));
+        assertEquals(List.of("S10", "S11", "S12"),
+                sessionIds(store, "U1", LocalDate.of(2024, 1, 11), LocalDate.of(2024, 1, 13)));
+    }
+
+    // Same length, different dates: a size check alone would trust the old index
+    @Test
+    void indexIsIgnoredWhenTheCsvChangesBehindIt() throws IOException {
+        var store = new PartitionedHistoryStore(dir, 64);
+        store.save("U1", january(40));
+        Path csv = store.pathFor("U1");
+        FileTime saved = Files.getLastModifiedTime(csv);
+        String edited = Files.readString(csv, StandardCharsets.UTF_8).replace("2024-01-05", "2024-06-05");
+        Files.writeString(csv, edited, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(saved.toMillis() + 2000));
+
+        var june = sessionIds(store, "U1", LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        assertEquals(List.of("S4"), june);
+    }
+
+    @Test
+    void missingIndexFallsBackToAFullScan() throws IOException {
+        var store = new PartitionedHistoryStore(dir, 64);
+        store.save("ABC", january(10));
+        store.save("abc", january(3));
+        Files.delete(store.pathFor("ABC", ".idx"));
+        assertEquals(10, sessionIds(store, "ABC", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)).size());
+        assertEquals(3, store.load("abc").size());
+        assertFalse(Files.exists(store.pathFor("ABC", ".idx")));
+    }
+
+    private static List<String> sessionIds(PartitionedHistoryStore store, String userId, LocalDate from,
+                                           LocalDate to) throws IOException {
+        var ids = new ArrayList<String>();
+        store.forEachInRange(userId, from, to, row -> ids.add(row.sessionId()));
+        return ids;
+    }
+
+    // One session per day from 1 January
+    private static List<WorkoutSession> january(int days) {
+        var sessions = new ArrayList<WorkoutSession>();
+        for (int i = 0; i < days; i++) {
+            sessions.add(new WorkoutSession("S" + i, LocalDate.of(2024, 1, 1).plusDays(i),
+                    WorkoutType.CARDIO, List.of(RUN), 30, "day " + i));
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,143 @@
+package service;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Crash recovery and compaction of WorkoutJournal: replay must return every acknowledged record. */
+class WorkoutJournalTest {
+
+    private static final Exercise RUN = new CardioExercise("Journal Run", 20, 4.0, 140);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsTruncatedAndLaterAppendsSurvive() throws IOException {
+        try (var journal = open(new ArrayList<>())) {
+            for (int i = 0; i < 10; i++) {
+                journal.appendDurably("U1", session("A" + i));
+            }
+        }
+        // A crash mid-write: a length header promising more bytes than follow
+        Path log = onlyJournalFile();
+        Files.write(log, new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 'x', 'y'}, StandardOpenOption.APPEND);
+
+        var messages = new ArrayList<String>();
+        try (var journal = open(messages)) {
+            assertEquals(10, replayIds(journal).size());
+            for (int i = 0; i < 5; i++) {
+                journal.appendDurably("U1", session("B" + i));
+            }
+        }
+        assertTrue(messages.stream().anyMatch(m -> m.startsWith("Truncating torn tail")), messages.toString());
+
+        try (var journal = open(new ArrayList<>())) {
+            var ids = replayIds(journal);
+            assertEquals(15, ids.size());
+            assertTrue(ids.contains("A0") && ids.contains("B4"));
+        }
+    }
+
+    // Tiny threshold: appends keep scheduling background compactions while
+    // another thread forces compactNow(); both write the same temp snapshot
+    @Test
+    void concurrentCompactionLosesNoAcknowledgedRecord() throws Exception {
+        int writers = 4;
+        int perWriter = 300;
+        Set<String> acknowledged = ConcurrentHashMap.newKeySet();
+        var messages = new CopyOnWriteArrayList<String>();
+
+        var start = new CountDownLatch(1);
+        var writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 1);
+        try (var journal = WorkoutJournal.open(dir, Duration.ZERO, 2048, messages::add)) {
+            var done = new ArrayList<Future<?>>();
+            for (int w = 0; w < writers; w++) {
+                final int writer = w;
+                done.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        String id = "W" + writer + "-" + i;
+                        journal.appendDurably("U" + writer, session(id));
+                        acknowledged.add(id);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> compactor = pool.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    journal.compactNow();
+                }
+                return null;
+            });
+            start.countDown();
+            try {
+                for (Future<?> future : done) {
+                    future.get(2, TimeUnit.MINUTES);
+                }
+            } finally {
+                writing.set(false);
+            }
+            compactor.get(2, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(messages.stream().noneMatch(m -> m.startsWith("Compaction failed")), messages.toString());
+
+        try (var journal = open(new ArrayList<>())) {
+            var ids = replayIds(journal);
+            assertEquals(writers * perWriter, ids.size(), "replayed records");
+            assertEquals(acknowledged, new HashSet<>(ids));
+        }
+    }
+
+    private WorkoutJournal open(List<String> messages) throws IOException {
+        return WorkoutJournal.open(dir, WorkoutJournal.DEFAULT_COMMIT_INTERVAL,
+                WorkoutJournal.DEFAULT_COMPACT_THRESHOLD, messages::add);
+    }
+
+    private Path onlyJournalFile() throws IOException {
+        try (var files = Files.list(dir)) {
+            var logs = files.filter(p -> p.getFileName().toString().endsWith(".log")).toList();
+            assertEquals(1, logs.size(), logs.toString());
+            return logs.get(0);
+        }
+    }
+
+    private static List<String> replayIds(WorkoutJournal journal) throws IOException {
+        var ids = new ArrayList<String>();
+        journal.replay((userId, session) -> ids.add(session.sessionId()));
+        return ids;
+    }
+
+    private static WorkoutSession session(String id) {
+        return new WorkoutSession(id, LocalDate.of(2024, 3, 1), WorkoutType.CARDIO, List.of(RUN), 30, "journal");
+    }
+}
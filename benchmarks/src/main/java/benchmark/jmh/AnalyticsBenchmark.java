@@ -0,0 +1,68 @@
+package benchmark.jmh;
+
+import model.User;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.AnalyticsService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** AnalyticsService.runConcurrentAnalytics and caloriesByType (full scan vs per-type index). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class AnalyticsBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private List<WorkoutSession> sessions;
+    private User user;
+    private AnalyticsService analytics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessions = Histories.sessions(size);
+        user = new User("U001", "Bench");
+        user.addWorkoutSessions(sessions.toArray(WorkoutSession[]::new));
+        analytics = new AnalyticsService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        analytics.close();
+    }
+
+    @Benchmark
+    public List<AnalyticsService.AnalyticsResult> runConcurrentAnalytics() {
+        return analytics.runConcurrentAnalytics(sessions);
+    }
+
+    @Benchmark
+    public Map<WorkoutType, Double> caloriesByType() {
+        return analytics.caloriesByType(sessions);
+    }
+
+    @Benchmark
+    public Map<WorkoutType, Double> caloriesByTypeIndexed() {
+        return analytics.caloriesByType(user);
+    }
+}
@@ -0,0 +1,47 @@
+package benchmark.jmh;
+
+import model.CardioExercise;
+import model.Exercise;
+import model.StrengthExercise;
+import model.WorkoutSession;
+import model.WorkoutType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic workout histories for the benchmarks: the same size always
+ * yields the same sessions, so runs are comparable across changes.
+ */
+final class Histories {
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+    private static final String[] CARDIO = {"Running", "Cycling", "Rowing", "Swimming"};
+    private static final String[] STRENGTH = {"Squat", "Bench Press", "Deadlift", "Pull Up"};
+    private static final String[] NOTES = {"", "Felt strong", "Easy day", "New personal best"};
+
+    private Histories() {
+    }
+
+    static List<WorkoutSession> sessions(int size) {
+        var random = new SplittableRandom(size);
+        var start = LocalDate.of(2015, 1, 1);
+        int perDay = Math.max(1, size / 3650); // spread over roughly ten years
+        var sessions = new ArrayList<WorkoutSession>(size);
+        for (int i = 0; i < size; i++) {
+            var exercises = new ArrayList<Exercise>(2);
+            exercises.add(new CardioExercise(CARDIO[random.nextInt(CARDIO.length)], 10 + random.nextInt(50),
+                    1 + random.nextDouble() * 15, 110 + random.nextInt(70)));
+            if (random.nextBoolean()) {
+                exercises.add(new StrengthExercise(STRENGTH[random.nextInt(STRENGTH.length)], 10 + random.nextInt(40),
+                        3 + random.nextInt(3), 5 + random.nextInt(8), 20 + random.nextInt(120)));
+            }
+            int duration = exercises.stream().mapToInt(Exercise::getDuration).sum();
+            sessions.add(new WorkoutSession("WS" + i, start.plusDays(i / perDay), TYPES[random.nextInt(TYPES.length)],
+                    exercises, duration, NOTES[random.nextInt(NOTES.length)]));
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark.jmh;
+
+import model.User;
+import model.WorkoutSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model hot paths: summing WorkoutSession.calculateTotalCalories over a
+ * history, and User.getTotalCaloriesBurned for a user holding that history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ModelBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private List<WorkoutSession> sessions;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessions = Histories.sessions(size);
+        user = new User("U001", "Benchmark", 30, 75.0, 178.0);
+        sessions.forEach(user::addWorkoutSession);
+    }
+
+    @Benchmark
+    public double calculateTotalCalories() {
+        double total = 0;
+        for (WorkoutSession session : sessions) {
+            total += session.calculateTotalCalories();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double getTotalCaloriesBurned() {
+        return user.getTotalCaloriesBurned();
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark.jmh;
+
+import model.User;
+import model.WorkoutHistoryStore;
+import model.WorkoutSession;
+import model.WorkoutType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.OffHeapSessionStore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Full-history scans: on-heap columnar WorkoutHistoryStore vs OffHeapSessionStore. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+public class OffHeapBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private WorkoutHistoryStore onHeap;
+    private OffHeapSessionStore offHeap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<WorkoutSession> sessions = Histories.sessions(size);
+        var user = new User("U001", "Benchmark");
+        user.addWorkoutSessions(sessions.toArray(WorkoutSession[]::new));
+        onHeap = user.getHistoryStore();
+        offHeap = new OffHeapSessionStore();
+        offHeap.appendAll(user);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        offHeap.close();
+    }
+
+    @Benchmark
+    public double sumCaloriesOnHeap() {
+        return onHeap.sumCalories();
+    }
+
+    @Benchmark
+    public double totalCaloriesOffHeap() {
+        return offHeap.totalCalories();
+    }
+
+    @Benchmark
+    public Map<WorkoutType, Double> caloriesByTypeOnHeap() {
+        return onHeap.caloriesByType();
+    }
+
+    @Benchmark
+    public Map<WorkoutType, OffHeapSessionStore.Totals> totalsByTypeOffHeap() {
+        return offHeap.totalsByType();
+    }
+
+    @Benchmark
+    public WorkoutSession materialiseLastOffHeap() {
+        return offHeap.session(offHeap.size() - 1);
+    }
+}
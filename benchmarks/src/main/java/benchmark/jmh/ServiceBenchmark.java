@@ -0,0 +1,53 @@
+package benchmark.jmh;
+
+import exception.InvalidWorkoutException;
+import model.User;
+import model.WorkoutSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.FitnessServiceImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/** FitnessServiceImpl.filterWorkouts over one user's history. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ServiceBenchmark {
+
+    private static final Predicate<WorkoutSession> LONG_SESSIONS = session -> session.totalDuration() > 45;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private FitnessServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidWorkoutException {
+        service = new FitnessServiceImpl();
+        service.addUser(new User("U001", "Benchmark", 30, 75.0, 178.0));
+        for (WorkoutSession session : Histories.sessions(size)) {
+            service.addWorkoutToUser("U001", session);
+        }
+    }
+
+    @Benchmark
+    public List<WorkoutSession> filterWorkouts() {
+        return service.filterWorkouts("U001", LONG_SESSIONS);
+    }
+}